@@ -21,6 +21,8 @@ expr
     |   IF LPAREN predicate=expr COMMA true=expr COMMA false=expr RPAREN    # IfFunctionExpr
     |   IMPACT LPAREN activity=expr COMMA impact=expr COMMA component=expr (optionalImpactParams)* RPAREN                       # ImpactFunctionExpr
     |   LOOKUP LPAREN value=expr COMMA name=expr COMMA keyColumn=expr COMMA outputColumn=expr (optionalLookupParams)* RPAREN    # LookupFunctionExpr
+    |   LOOKUP LPAREN LSQUARE values=exprList RSQUARE COMMA name=expr COMMA LSQUARE keyColumns=exprList RSQUARE COMMA outputColumn=expr (optionalLookupParams)* RPAREN    # CompositeLookupFunctionExpr
+    |   LOOKUP_RANGE LPAREN value=expr COMMA name=expr COMMA fromColumn=expr COMMA toColumn=expr COMMA outputColumn=expr (optionalLookupParams)* RPAREN    # LookupRangeFunctionExpr
     |   SPLIT LPAREN text=expr COMMA regex=expr (optionalSplitParams)* RPAREN index=optionalArrayIndexParam?   # SplitFunctionExpr
     |   CAML LPAREN value=expr RPAREN    										# CamlFunctionExpr
     |   LOWERCASE LPAREN value=expr RPAREN    										# LowercaseFunctionExpr
@@ -156,6 +158,7 @@ CONVERT			: C O N V E R T ;
 IF              : I F ;
 IMPACT          : I M P A C T ;
 LOOKUP          : L O O K U P ;
+LOOKUP_RANGE    : L O O K U P US R A N G E ;
 LOWERCASE       : L O W E R C A S E ;
 REF             : R E F ;
 CAML            : C A M L ;
@@ -6,21 +6,27 @@ import com.aws.sif.execution.*;
 import com.aws.sif.execution.output.ActivityTypeOutputWriter;
 import com.aws.sif.execution.output.OutputType;
 import com.aws.sif.execution.output.OutputWriter;
+import com.aws.sif.lambdaInvoker.LambdaInvocationException;
 import com.aws.sif.resources.users.UserNotFoundException;
 import com.aws.sif.resources.users.UsersClient;
 import com.google.common.base.Strings;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.typesafe.config.Config;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -35,15 +41,17 @@ public abstract class AbstractCalculatorService<T> {
     private final Config config;
     private final OutputWriter<T> outputWriter;
     private final UsersClient usersClient;
+    private final ResourcePrefetcher prefetcher;
     private final Gson gson;
     protected Map<String, DynamicTypeValue> valueMap = new HashMap<>();
 
-    public AbstractCalculatorService(Calculator calculator, S3Utils s3, Auditor auditor, Config config, OutputWriter<T> outputWriter, UsersClient usersClient, Gson gson) {
+    public AbstractCalculatorService(Calculator calculator, S3Utils s3, Auditor auditor, Config config, OutputWriter<T> outputWriter, UsersClient usersClient, ResourcePrefetcher prefetcher, Gson gson) {
         this.calculator = calculator;
         this.s3 = s3;
         this.auditor = auditor;
         this.config = config;
         this.usersClient = usersClient;
+        this.prefetcher = prefetcher;
         this.gson = gson;
         this.outputWriter = outputWriter;
     }
@@ -51,46 +59,46 @@ public abstract class AbstractCalculatorService<T> {
     public TransformResponse process(TransformRequest req) throws InterruptedException, IOException {
         log.debug("process> in> req:{}", req);
 
+        if (req.getChunks() != null && !req.getChunks().isEmpty()) {
+            return processChunks(req);
+        }
+
         TransformResponse response = null;
+        // the artifacts (groups, errors and outputs) of the request, uploaded in parallel
+        var uploads = new ArrayList<CompletableFuture<S3Upload>>();
 
         try {
             var errors = validateRequest(req);
+            var authorizer = authorize(req, errors);
+            var outputHeaders = identifyOutputColumns(req.getTransforms());
 
-            Authorizer authorizer = null;
-            if (req.getUsername() == null) {
-                errors.add("No `username` provided.");
-            } else {
-                try {
-                    // initial authorizer to retrieve claims
-                    authorizer = new Authorizer(req.getUsername(), req.getGroupContextId(), Set.of(req.getGroupContextId()));
-                    Map<String,String> groups;
-                    if (req.getJwt()!= null) {
-                        groups = DecodedUser.getDecoded(req.getJwt()).groups;
-                    } else {
-                        var user = this.usersClient.getUser(req.getUsername(), req.getGroupContextId(), authorizer);
-                        // updated authorizer capable of crossing group/tenant boundaries if the pipeline is configured to do so and the pipeline creator has authorization.
-                        groups = user.getGroups();
-                    }
-                    authorizer = new Authorizer(req.getUsername(), req.getGroupContextId(), groups.keySet());
-
-                } catch (UserNotFoundException e) {
-                    errors.add(String.format("User `%s` not found.", req.getUsername()));
-                }
+            RequestReferences references = null;
+            CompletableFuture<Void> prefetched = null;
+            RowSource source = null;
+            // no point proceeding if we detected an error during initialization or validation
+            if (errors.isEmpty()) {
+                // start resolving the resources referenced by the formulas so that they are available by the time the rows are processed
+                references = ResourcePrefetcher.collect(req);
+                prefetched = prefetcher.prefetch(req, references, authorizer);
+                source = openSource(req);
             }
 
-            var outputHeaders = identifyOutputColumns(req.getTransforms());
-
-            response = transformInput(req, authorizer, errors, outputHeaders);
+            response = transformInput(req, authorizer, errors, outputHeaders, references, prefetched, source, uploads);
         } catch (Exception e) {
             log.error("process> " + e.getMessage(), e);
             throw e;
         } finally {
-            if (!req.isDryRun()) {
-                Thread.sleep(1000);
-                auditor.flushSync();
-                if (response != null && !response.noActivitiesProcessed) {
-                    outputWriter.submit();
+            // the audit messages are drained whilst the artifacts are uploaded
+            var drained = req.isDryRun() ? CompletableFuture.<Void>completedFuture(null) : auditor.drain();
+            try {
+                if (!req.isDryRun() && response != null && !response.noActivitiesProcessed) {
+                    uploads.addAll(outputWriter.submit());
                 }
+                // an output not submitted (the request having failed) is abandoned, aborting its upload or deleting its file
+                outputWriter.discard();
+                awaitUploads(uploads);
+            } finally {
+                drained.join();
             }
         }
 
@@ -99,6 +107,161 @@ public abstract class AbstractCalculatorService<T> {
         return response;
     }
 
+    /**
+     * Processes each chunk of the request in turn within the one invocation, so that the user, resolved resources and
+     * parsed formulas of the first chunk are reused by the rest rather than each chunk paying for them in its own
+     * invocation. The next chunk is opened, starting its download, before the current chunk is evaluated. Each chunk's
+     * outputs, errors and groups are written as if processed by its own invocation.
+     */
+    private TransformResponse processChunks(TransformRequest req) throws InterruptedException, IOException {
+        log.debug("processChunks> in> chunks:{}", req.getChunks());
+
+        var responses = new ArrayList<S3TransformResponse>(req.getChunks().size());
+        var uploads = new ArrayList<CompletableFuture<S3Upload>>();
+        RowSource next = null;
+        try {
+            var errors = validateRequest(req);
+            if (req.getSourceDataLocation() == null) {
+                recordError(errors, "processChunks", "No sourceDataLocation provided for chunks.");
+            }
+            var authorizer = authorize(req, errors);
+            var outputHeaders = identifyOutputColumns(req.getTransforms());
+
+            // no point proceeding if we detected an error during initialization or validation, and the chunks may not
+            // be locatable (no sourceDataLocation), so the errors are reported for the request as a whole
+            if (!errors.isEmpty()) {
+                return transformInput(req, authorizer, errors, outputHeaders, null, null, null, uploads);
+            }
+
+            var chunkRequests = req.getChunks().stream().map(c -> chunkRequest(req, c)).toList();
+            var references = ResourcePrefetcher.collect(req);
+            var prefetched = prefetcher.prefetch(req, references, authorizer);
+            next = openSource(chunkRequests.get(0));
+
+            for (var i = 0; i < chunkRequests.size(); i++) {
+                var source = next;
+                next = null;
+                if (source != null && i + 1 < chunkRequests.size()) {
+                    try {
+                        next = openSource(chunkRequests.get(i + 1));
+                    } catch (Exception e) {
+                        // the current chunk's source is no longer held by next, so would not otherwise be closed
+                        source.close();
+                        throw e;
+                    }
+                }
+
+                var response = (S3TransformResponse) transformInput(chunkRequests.get(i), authorizer, new ArrayList<>(errors), outputHeaders, references, prefetched, source, uploads);
+                // the output's upload is started once each chunk is complete, as the writer is reinitialized for the next chunk.
+                // It is not acted upon until the invocation has completed, by which time the audits have been drained.
+                if (!req.isDryRun() && !response.noActivitiesProcessed) {
+                    uploads.addAll(outputWriter.submit());
+                }
+                responses.add(response);
+            }
+        } catch (Exception e) {
+            log.error("processChunks> " + e.getMessage(), e);
+            throw e;
+        } finally {
+            if (next != null) {
+                next.close();
+            }
+            // as is the output of a chunk which failed
+            outputWriter.discard();
+            var drained = req.isDryRun() ? CompletableFuture.<Void>completedFuture(null) : auditor.drain();
+            try {
+                awaitUploads(uploads);
+            } finally {
+                drained.join();
+            }
+        }
+
+        var response = new ChunksTransformResponse(responses);
+        log.debug("processChunks> exit:");
+        log.trace("processChunks> exit: {}", response);
+        return response;
+    }
+
+    /**
+     * Waits for the artifacts uploaded in parallel, logging how long each took.
+     */
+    private void awaitUploads(List<CompletableFuture<S3Upload>> uploads) {
+        if (uploads.isEmpty()) {
+            return;
+        }
+        try {
+            S3Upload.allOf(uploads).join().forEach(u -> log.debug("awaitUploads> uploaded:{}", u));
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private TransformRequest chunkRequest(TransformRequest req, SourceChunk chunk) {
+        var location = req.getSourceDataLocation();
+        var chunkLocation = new S3SourceLocation(chunk.getRange()[0], chunk.getRange()[1], location.getCompression());
+        chunkLocation.setBucket(location.getBucket());
+        chunkLocation.setKey(location.getKey());
+        return req.toBuilder()
+                .chunkNo(chunk.getSequence())
+                .sourceDataLocation(chunkLocation)
+                .chunks(null)
+                .build();
+    }
+
+    private Authorizer authorize(TransformRequest req, List<String> errors) throws UnsupportedEncodingException {
+        Authorizer authorizer = null;
+        if (req.getUsername() == null) {
+            errors.add("No `username` provided.");
+        } else {
+            try {
+                // initial authorizer to retrieve claims
+                authorizer = new Authorizer(req.getUsername(), req.getGroupContextId(), Set.of(req.getGroupContextId()));
+                Map<String,String> groups;
+                if (req.getJwt()!= null) {
+                    groups = DecodedUser.getDecoded(req.getJwt()).groups;
+                } else {
+                    var user = this.usersClient.getUser(req.getUsername(), req.getGroupContextId(), authorizer);
+                    // updated authorizer capable of crossing group/tenant boundaries if the pipeline is configured to do so and the pipeline creator has authorization.
+                    groups = user.getGroups();
+                }
+                authorizer = new Authorizer(req.getUsername(), req.getGroupContextId(), groups.keySet());
+
+            } catch (UserNotFoundException e) {
+                errors.add(String.format("User `%s` not found.", req.getUsername()));
+            }
+        }
+        return authorizer;
+    }
+
+    /**
+     * Opens the source data of the request. S3 sourced data is streamed, its rows being processed as they are downloaded.
+     */
+    private RowSource openSource(TransformRequest req) {
+        Type MapStringStringType = new TypeToken<Map<String, String>>() {
+        }.getType();
+        if (SourceDataFormat.csv.equals(req.getSourceDataFormat())) {
+            var rowParser = new CsvRowParser(req.getParameters(), req.getUniqueKey());
+            if (req.getSourceDataLocation() == null) {
+                return new RowSource(rowParser.rows(new StringReader(String.join(System.lineSeparator(), req.getSourceData())), null), null);
+            }
+            var csvSource = s3.streamCsv(req.getSourceDataLocation());
+            return new RowSource(rowParser.rows(csvSource.getReader(), csvSource.getHeaders()), csvSource);
+        }
+
+        // only the fields referenced by the parameters and unique key are parsed from each line
+        var rowParser = new InputRowParser(req.getParameters(), req.getUniqueKey());
+        Stream<String> lines;
+        Closeable s3Source = null;
+        if (req.getSourceDataLocation() == null) {
+            lines = String.join(System.lineSeparator(), req.getSourceData()).lines();
+        } else {
+            var reader = s3.stream(req.getSourceDataLocation());
+            s3Source = reader;
+            lines = reader.lines();
+        }
+        return new RowSource(lines.map(l -> new SourceRow(rowParser.parse(l), () -> gson.fromJson(l, MapStringStringType))).iterator(), s3Source);
+    }
+
     private List<String> identifyOutputColumns(List<Transform> transforms) {
         log.debug("identifyOutputColumns> in>");
 
@@ -166,7 +329,8 @@ public abstract class AbstractCalculatorService<T> {
         return jsonLine.toString();
     }
 
-    private TransformResponse transformInput(TransformRequest req, Authorizer authorizer, List<String> errors, List<String> headers) throws IOException {
+    private TransformResponse transformInput(TransformRequest req, Authorizer authorizer, List<String> errors, List<String> headers,
+                                             RequestReferences references, CompletableFuture<Void> prefetched, RowSource source, List<CompletableFuture<S3Upload>> uploads) throws IOException {
         log.debug("transformInput> in> request:{}, errors:{}, headers:{}", req, errors, headers);
 
         TransformResponse response;
@@ -185,17 +349,12 @@ public abstract class AbstractCalculatorService<T> {
         // keep track of activities that were referenced by the formula
         Map<String, Map<String, String>>  activities = new HashMap<>();
 
-        // no point proceeding if we detected an error during initialization or validation
+        // the source is only opened if no error was detected during initialization or validation
 		var noActivitiesProcessed = false;
-        if (errors.size() == 0) {
+        if (source != null) {
+            var rows = source.getRows();
 
-            // gather the source data
-            String sourceData;
-            if (DataSourceLocation.inline.equals(sourceLocation)) {
-                sourceData = String.join(System.lineSeparator(), req.getSourceData());
-            } else {
-                sourceData = s3.download(req.getSourceDataLocation());
-            }
+            prefetched.join();
 
             var outputMap = getOutputMap(req);
 
@@ -205,43 +364,81 @@ public abstract class AbstractCalculatorService<T> {
             // initialize the activity writer with the current context
             outputWriter.init(req.getPipelineId(), req.getExecutionId(), chunkNo, outputMap);
 
-            Type MapStringStringType = new TypeToken<Map<String, String>>() {
-            }.getType();
-
+            // rows are processed in batches, the distinct lookup keys (and CaML product names) of each batch being resolved together before its rows are evaluated
+            var batchSize = config.getInt("calculator.referenceDatasets.lookup.batchSize");
+            var batchSource = new ArrayList<SourceRow>();
+            var batchRows = new ArrayList<Map<String, DynamicTypeValue>>();
+            var batchErrors = new ArrayList<Exception>();
+            IOException outputFailure = null;
+            try {
+                while (rows.hasNext()) {
+                    var row = rows.next();
+                    log.trace("row: {}", row.getFields());
+                    batchSource.add(row);
+
+                    try {
+                        batchRows.add(marshallInputRow(req.getParameters(), req.getUniqueKey(), row.getFields()));
+                        batchErrors.add(null);
+                    } catch (Exception e) {
+                        batchRows.add(null);
+                        batchErrors.add(e);
+                    }
 
+                    if (batchSource.size() < batchSize && rows.hasNext()) {
+                        continue;
+                    }
 
-            Stream<String> linesFromString = sourceData.lines();
-            linesFromString.forEach(l -> {
-                log.trace("l: {}", l);
-                Map<String, String> jsonLine = gson.fromJson(l, MapStringStringType);
-                log.trace("jsonLine: {}", jsonLine);
+                    var validRows = batchRows.stream().filter(Objects::nonNull).toList();
+                    prefetcher.prefetchLookupKeys(req, references, authorizer, validRows);
+                    prefetcher.prefetchProductMatches(req, references, validRows);
 
-                try {
-                    var inputRow = marshallInputRow(req.getParameters(), req.getUniqueKey(), jsonLine);
-                    var outputRow = transformRow(req, authorizer, inputRow, errors, referenceDatasets, activities);
+                    for (var i = 0; i < batchSource.size(); i++) {
+                        try {
+                            if (batchErrors.get(i) != null) {
+                                throw batchErrors.get(i);
+                            }
+                            var inputRow = batchRows.get(i);
+                            var outputRow = transformRow(req, authorizer, inputRow, errors, referenceDatasets, activities);
 
-                    // if in inline mode we need to collect the generated output rows as we progress to return
-                    if (DataSourceLocation.inline.equals(sourceLocation)) {
-                        inlineResultJsonLines.add(transformedToJsonLine(outputRow, headers));
-                    }
+                            // if in inline mode we need to collect the generated output rows as we progress to return
+                            if (DataSourceLocation.inline.equals(sourceLocation)) {
+                                inlineResultJsonLines.add(transformedToJsonLine(outputRow, headers));
+                            }
 
-                    // if not in dry run mode we save the results to RDS
-                    if (!req.isDryRun()) {
-                        // if the output row has an entry that is a group id, then use it, otherwise default to execution group
-                        var groupIdOutput = outputRow.entrySet().stream()
-                                .filter(x -> OutputType.groupId.equals(x.getValue().getOutputType()))
-                                .findFirst().orElse(new AbstractMap.SimpleEntry<>("__execution_group_id", new StringTypeValue(req.getGroupContextId())));
-                        var rowGroupId = ((StringTypeValue) groupIdOutput.getValue()).getValue();
-                        groupsVisited.add(rowGroupId);
+                            // if not in dry run mode we save the results to RDS
+                            if (!req.isDryRun()) {
+                                // if the output row has an entry that is a group id, then use it, otherwise default to execution group
+                                var groupIdOutput = outputRow.entrySet().stream()
+                                        .filter(x -> OutputType.groupId.equals(x.getValue().getOutputType()))
+                                        .findFirst().orElse(new AbstractMap.SimpleEntry<>("__execution_group_id", new StringTypeValue(req.getGroupContextId())));
+                                var rowGroupId = ((StringTypeValue) groupIdOutput.getValue()).getValue();
+                                groupsVisited.add(rowGroupId);
+
+                                try {
+                                    outputWriter.addRecord(this.buildRecord(req, outputRow));
+                                } catch (IOException e) {
+                                    // the output can no longer be written to, so every remaining row would fail the same way
+                                    outputFailure = e;
+                                    break;
+                                }
+                            }
 
-                        outputWriter.addRecord(this.buildRecord(req, outputRow));
+                        } catch (Exception e) {
+                            log.error("*****", e);
+                            // the row is reported in full, not just the fields that were parsed
+                            recordError(errors, "transformInput", String.format("Failed processing row %s, err: %s", batchSource.get(i).getAllFields().get(), e.getMessage()));
+                        }
                     }
-
-                } catch (Exception e) {
-                    log.error("*****", e);
-                    recordError(errors, "transformInput", String.format("Failed processing row %s, err: %s", jsonLine, e.getMessage()));
+                    if (outputFailure != null) {
+                        throw outputFailure;
+                    }
+                    batchSource.clear();
+                    batchRows.clear();
+                    batchErrors.clear();
                 }
-            });
+            } finally {
+                source.close();
+            }
         } else {
 			noActivitiesProcessed = true;
 		}
@@ -252,22 +449,22 @@ public abstract class AbstractCalculatorService<T> {
         log.trace("transformInput> groups visited:{}", groupsVisited);
         if (!req.isDryRun()) {
             S3Location groupsLocation = new S3Location(bucket, replaceKeyTokens(config.getString("calculator.upload.s3.groups.key"), req));
-            s3.upload(groupsLocation, String.join(System.lineSeparator(), groupsVisited));
+            uploads.add(s3.uploadAsync(groupsLocation, String.join(System.lineSeparator(), groupsVisited)));
         }
 
         String activityValueKey = null;
-        if (this.outputWriter instanceof ActivityTypeOutputWriter && ((ActivityTypeOutputWriter) this.outputWriter).activityValuePath != null) {
+        if (this.outputWriter instanceof ActivityTypeOutputWriter && ((ActivityTypeOutputWriter) this.outputWriter).activityValueName != null) {
             activityValueKey = config.getString("calculator.upload.s3.activities.key")
                     .replace("<pipelineId>", req.getPipelineId())
                     .replace("<executionId>", req.getExecutionId())
-                    + ((ActivityTypeOutputWriter) this.outputWriter).activityValuePath.getFileName().toString();
+                    + ((ActivityTypeOutputWriter) this.outputWriter).activityValueName;
         }
 
         if (DataSourceLocation.s3.equals(sourceLocation)) {
             S3Location errorLocation = null;
             if (!errors.isEmpty()) {
                 errorLocation = new S3Location(bucket, replaceKeyTokens(config.getString("calculator.upload.s3.errors.key"), req));
-                s3.upload(errorLocation, String.join(System.lineSeparator(), errors));
+                uploads.add(s3.uploadAsync(errorLocation, String.join(System.lineSeparator(), errors)));
             }
             response = new S3TransformResponse(errorLocation, noActivitiesProcessed, activityValueKey, referenceDatasets, activities);
 
@@ -354,6 +551,10 @@ public abstract class AbstractCalculatorService<T> {
                         .resources(outputResources);
 
             } catch (Exception ex) {
+                // a module refusing access suggests the user's groups have changed since the user was cached
+                if (isForbidden(ex)) {
+                    usersClient.invalidate(req.getUsername());
+                }
                 var errorMessage = String.format("Row '%s' column '%s' encountered error evaluating formula `%s` - %s", source.get(ROW_IDENTIFIER).asString(), o.getKey(), t.getFormula(), ex.getMessage());
                 /*
                   If it's a deletion request we would not care about the error
@@ -580,6 +781,15 @@ public abstract class AbstractCalculatorService<T> {
         return data;
     }
 
+    private boolean isForbidden(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LambdaInvocationException && ((LambdaInvocationException) cause).getStatusCode() == 403) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String recordError(List<String> errorMessages, String methodName, String message) {
         log.warn("{}> {}", methodName, message);
         errorMessages.add(message);
@@ -595,4 +805,20 @@ public abstract class AbstractCalculatorService<T> {
     @NotNull
     abstract T buildRecord(TransformRequest req, Map<String, DynamicTypeValue> outputRow);
 
+
+    /**
+     * The rows of the source data, and the download to close once they have been processed (if S3 sourced).
+     */
+    @Value
+    private static class RowSource implements Closeable {
+        Iterator<SourceRow> rows;
+        Closeable closeable;
+
+        @Override
+        public void close() throws IOException {
+            if (closeable != null) {
+                closeable.close();
+            }
+        }
+    }
 }
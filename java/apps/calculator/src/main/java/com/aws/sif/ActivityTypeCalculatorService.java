@@ -34,8 +34,8 @@ public class ActivityTypeCalculatorService extends AbstractCalculatorService<Act
 
 
     @Inject
-    public ActivityTypeCalculatorService(Calculator calculator, S3Utils s3, Auditor auditor, Config config, ActivityTypeOutputWriter outputWriter, UsersClient usersClient, Gson gson) {
-        super(calculator, s3, auditor, config, outputWriter, usersClient, gson);
+    public ActivityTypeCalculatorService(Calculator calculator, S3Utils s3, Auditor auditor, Config config, ActivityTypeOutputWriter outputWriter, UsersClient usersClient, ResourcePrefetcher prefetcher, Gson gson) {
+        super(calculator, s3, auditor, config, outputWriter, usersClient, prefetcher, gson);
     }
 
     @NotNull
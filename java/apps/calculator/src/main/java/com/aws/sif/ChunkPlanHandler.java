@@ -0,0 +1,70 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.aws.sif.di.CalculatorComponent;
+import com.aws.sif.di.DaggerCalculatorComponent;
+import com.google.gson.GsonBuilder;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Plans the chunks of a source object, returning the chunk manifest for the orchestrator to fan out the calculator
+ * invocations from.
+ */
+@Slf4j
+public class ChunkPlanHandler implements RequestStreamHandler {
+
+    private static final CalculatorComponent component;
+
+    static {
+        component = DaggerCalculatorComponent.builder().build();
+    }
+
+    @Inject
+    @Setter
+    public ChunkPlanner chunkPlanner;
+
+    public ChunkPlanHandler() {
+        component.inject(this);
+    }
+
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context) throws IOException {
+        log.debug("handleRequest> in>");
+
+        var gson = new GsonBuilder().create();
+
+        try (var reader = new InputStreamReader(inputStream, StandardCharsets.US_ASCII)) {
+            var request = gson.fromJson(reader, ChunkPlanRequest.class);
+            log.debug("handleRequest> in> request:{}", request);
+
+            var result = chunkPlanner.plan(request);
+
+            outputStream.write(gson.toJson(result).getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            log.error("handleRequest> " + e.getMessage(), e);
+            throw e;
+        }
+    }
+}
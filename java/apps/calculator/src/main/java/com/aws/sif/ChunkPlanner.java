@@ -0,0 +1,218 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import com.typesafe.config.Config;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Plans the chunks a large source object is to be processed as. Splitting purely by size results in chunks of very
+ * different evaluation cost where the length of rows varies across the object, the invocation with the most rows
+ * determining the execution's wall time. Instead the object is sampled at evenly spaced windows to estimate the cost
+ * of each region (the number of rows, and to a lesser extent the bytes to parse), and the object is split into the
+ * same number of chunks as by size but of roughly equal estimated cost.
+ * <p>
+ * Each chunk ends on a line break, so that the chunks are aligned to records without relying on S3 Select scan range
+ * semantics. As line breaks within quoted CSV fields cannot be told apart without reading from the start of the
+ * object, a CSV chunk may end within a record, in which case the record is read by the chunk it started in as usual.
+ * <p>
+ * Compressed source data cannot be split other than at block boundaries, which are not known without decompressing
+ * the object, therefore it is planned as a single chunk.
+ */
+@Slf4j
+public class ChunkPlanner {
+
+    // the least a byte is estimated to cost, so that regions without any rows sampled (with no cost per KiB) still have
+    // a cost to apportion, rather than all cuts collapsing to their start
+    private static final double MIN_COST_PER_BYTE = 1e-9;
+
+    private final S3AsyncClient s3;
+    private final long defaultChunkSize;
+    private final int samples;
+    private final int sampleSize;
+    private final int alignmentWindow;
+    private final double costPerRow;
+    private final double costPerKiB;
+
+    @Inject
+    public ChunkPlanner(S3AsyncClient s3, Config config) {
+        this.s3 = s3;
+        this.defaultChunkSize = config.getBytes("calculator.chunks.plan.chunkSize");
+        this.samples = config.getInt("calculator.chunks.plan.samples");
+        this.sampleSize = config.getBytes("calculator.chunks.plan.sampleSize").intValue();
+        this.alignmentWindow = config.getBytes("calculator.chunks.plan.alignmentWindow").intValue();
+        this.costPerRow = config.getDouble("calculator.chunks.cost.perRow");
+        this.costPerKiB = config.getDouble("calculator.chunks.cost.perKiB");
+    }
+
+    public ChunkManifest plan(@NotNull ChunkPlanRequest req) {
+        log.debug("plan> in> req:{}", req);
+
+        var location = req.getSourceDataLocation();
+        var chunkSize = req.getChunkSize() != null ? req.getChunkSize() : defaultChunkSize;
+        try {
+            var chunks = plan(new S3ObjectRangeReader(s3, location), location.effectiveCompression(), chunkSize);
+            var size = chunks.get(chunks.size() - 1).getRange()[1] + 1;
+            var result = new ChunkManifest(new S3Location(location.getBucket(), location.getKey()), size, chunks);
+            log.debug("plan> exit:{}", result);
+            return result;
+        } catch (Exception e) {
+            var message = String.format("Failed planning chunks of %s, error: %s", location, e.getMessage());
+            log.error("plan> " + message, e);
+            throw new RuntimeException(message, e);
+        }
+    }
+
+    List<SourceChunk> plan(ObjectRangeReader reader, SourceDataCompression compression, long chunkSize) {
+        long size = reader.size().join();
+        // an empty object is a single empty chunk, as there is nothing to sample
+        if (size == 0) {
+            return List.of(new SourceChunk(0, new long[]{0, -1}, 0));
+        }
+        var count = (int) Math.min((size + chunkSize - 1) / chunkSize, Integer.MAX_VALUE);
+        if (count == 1 || !SourceDataCompression.none.equals(compression)) {
+            return List.of(new SourceChunk(0, new long[]{0, size - 1}, cost(0, size)));
+        }
+
+        var regions = sample(reader, size);
+        var total = regions.get(regions.size() - 1).cumulativeCost;
+
+        // the positions at which the cumulative cost reaches each chunk's share, aligned to the next line break
+        var cuts = new ArrayList<CompletableFuture<Long>>(count - 1);
+        for (var i = 1; i < count; i++) {
+            var position = positionOf(regions, total * i / count);
+            cuts.add(reader.read(position, Math.min(position + alignmentWindow, size) - 1)
+                    .thenApply(window -> {
+                        var lineBreak = indexOfLineBreak(window);
+                        // no line break within the window (an unusually long row), so left to be aligned when read
+                        return lineBreak == -1 ? position : position + lineBreak;
+                    }));
+        }
+
+        var chunks = new ArrayList<SourceChunk>(count);
+        var start = 0L;
+        for (var cut : cuts) {
+            long end = join(cut);
+            // chunks containing no line break are merged into the following chunk
+            if (end < start || end >= size - 1) {
+                continue;
+            }
+            chunks.add(new SourceChunk(chunks.size(), new long[]{start, end}, costOf(regions, end + 1) - costOf(regions, start)));
+            start = end + 1;
+        }
+        chunks.add(new SourceChunk(chunks.size(), new long[]{start, size - 1}, total - costOf(regions, start)));
+
+        log.debug("plan> size:{}, count:{}, chunks:{}", size, count, chunks.size());
+        return chunks;
+    }
+
+    /**
+     * Divides the object into evenly sized regions, estimating the cost of each from a window at its start.
+     */
+    private List<Region> sample(ObjectRangeReader reader, long size) {
+        var regionCount = (int) Math.min(samples, Math.max(1, size / sampleSize));
+        var reads = new ArrayList<CompletableFuture<byte[]>>(regionCount);
+        for (var i = 0; i < regionCount; i++) {
+            var start = size * i / regionCount;
+            var end = size * (i + 1) / regionCount;
+            reads.add(reader.read(start, Math.min(start + sampleSize, end) - 1));
+        }
+
+        var regions = new ArrayList<Region>(regionCount);
+        var cumulativeCost = 0d;
+        for (var i = 0; i < regionCount; i++) {
+            var start = size * i / regionCount;
+            var end = size * (i + 1) / regionCount;
+            var window = join(reads.get(i));
+            var costPerByte = Math.max(cost(countLineBreaks(window), window.length) / window.length, MIN_COST_PER_BYTE);
+            cumulativeCost += costPerByte * (end - start);
+            regions.add(new Region(start, end, costPerByte, cumulativeCost));
+        }
+        return regions;
+    }
+
+    private double cost(long rows, long bytes) {
+        return rows * costPerRow + bytes / 1024d * costPerKiB;
+    }
+
+    /**
+     * The estimated cost of the bytes prior to the position.
+     */
+    private double costOf(List<Region> regions, long position) {
+        for (var region : regions) {
+            if (position < region.end) {
+                return region.cumulativeCost - (region.end - position) * region.costPerByte;
+            }
+        }
+        return regions.get(regions.size() - 1).cumulativeCost;
+    }
+
+    /**
+     * The position at which the estimated cost of the bytes prior to it reaches the cost.
+     */
+    private long positionOf(List<Region> regions, double cost) {
+        var priorCost = 0d;
+        for (var region : regions) {
+            if (cost <= region.cumulativeCost) {
+                return region.start + (long) ((cost - priorCost) / region.costPerByte);
+            }
+            priorCost = region.cumulativeCost;
+        }
+        return regions.get(regions.size() - 1).end;
+    }
+
+    private static int countLineBreaks(byte[] bytes) {
+        var count = 0;
+        for (var b : bytes) {
+            if (b == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int indexOfLineBreak(byte[] bytes) {
+        for (var i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    @Value
+    private static class Region {
+        long start;
+        long end;
+        double costPerByte;
+        double cumulativeCost;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * The responses of each chunk of a multi-chunk request, in the order the chunks were requested.
+ */
+@ToString(callSuper = true)
+public class ChunksTransformResponse extends TransformResponse {
+
+	@Getter
+	private List<S3TransformResponse> chunks;
+
+	public ChunksTransformResponse(List<S3TransformResponse> chunks) {
+		this.chunks = chunks;
+		this.noActivitiesProcessed = chunks.stream().allMatch(TransformResponse::isNoActivitiesProcessed);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import de.siegmar.fastcsv.reader.CsvReader;
+import de.siegmar.fastcsv.reader.CsvRow;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses CSV source data into rows, as the equivalent JSON lines would be parsed by {@link InputRowParser}. The header
+ * is mapped to the fields referenced by the transform's parameters and unique key once, with only those fields being
+ * put into each row. As with JSON lines all fields are required to build the row identifier if no unique key is
+ * defined.
+ * <p>
+ * Quoted fields are unquoted, and empty fields remain empty, leaving the same quoting and empty value semantics to be
+ * applied when the rows are marshalled as for JSON lines.
+ */
+@Slf4j
+class CsvRowParser {
+
+    private final List<TransformParameter> parameters;
+    private final List<String> uniqueKeys;
+
+    CsvRowParser(List<TransformParameter> parameters, List<String> uniqueKeys) {
+        this.parameters = parameters;
+        this.uniqueKeys = uniqueKeys;
+    }
+
+    /**
+     * Parses the rows of the CSV read by <code>reader</code>. If <code>headers</code> are not provided then they are
+     * read from the first record.
+     */
+    Iterator<SourceRow> rows(Reader reader, List<String> headers) {
+        var records = CsvReader.builder().build(reader).iterator();
+        if (headers == null) {
+            headers = records.hasNext() ? records.next().getFields() : List.of();
+        }
+        log.debug("rows> headers:{}", headers);
+
+        var allHeaders = headers;
+        var projected = uniqueKeys != null && !uniqueKeys.isEmpty();
+        var columns = projected ? columns(allHeaders) : null;
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public SourceRow next() {
+                var record = records.next();
+                var row = projected ? project(record, columns) : allFields(record, allHeaders);
+                return new SourceRow(row, () -> allFields(record, allHeaders));
+            }
+        };
+    }
+
+    /**
+     * The columns of the referenced fields. Where a header is duplicated its first column is used.
+     */
+    private Map<String, Integer> columns(List<String> headers) {
+        var referenced = new HashSet<>(uniqueKeys);
+        if (parameters != null) {
+            parameters.forEach(p -> referenced.add(p.getKey()));
+        }
+        var columns = new HashMap<String, Integer>();
+        for (var i = 0; i < headers.size(); i++) {
+            if (referenced.contains(headers.get(i))) {
+                columns.putIfAbsent(headers.get(i), i);
+            }
+        }
+        return columns;
+    }
+
+    private Map<String, String> project(CsvRow record, Map<String, Integer> columns) {
+        var row = new HashMap<String, String>((int) (columns.size() / 0.75f) + 1);
+        // fields missing from short records are absent from the row
+        columns.forEach((name, column) -> {
+            if (column < record.getFieldCount()) {
+                row.put(name, record.getField(column));
+            }
+        });
+        return row;
+    }
+
+    private Map<String, String> allFields(CsvRow record, List<String> headers) {
+        var row = new LinkedHashMap<String, String>();
+        for (var i = 0; i < headers.size() && i < record.getFieldCount(); i++) {
+            row.putIfAbsent(headers.get(i), record.getField(i));
+        }
+        return row;
+    }
+}
@@ -17,6 +17,7 @@ import com.aws.sif.audits.Auditor;
 import com.aws.sif.execution.Calculator;
 import com.aws.sif.execution.DynamicTypeValue;
 import com.aws.sif.execution.NullValue;
+import com.aws.sif.execution.ResourcePrefetcher;
 import com.aws.sif.execution.output.DataTypeOutputWriter;
 import com.aws.sif.execution.output.OutputType;
 import com.aws.sif.resources.users.UsersClient;
@@ -34,8 +35,8 @@ import java.util.stream.Collectors;
 public class DataTypeCalculatorService extends AbstractCalculatorService<DataTypeRecord> {
 
     @Inject
-    public DataTypeCalculatorService(Calculator calculator, S3Utils s3, Auditor auditor, Config config, DataTypeOutputWriter outputWriter, UsersClient usersClient, Gson gson) {
-        super(calculator, s3, auditor, config, outputWriter, usersClient, gson);
+    public DataTypeCalculatorService(Calculator calculator, S3Utils s3, Auditor auditor, Config config, DataTypeOutputWriter outputWriter, UsersClient usersClient, ResourcePrefetcher prefetcher, Gson gson) {
+        super(calculator, s3, auditor, config, outputWriter, usersClient, prefetcher, gson);
     }
 
     @NotNull
@@ -17,6 +17,10 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import com.aws.sif.di.CalculatorComponent;
 import com.aws.sif.di.DaggerCalculatorComponent;
+import com.aws.sif.lambdaInvoker.LambdaInvocationLimiters;
+import com.aws.sif.resources.NegativeCaches;
+import com.aws.sif.resources.ResourcesRepository;
+import com.aws.sif.resources.referenceDatasets.IndexStore;
 import com.google.gson.GsonBuilder;
 import com.typesafe.config.Config;
 import lombok.Setter;
@@ -51,6 +55,22 @@ public class HandlerStream implements RequestStreamHandler {
     @Setter
     public Config config;
 
+    @Inject
+    @Setter
+    public LambdaInvocationLimiters lambdaInvocationLimiters;
+
+    @Inject
+    @Setter
+    public ResourcesRepository resourcesRepository;
+
+    @Inject
+    @Setter
+    public NegativeCaches negativeCaches;
+
+    @Inject
+    @Setter
+    public IndexStore indexStore;
+
     public HandlerStream() {
         // As AWS Lambda manages the creation of this handler class and not Dagger, this technique registers
         // this object with Dagger which then allows it to inject its dependencies by Dagger.
@@ -91,6 +111,12 @@ public class HandlerStream implements RequestStreamHandler {
         } catch (InterruptedException e) {
             log.error("handleRequest> " + e.getMessage(), e);
             throw new RuntimeException(e);
+        } finally {
+            // any mappings still buffered must be written before the function is frozen
+            resourcesRepository.flush().join();
+            lambdaInvocationLimiters.publishMetrics();
+            negativeCaches.publishMetrics();
+            indexStore.publishMetrics();
         }
 
     }
@@ -0,0 +1,103 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses JSON lines input rows into their field values, as a <code>Map&lt;String, String&gt;</code> would be by Gson,
+ * but streaming only the fields referenced by the transform's parameters and unique key into the map. All other fields
+ * are skipped without being materialized.
+ * <p>
+ * If no unique key is defined then the row identifier is built from all field values, in which case all fields are
+ * parsed.
+ */
+class InputRowParser {
+
+    private final Set<String> fields;
+    private final int expectedSize;
+
+    InputRowParser(List<TransformParameter> parameters, List<String> uniqueKeys) {
+        if (uniqueKeys == null || uniqueKeys.isEmpty()) {
+            this.fields = null;
+            this.expectedSize = 16;
+        } else {
+            this.fields = new HashSet<>(uniqueKeys);
+            if (parameters != null) {
+                parameters.forEach(p -> fields.add(p.getKey()));
+            }
+            this.expectedSize = fields.size();
+        }
+    }
+
+    /**
+     * Returns the (projected) fields of the line, or null if the line is empty.
+     */
+    Map<String, String> parse(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try (var reader = new JsonReader(new StringReader(line))) {
+            reader.setLenient(true);
+
+            Map<String, String> row = (fields == null) ? new LinkedHashMap<>() : new HashMap<>((int) (expectedSize / 0.75f) + 1);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                var name = reader.nextName();
+                if (fields != null && !fields.contains(name)) {
+                    reader.skipValue();
+                    continue;
+                }
+                if (row.containsKey(name)) {
+                    throw new JsonSyntaxException("duplicate key: " + name);
+                }
+                row.put(name, nextValue(reader));
+            }
+            reader.endObject();
+
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("JSON document was not fully consumed.");
+            }
+            return row;
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private String nextValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(reader.nextBoolean());
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            default:
+                throw new JsonSyntaxException("Expected a string but was " + reader.peek() + reader.getPath());
+        }
+    }
+}
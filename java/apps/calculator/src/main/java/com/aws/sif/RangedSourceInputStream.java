@@ -0,0 +1,402 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import de.siegmar.fastcsv.reader.CsvReader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Presents the records of a chunk of an object, identified by its start and end byte (both inclusive), as a single
+ * stream, having read the chunk as multiple ranges in parallel. At most <code>parallelism</code> parts are buffered at
+ * any one time.
+ * <p>
+ * The chunk boundaries are aligned to records the same way as an S3 Select scan range: a record belongs to the chunk it
+ * starts in. Therefore if the chunk does not start at the beginning of a record the partial record is skipped, and the
+ * last record is read beyond the end of the chunk until its delimiter (or the end of the object).
+ * <p>
+ * For JSON lines each line is a record. For CSV, line breaks within quoted fields do not delimit records. The quoting
+ * state is tracked from the start of the chunk. However, whether the start of a chunk (other than the first) lies within
+ * a quoted field cannot be known without reading the object from its beginning, therefore the first record is taken to
+ * start after the first line break from which the following records parse with the same number of fields as the
+ * header. The header, being the first record of the object, is read separately and excluded from the stream.
+ * <p>
+ * Compressed source data cannot be aligned to records until decompressed, therefore its chunks are read as exactly the
+ * blocks (e.g. gzip members or zstd frames) the chunk spans.
+ */
+@Slf4j
+class RangedSourceInputStream extends InputStream {
+
+    // only the remainder of the last record is read beyond the end of the chunk, which is expected to be far shorter
+    private static final int OVERRUN_PART_SIZE = 64 * 1024;
+    // the number of bytes examined, and complete records parsed, to find where the first record of a csv chunk starts
+    private static final int ALIGNMENT_WINDOW = 64 * 1024;
+    private static final int ALIGNMENT_RECORDS = 8;
+
+    private enum Records {
+        LINES,
+        CSV,
+        // not aligned, as compressed
+        BLOCKS
+    }
+
+    private final ObjectRangeReader reader;
+    private final long partSize;
+    private final int parallelism;
+    private final Records records;
+    private final long length;
+    private final long end;
+    private final Deque<CompletableFuture<byte[]>> parts = new ArrayDeque<>();
+    private long nextPartStart;
+
+    private byte[] current = new byte[0];
+    private int offset;
+    // the position within the object of current[offset]
+    private long position;
+    private boolean skipping;
+    private boolean quoted;
+    private boolean finished;
+    private List<String> headers;
+
+    RangedSourceInputStream(ObjectRangeReader reader, Long startByte, Long endByte, long partSize, int parallelism) throws IOException {
+        this(reader, startByte, endByte, partSize, parallelism, Records.LINES);
+    }
+
+    private RangedSourceInputStream(ObjectRangeReader reader, Long startByte, Long endByte, long partSize, int parallelism, Records records) throws IOException {
+        this.reader = reader;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+        this.records = records;
+        this.length = join(reader.size());
+
+        // as with S3 Select, the whole object is read unless both the start and end are provided
+        var chunked = startByte != null && endByte != null && endByte > 0;
+        var start = chunked ? startByte : 0;
+        this.end = chunked ? Math.min(endByte, length - 1) : length - 1;
+
+        // the byte prior to the chunk is read to determine whether the chunk starts at the beginning of a record
+        this.skipping = start > 0 && records != Records.BLOCKS;
+        this.nextPartStart = skipping ? start - 1 : start;
+        this.position = nextPartStart;
+
+        if (records == Records.CSV) {
+            var headerLength = readHeader(start);
+            if (start <= headerLength) {
+                // the chunk starts within, or immediately after, the header
+                skipping = false;
+                offset = headerLength;
+                position = headerLength;
+                start = headerLength;
+            }
+        }
+
+        this.finished = start > end;
+        log.debug("RangedSourceInputStream> length:{}, start:{}, end:{}, records:{}", length, start, end, records);
+        if (!finished) {
+            fillParts();
+        }
+    }
+
+    /**
+     * A stream of the records of a chunk of a CSV object, excluding its header.
+     */
+    static RangedSourceInputStream csv(ObjectRangeReader reader, Long startByte, Long endByte, long partSize, int parallelism) throws IOException {
+        return new RangedSourceInputStream(reader, startByte, endByte, partSize, parallelism, Records.CSV);
+    }
+
+    /**
+     * A stream of exactly the bytes of a chunk of an object, such as the compressed blocks of compressed source data.
+     */
+    static RangedSourceInputStream blocks(ObjectRangeReader reader, Long startByte, Long endByte, long partSize, int parallelism) throws IOException {
+        return new RangedSourceInputStream(reader, startByte, endByte, partSize, parallelism, Records.BLOCKS);
+    }
+
+    /**
+     * The fields of the CSV header.
+     */
+    List<String> getHeaders() {
+        return headers;
+    }
+
+    private int readHeader(long start) throws IOException {
+        if (length == 0) {
+            headers = List.of();
+            return 0;
+        }
+        // the header is expected to be short, so unless reading the first chunk only enough to include it is read
+        var first = join(reader.read(0, Math.min(start == 0 ? Math.max(partSize, OVERRUN_PART_SIZE) : OVERRUN_PART_SIZE, length) - 1));
+        var headerEnd = indexOfRecordEnd(first, 0, first.length, false);
+        if (headerEnd == -1 && first.length < length) {
+            throw new IOException(String.format("CSV header exceeds %d bytes", first.length));
+        }
+        var headerLength = headerEnd == -1 ? first.length : headerEnd + 1;
+        quoted = false;
+
+        try (var header = CsvReader.builder().build(new String(first, 0, headerLength, StandardCharsets.UTF_8))) {
+            var it = header.iterator();
+            headers = it.hasNext() ? it.next().getFields() : List.of();
+        }
+
+        if (start <= headerLength) {
+            // the chunk continues from the header, so what was read beyond it is reused
+            current = first;
+            nextPartStart = first.length;
+        }
+        return headerLength;
+    }
+
+    private void fillParts() {
+        while (parts.size() < parallelism && nextPartStart <= end) {
+            var partEnd = Math.min(nextPartStart + partSize - 1, end);
+            parts.add(reader.read(nextPartStart, partEnd));
+            nextPartStart = partEnd + 1;
+        }
+    }
+
+    private boolean advance() throws IOException {
+        if (parts.isEmpty()) {
+            if (nextPartStart >= length || records == Records.BLOCKS) {
+                return false;
+            }
+            // the last record spans beyond the end of the chunk, so is only read once known to be needed
+            var partEnd = Math.min(nextPartStart + OVERRUN_PART_SIZE - 1, length - 1);
+            parts.add(reader.read(nextPartStart, partEnd));
+            nextPartStart = partEnd + 1;
+        }
+        current = join(parts.poll());
+        offset = 0;
+        fillParts();
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!finished) {
+            if (offset == current.length) {
+                if (!advance()) {
+                    finished = true;
+                    break;
+                }
+                continue;
+            }
+
+            if (skipping) {
+                if (records == Records.CSV) {
+                    alignToCsvRecord();
+                    continue;
+                }
+                // skip the remainder of the line that started within the previous chunk
+                var lineBreak = indexOfLineBreak(current, offset, current.length);
+                var skipped = (lineBreak == -1 ? current.length : lineBreak + 1) - offset;
+                offset += skipped;
+                position += skipped;
+                skipping = lineBreak == -1;
+                // no record starts within the chunk
+                finished = position > end;
+                continue;
+            }
+
+            var read = Math.min(len, current.length - offset);
+            // once past the end of the chunk, stop at the delimiter that ends the last record
+            int recordEnd;
+            if (records == Records.BLOCKS) {
+                recordEnd = -1;
+            } else if (records == Records.CSV) {
+                // the quoting state is tracked across all records, not just the last
+                recordEnd = indexOfRecordEnd(current, offset, offset + read, true);
+            } else if (position + read - 1 >= end) {
+                recordEnd = indexOfLineBreak(current, offset + (int) Math.max(0, end - position), offset + read);
+            } else {
+                recordEnd = -1;
+            }
+            if (recordEnd != -1) {
+                read = recordEnd + 1 - offset;
+                finished = true;
+            }
+            System.arraycopy(current, offset, b, off, read);
+            offset += read;
+            position += read;
+            return read;
+        }
+        return -1;
+    }
+
+    /**
+     * The bytes remaining of the current part, or 1 if it has been read but further parts are to be read. Readers
+     * such as {@link java.util.zip.GZIPInputStream} only continue on to subsequent blocks if further bytes are
+     * reported as available.
+     */
+    @Override
+    public int available() {
+        if (offset < current.length) {
+            return current.length - offset;
+        }
+        return !finished && !parts.isEmpty() ? 1 : 0;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        parts.forEach(p -> p.cancel(true));
+        parts.clear();
+    }
+
+    private void alignToCsvRecord() throws IOException {
+        // gather a window starting from the current position, which may span parts
+        var windowStart = position;
+        var window = new ByteArrayOutputStream();
+        window.write(current, offset, current.length - offset);
+        while (window.size() < ALIGNMENT_WINDOW && advance()) {
+            window.write(current, 0, current.length);
+        }
+        var bytes = window.toByteArray();
+        var toEndOfObject = parts.isEmpty() && nextPartStart >= length;
+        current = bytes;
+
+        var recordStart = -1;
+        var firstLineStart = -1;
+        for (var i = indexOfLineBreak(bytes, 0, bytes.length); i != -1; i = indexOfLineBreak(bytes, i + 1, bytes.length)) {
+            if (firstLineStart == -1) {
+                firstLineStart = i + 1;
+            }
+            // a line break ending the object is followed by no records, so is where the next record would start
+            if ((toEndOfObject && i + 1 == bytes.length) || isCsvRecordStart(bytes, i + 1)) {
+                recordStart = i + 1;
+                break;
+            }
+        }
+        if (recordStart == -1) {
+            // no line break is followed by consistent records, therefore assume none are quoted
+            recordStart = firstLineStart;
+        }
+
+        if (recordStart == -1) {
+            // no line breaks within the window, so continue searching beyond it
+            offset = bytes.length;
+            position = windowStart + bytes.length;
+        } else {
+            log.debug("alignToCsvRecord> record start:{}", windowStart + recordStart);
+            offset = recordStart;
+            position = windowStart + recordStart;
+            skipping = false;
+            quoted = false;
+        }
+        // no record starts within the chunk
+        finished = position > end;
+    }
+
+    /**
+     * Whether parsing from <code>from</code> results in records with the same number of fields as the header, without
+     * encountering quotes that are invalid outside of quoted fields.
+     */
+    private boolean isCsvRecordStart(byte[] bytes, int from) {
+        var fields = 1;
+        var records = 0;
+        var inQuotes = false;
+        var fieldStart = true;
+        var afterQuote = false;
+        for (var i = from; i < bytes.length; i++) {
+            var c = bytes[i];
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 < bytes.length && bytes[i + 1] == '"') {
+                        i++;
+                    } else {
+                        inQuotes = false;
+                        afterQuote = true;
+                    }
+                }
+                continue;
+            }
+            if (c == '"') {
+                if (!fieldStart) {
+                    return false;
+                }
+                inQuotes = true;
+                fieldStart = false;
+            } else if (c == ',') {
+                fields++;
+                fieldStart = true;
+                afterQuote = false;
+            } else if (c == '\n') {
+                if (fields != headers.size()) {
+                    return false;
+                }
+                if (++records == ALIGNMENT_RECORDS) {
+                    return true;
+                }
+                fields = 1;
+                fieldStart = true;
+                afterQuote = false;
+            } else if (c != '\r') {
+                if (afterQuote) {
+                    return false;
+                }
+                fieldStart = false;
+            }
+        }
+        return records > 0 || (!inQuotes && fields == headers.size());
+    }
+
+    /**
+     * The index of the line break that delimits the record being read, being the first unquoted line break (at or
+     * beyond the end of the chunk if <code>toEnd</code>).
+     */
+    private int indexOfRecordEnd(byte[] bytes, int from, int to, boolean toEnd) {
+        for (var i = from; i < to; i++) {
+            if (bytes[i] == '"') {
+                quoted = !quoted;
+            } else if (bytes[i] == '\n' && !quoted && (!toEnd || position + (i - offset) >= end)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfLineBreak(byte[] bytes, int from, int to) {
+        for (var i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException(String.format("Failed reading source data, error: %s", cause.getMessage()), cause);
+        }
+    }
+}
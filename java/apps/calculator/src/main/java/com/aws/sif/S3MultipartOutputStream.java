@@ -0,0 +1,180 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Streams what is written to an S3 object as it is written, each part being uploaded as part of a multipart upload
+ * as soon as it is full, rather than once all has been written. No more than <code>maxPartsInFlight</code> parts are
+ * uploaded at any one time, the writer waiting for the oldest to complete otherwise, therefore memory is bounded
+ * regardless of the size of the object.
+ * <p>
+ * Objects smaller than a part are uploaded by a single PutObject once completed. If a part fails to upload, or the
+ * stream is aborted, the multipart upload is aborted.
+ */
+@Slf4j
+public class S3MultipartOutputStream extends OutputStream {
+
+    private static final int INITIAL_PART_BUFFER_SIZE = 64 * 1024;
+
+    private final S3AsyncClient s3;
+    private final S3Location location;
+    private final Map<String, String> metadata;
+    private final int partSize;
+    private final int maxPartsInFlight;
+    private final Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+    private final long started = System.currentTimeMillis();
+
+    private S3MultipartUpload upload;
+    private byte[] part;
+    private int partLength;
+    private int partNumber;
+    private long bytes;
+    private CompletableFuture<S3Upload> result;
+
+    S3MultipartOutputStream(S3AsyncClient s3, S3Location location, Map<String, String> metadata, int partSize, int maxPartsInFlight) {
+        this.s3 = s3;
+        this.location = location;
+        this.metadata = metadata;
+        this.partSize = partSize;
+        this.maxPartsInFlight = maxPartsInFlight;
+        // grown as written to, so that small outputs do not hold a whole part
+        this.part = new byte[Math.min(partSize, INITIAL_PART_BUFFER_SIZE)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (result != null) {
+            throw new IOException(String.format("Upload to %s has already been completed", location));
+        }
+        while (len > 0) {
+            var n = Math.min(len, partSize - partLength);
+            if (partLength + n > part.length) {
+                part = Arrays.copyOf(part, Math.min(partSize, Math.max(part.length * 2, partLength + n)));
+            }
+            System.arraycopy(b, off, part, partLength, n);
+            partLength += n;
+            bytes += n;
+            off += n;
+            len -= n;
+            if (partLength == partSize) {
+                uploadPart();
+            }
+        }
+    }
+
+    private void uploadPart() throws IOException {
+        if (upload == null) {
+            upload = S3MultipartUpload.create(s3, location, metadata);
+        }
+        // memory is bounded by waiting for the oldest part in flight to complete
+        while (inFlight.size() >= maxPartsInFlight || (!inFlight.isEmpty() && inFlight.peek().isDone())) {
+            try {
+                inFlight.poll().join();
+            } catch (CompletionException e) {
+                abort();
+                var cause = e.getCause() != null ? e.getCause() : e;
+                throw new IOException(String.format("Failed uploading to bucket '%s' key '%s', error: %s",
+                        location.getBucket(), location.getKey(), cause.getMessage()), cause);
+            }
+        }
+        inFlight.add(upload.uploadPart(++partNumber, Arrays.copyOf(part, partLength)));
+        partLength = 0;
+    }
+
+    /**
+     * Uploads what remains to be written, completing the upload.
+     *
+     * @return the upload, in flight
+     */
+    public CompletableFuture<S3Upload> complete() {
+        if (result != null) {
+            return result;
+        }
+        log.debug("complete> in> location:{}, bytes:{}, parts:{}", location, bytes, partNumber);
+
+        if (upload == null) {
+            // smaller than a part, so uploaded as a single object
+            var putObj = PutObjectRequest.builder()
+                    .bucket(location.getBucket())
+                    .key(location.getKey())
+                    .metadata(metadata)
+                    .build();
+            result = S3Utils.failWithMessage(location, s3.putObject(putObj, AsyncRequestBody.fromBytes(Arrays.copyOf(part, partLength)))
+                    .thenApply(r -> new S3Upload(location, bytes, System.currentTimeMillis() - started, false)));
+        } else {
+            if (partLength > 0) {
+                inFlight.add(upload.uploadPart(++partNumber, Arrays.copyOf(part, partLength)));
+            }
+            var completing = upload;
+            result = S3Utils.failWithMessage(location, CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                    .thenCompose(v -> completing.complete())
+                    .whenComplete((r, e) -> {
+                        if (e != null) {
+                            completing.abort();
+                        }
+                    })
+                    .thenApply(r -> new S3Upload(location, bytes, System.currentTimeMillis() - started, true)));
+        }
+        part = null;
+        inFlight.clear();
+        return result;
+    }
+
+    /**
+     * Abandons the upload, aborting the multipart upload if any parts have been uploaded.
+     */
+    public void abort() {
+        log.debug("abort> in> location:{}", location);
+        if (upload != null) {
+            upload.abort();
+            upload = null;
+        }
+        if (result == null) {
+            result = CompletableFuture.failedFuture(new IOException(String.format("Upload to %s was aborted", location)));
+        }
+        part = null;
+        inFlight.clear();
+    }
+
+    /**
+     * Completes the upload (if not already), waiting for it to complete.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            complete().join();
+        } catch (CompletionException e) {
+            throw new IOException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e.getCause());
+        }
+    }
+}
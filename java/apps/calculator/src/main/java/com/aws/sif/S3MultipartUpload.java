@@ -0,0 +1,106 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A multipart upload of an S3 object, its parts being uploaded independently (and concurrently) once the upload has
+ * been created. The upload must either be completed, or aborted so that the parts uploaded are not retained.
+ */
+@Slf4j
+class S3MultipartUpload {
+
+    private final S3AsyncClient s3;
+    private final S3Location location;
+    private final CompletableFuture<String> uploadId;
+    private final ConcurrentLinkedQueue<CompletedPart> parts = new ConcurrentLinkedQueue<>();
+
+    private S3MultipartUpload(S3AsyncClient s3, S3Location location, CompletableFuture<String> uploadId) {
+        this.s3 = s3;
+        this.location = location;
+        this.uploadId = uploadId;
+    }
+
+    static S3MultipartUpload create(S3AsyncClient s3, S3Location location, Map<String, String> metadata) {
+        log.debug("create> in> location:{}", location);
+        var create = CreateMultipartUploadRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .metadata(metadata)
+                .build();
+        return new S3MultipartUpload(s3, location, s3.createMultipartUpload(create).thenApply(r -> r.uploadId()));
+    }
+
+    /**
+     * Uploads a part, numbered from 1. All parts other than the last must be at least 5 MiB.
+     */
+    CompletableFuture<Void> uploadPart(int partNumber, byte[] bytes) {
+        log.debug("uploadPart> in> location:{}, partNumber:{}, bytes:{}", location, partNumber, bytes.length);
+        return uploadId.thenCompose(id -> s3.uploadPart(UploadPartRequest.builder()
+                        .bucket(location.getBucket())
+                        .key(location.getKey())
+                        .uploadId(id)
+                        .partNumber(partNumber)
+                        .contentLength((long) bytes.length)
+                        .build(), AsyncRequestBody.fromBytes(bytes)))
+                .thenAccept(r -> parts.add(CompletedPart.builder().partNumber(partNumber).eTag(r.eTag()).build()));
+    }
+
+    /**
+     * Completes the upload once all its parts have been uploaded.
+     */
+    CompletableFuture<CompleteMultipartUploadResponse> complete() {
+        log.debug("complete> in> location:{}, parts:{}", location, parts.size());
+        var sorted = parts.stream().sorted(Comparator.comparing(CompletedPart::partNumber)).toList();
+        return uploadId.thenCompose(id -> s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .uploadId(id)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(sorted).build())
+                .build()));
+    }
+
+    CompletableFuture<Void> abort() {
+        log.debug("abort> in> location:{}", location);
+        if (uploadId.isCompletedExceptionally()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return uploadId.thenCompose(id -> s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(location.getBucket())
+                        .key(location.getKey())
+                        .uploadId(id)
+                        .build()))
+                .handle((r, e) -> {
+                    if (e != null) {
+                        log.warn("abort> failed aborting upload to {}, error: {}", location, e.getMessage());
+                    }
+                    return null;
+                });
+    }
+}
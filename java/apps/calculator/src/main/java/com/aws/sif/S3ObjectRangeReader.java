@@ -0,0 +1,60 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.BytesWrapper;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads byte ranges of an S3 object using ranged GetObject requests.
+ */
+@Slf4j
+class S3ObjectRangeReader implements ObjectRangeReader {
+
+    private final S3AsyncClient s3;
+    private final S3Location location;
+
+    S3ObjectRangeReader(S3AsyncClient s3, S3Location location) {
+        this.s3 = s3;
+        this.location = location;
+    }
+
+    @Override
+    public CompletableFuture<Long> size() {
+        log.debug("size> in> location:{}", location);
+        var head = HeadObjectRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .build();
+        return s3.headObject(head).thenApply(HeadObjectResponse::contentLength);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> read(long start, long end) {
+        log.debug("read> in> location:{}, start:{}, end:{}", location, start, end);
+        var get = GetObjectRequest.builder()
+                .bucket(location.getBucket())
+                .key(location.getKey())
+                .range(String.format("bytes=%d-%d", start, end))
+                .build();
+        return s3.getObject(get, AsyncResponseTransformer.toBytes()).thenApply(BytesWrapper::asByteArrayUnsafe);
+    }
+}
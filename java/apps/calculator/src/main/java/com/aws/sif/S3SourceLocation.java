@@ -24,4 +24,10 @@ public class S3SourceLocation extends S3Location {
     // used if chunking only
     Long startByte;
     Long endByte;
+    // optional, inferred from the key's extension if not provided
+    SourceDataCompression compression;
+
+    public SourceDataCompression effectiveCompression() {
+        return compression != null ? compression : SourceDataCompression.fromKey(getKey());
+    }
 }
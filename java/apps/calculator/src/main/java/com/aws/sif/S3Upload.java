@@ -0,0 +1,38 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An artifact uploaded to S3, along with how long its upload took.
+ */
+@Value
+public class S3Upload {
+    S3Location location;
+    long bytes;
+    long durationInMillis;
+    boolean multipart;
+
+    /**
+     * Combines the uploads into a single future, completed once all have completed or exceptionally once any fails.
+     */
+    public static CompletableFuture<List<S3Upload>> allOf(List<CompletableFuture<S3Upload>> uploads) {
+        return CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new))
+                .thenApply(v -> uploads.stream().map(CompletableFuture::join).toList());
+    }
+}
@@ -13,81 +13,150 @@
 
 package com.aws.sif;
 
+import com.typesafe.config.Config;
+import de.siegmar.fastcsv.reader.CsvReader;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
-import software.amazon.awssdk.core.async.SdkPublisher;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.*;
-import software.amazon.awssdk.services.s3.model.selectobjectcontenteventstream.DefaultRecords;
 
 import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class S3Utils {
 
+    private static final long HEADER_BLOCK_SIZE = 64 * 1024;
+
     private final S3AsyncClient s3;
+    private final int maxBufferedEvents;
+    private final String mode;
+    private final long partSize;
+    private final int parallelism;
+    private final long multipartThreshold;
+    private final long multipartPartSize;
+    private final int multipartParallelism;
+    private final int streamPartSize;
+    private final int streamMaxPartsInFlight;
 
     @Inject
-    public S3Utils(S3AsyncClient s3) {
+    public S3Utils(S3AsyncClient s3, Config config) {
         this.s3 = s3;
+        this.maxBufferedEvents = config.getInt("calculator.download.s3.maxBufferedEvents");
+        this.mode = config.getString("calculator.download.s3.mode");
+        this.partSize = config.getBytes("calculator.download.s3.range.partSize");
+        this.parallelism = config.getInt("calculator.download.s3.range.parallelism");
+        this.multipartThreshold = config.getBytes("calculator.upload.s3.multipart.threshold");
+        this.multipartPartSize = config.getBytes("calculator.upload.s3.multipart.partSize");
+        this.multipartParallelism = config.getInt("calculator.upload.s3.multipart.parallelism");
+        this.streamPartSize = config.getBytes("calculator.upload.s3.stream.partSize").intValue();
+        this.streamMaxPartsInFlight = config.getInt("calculator.upload.s3.stream.maxPartsInFlight");
     }
 
 
-    public String download(@NotNull S3SourceLocation req) {
-        log.debug("download> in> req:{}", req);
+    /**
+     * Streams the JSON lines of the source data (or the chunk of it identified by the start and end byte) as they are
+     * downloaded, rather than once the whole chunk has been downloaded. Depending on the configured mode the lines are
+     * either selected using S3 Select, or read as ranges and aligned to line boundaries locally. Compressed source data
+     * is decompressed by S3 Select if supported (gzip and bzip2 objects selected whole), otherwise locally as it is
+     * read. The returned reader must be closed, which cancels any outstanding requests.
+     */
+    public BufferedReader stream(@NotNull S3SourceLocation req) {
+        log.debug("stream> in> req:{}, mode:{}", req, mode);
+
+        var compression = req.effectiveCompression();
+        var selected = "select".equals(mode) && (SourceDataCompression.none.equals(compression)
+                || (!isChunked(req) && !SourceDataCompression.zstd.equals(compression)));
+        if (!selected) {
+            try {
+                var rangeReader = new S3ObjectRangeReader(s3, req);
+                InputStream source;
+                if (SourceDataCompression.none.equals(compression)) {
+                    source = new RangedSourceInputStream(rangeReader, req.getStartByte(), req.getEndByte(), partSize, parallelism);
+                } else {
+                    source = compression.decompress(RangedSourceInputStream.blocks(rangeReader, req.getStartByte(), req.getEndByte(), partSize, parallelism));
+                }
+                log.debug("stream> exit:");
+                return new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                var message = String.format("Failed downloading %s, error: %s", req, e.getMessage());
+                log.error("stream> " + message, e);
+                throw new RuntimeException(message, e);
+            }
+        }
 
-        var data = new StringBuilder();
+        var records = new SelectRecordsInputStream(maxBufferedEvents);
+        queryS3(s3, req, compression, records).whenComplete((r, e) -> {
+            if (e != null) {
+                log.error("stream> failed querying {}, error: {}", req, e.getMessage());
+                records.exceptionOccurred(e);
+            }
+        });
 
-        try {
-            var handler = new SelectObjectHandler();
+        log.debug("stream> exit:");
+        return new BufferedReader(new InputStreamReader(records, StandardCharsets.UTF_8));
+    }
 
-            var query = queryS3(s3, req, handler);
-            query.join();
+    /**
+     * Streams the CSV records of the source data (or the chunk of it identified by the start and end byte), along with
+     * the header of the object. CSV source data is always read as ranges, aligned to record boundaries locally taking
+     * quoted line breaks into account, as S3 Select cannot combine scan ranges with quoted record delimiters. Compressed
+     * source data is decompressed locally as it is read, with the header of the first chunk being its first record. The
+     * returned source must be closed, which cancels any outstanding requests.
+     */
+    public CsvSource streamCsv(@NotNull S3SourceLocation req) {
+        log.debug("streamCsv> in> req:{}", req);
 
-            for (var events : handler.receivedEvents) {
-                if (events instanceof DefaultRecords) {
-                    var defaultRecords = (DefaultRecords) events;
-                    var payload = defaultRecords.payload().asString(StandardCharsets.UTF_8);
-                    data.append(payload);
-                }
+        try {
+            var rangeReader = new S3ObjectRangeReader(s3, req);
+            var compression = req.effectiveCompression();
+            CsvSource result;
+            if (SourceDataCompression.none.equals(compression)) {
+                var source = RangedSourceInputStream.csv(rangeReader, req.getStartByte(), req.getEndByte(), partSize, parallelism);
+                result = new CsvSource(source.getHeaders(), new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8)));
+            } else {
+                var source = compression.decompress(RangedSourceInputStream.blocks(rangeReader, req.getStartByte(), req.getEndByte(), partSize, parallelism));
+                var headers = isChunked(req) && req.getStartByte() > 0 ? compressedCsvHeaders(rangeReader, compression) : null;
+                result = new CsvSource(headers, new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8)));
             }
+            log.debug("streamCsv> exit:{}", result.getHeaders());
+            return result;
         } catch (Exception e) {
-            var message = String.format("\"Failed downloading %s, error: %s",  req, e.getMessage() );
-            log.error("download> " + e.getMessage(), e);
+            var message = String.format("Failed downloading %s, error: %s", req, e.getMessage());
+            log.error("streamCsv> " + message, e);
             throw new RuntimeException(message, e);
         }
-
-        log.debug("download> exit:");
-        log.trace("download> data:{}", data);
-        return data.toString();
     }
 
-    public void upload(@NotNull S3Location req, String data) {
-        log.debug("upload> in> req:{}", req);
-        log.trace("upload> in> data:{}", data);
-
-        try {
-            var putObj = PutObjectRequest.builder()
-                    .bucket(req.getBucket())
-                    .key(req.getKey())
-                    .build();
+    private List<String> compressedCsvHeaders(ObjectRangeReader rangeReader, SourceDataCompression compression) throws IOException {
+        // the header is expected to be within the first block, so only the start of the object is read
+        try (var header = compression.decompress(RangedSourceInputStream.blocks(rangeReader, 0L, HEADER_BLOCK_SIZE - 1, HEADER_BLOCK_SIZE, 1));
+             var csv = CsvReader.builder().build(new InputStreamReader(header, StandardCharsets.UTF_8))) {
+            var it = csv.iterator();
+            return it.hasNext() ? it.next().getFields() : List.of();
+        }
+    }
 
-            var future = s3.putObject(putObj, AsyncRequestBody.fromString(data));
-            future.join();
+    private boolean isChunked(S3SourceLocation req) {
+        return req.getStartByte() != null && req.getEndByte() != null && req.getEndByte() > 0;
+    }
 
-        } catch (Exception e) {
-            var message = String.format("Failed uploading to bucket '%s' key '%s', error: %s",
-                    req.getBucket(), req.getKey(), e.getMessage() );
-            log.error("upload> " + message, e);
-            throw new RuntimeException(message, e);
-        }
+    public void upload(@NotNull S3Location req, String data) {
+        join(uploadAsync(req, data));
     }
 
 	public void upload(@NotNull S3Location req, Path path) {
@@ -95,54 +164,126 @@ public class S3Utils {
 	}
 
 	public void upload(@NotNull S3Location req, Path path, Map<String,String> metadata) {
-		log.debug("upload> in> req:{}", req);
-		log.trace("upload> in> Path:{}", path);
-
-		try {
-			var putObj = PutObjectRequest.builder()
-				.bucket(req.getBucket())
-				.key(req.getKey())
-				.metadata(metadata)
-				.build();
-
-			var future = s3.putObject(putObj, AsyncRequestBody.fromFile(path));
-			future.join();
-
-		} catch (Exception e) {
-			var message = String.format("Failed uploading to bucket '%s' key '%s', error: %s",
-				req.getBucket(), req.getKey(), e.getMessage() );
-			log.error("upload> " + message, e);
-			throw new RuntimeException(message, e);
-		}
+		join(uploadAsync(req, path, metadata));
 	}
 
-	public CompletableFuture<PutObjectResponse> uploadAsync(@NotNull S3Location req, Path path, Map<String,String> metadata) {
+    public CompletableFuture<S3Upload> uploadAsync(@NotNull S3Location req, String data) {
+        log.debug("uploadAsync> in> req:{}", req);
+        log.trace("uploadAsync> in> data:{}", data);
+
+        var started = System.currentTimeMillis();
+        var bytes = data.getBytes(StandardCharsets.UTF_8);
+        var putObj = PutObjectRequest.builder()
+                .bucket(req.getBucket())
+                .key(req.getKey())
+                .build();
+
+        return failWithMessage(req, s3.putObject(putObj, AsyncRequestBody.fromBytes(bytes))
+                .thenApply(r -> new S3Upload(req, bytes.length, System.currentTimeMillis() - started, false)));
+    }
+
+    /**
+     * Uploads the file without waiting for the upload to complete. Files of at least the multipart threshold are
+     * uploaded as multiple parts in parallel, no more than the multipart parallelism being read into memory at once.
+     */
+	public CompletableFuture<S3Upload> uploadAsync(@NotNull S3Location req, Path path, Map<String,String> metadata) {
 		log.debug("uploadAsync> in> req:{}", req);
 		log.trace("uploadAsync> in> Path:{}", path);
-        try{
-			var putObj = PutObjectRequest.builder()
+
+		var started = System.currentTimeMillis();
+		long size;
+		try {
+			size = Files.size(path);
+		} catch (IOException e) {
+			return failWithMessage(req, CompletableFuture.failedFuture(e));
+		}
+
+		if (size >= multipartThreshold) {
+			return failWithMessage(req, uploadMultipartAsync(req, path, metadata, size)
+				.thenApply(r -> new S3Upload(req, size, System.currentTimeMillis() - started, true)));
+		}
+
+		var putObj = PutObjectRequest.builder()
 			.bucket(req.getBucket())
 			.key(req.getKey())
 			.metadata(metadata)
 			.build();
 
-			CompletableFuture<PutObjectResponse> future = s3.putObject(putObj, AsyncRequestBody.fromFile(path));
+		return failWithMessage(req, s3.putObject(putObj, AsyncRequestBody.fromFile(path))
+			.thenApply(r -> new S3Upload(req, size, System.currentTimeMillis() - started, false)));
+	}
 
-			future.join();
-			return future;
-			} catch (Exception e) {
-				var message = String.format("Failed uploading to bucket '%s' key '%s', error: %s",
-					req.getBucket(), req.getKey(), e.getMessage() );
-				log.error("uploadAsync> " + message, e);
-				throw new RuntimeException(message, e);
+	private CompletableFuture<CompleteMultipartUploadResponse> uploadMultipartAsync(S3Location req, Path path, Map<String,String> metadata, long size) {
+		var upload = S3MultipartUpload.create(s3, req, metadata);
+		var partCount = (int) ((size + multipartPartSize - 1) / multipartPartSize);
+		var nextPart = new AtomicInteger();
+
+		// each worker uploads the next part not yet started once its previous part has been uploaded
+		var workers = new CompletableFuture<?>[Math.min(multipartParallelism, partCount)];
+		for (var i = 0; i < workers.length; i++) {
+			workers[i] = uploadParts(upload, path, size, partCount, nextPart);
+		}
+
+		return CompletableFuture.allOf(workers)
+			.thenCompose(v -> upload.complete())
+			.whenComplete((r, e) -> {
+				if (e != null) {
+					upload.abort();
+				}
+			});
+	}
+
+	private CompletableFuture<Void> uploadParts(S3MultipartUpload upload, Path path, long size, int partCount, AtomicInteger nextPart) {
+		var part = nextPart.getAndIncrement();
+		if (part >= partCount) {
+			return CompletableFuture.completedFuture(null);
+		}
+		var start = part * multipartPartSize;
+		var bytes = new byte[(int) Math.min(multipartPartSize, size - start)];
+		try (var channel = FileChannel.open(path)) {
+			var buffer = ByteBuffer.wrap(bytes);
+			while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) != -1) {
 			}
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		return upload.uploadPart(part + 1, bytes).thenCompose(v -> uploadParts(upload, path, size, partCount, nextPart));
+	}
 
+	static <T> CompletableFuture<T> failWithMessage(S3Location req, CompletableFuture<T> future) {
+		return future.handle((r, e) -> {
+			if (e != null) {
+				var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+				var message = String.format("Failed uploading to bucket '%s' key '%s', error: %s",
+					req.getBucket(), req.getKey(), cause.getMessage() );
+				log.error("uploadAsync> " + message, cause);
+				throw new CompletionException(new RuntimeException(message, cause));
+			}
+			return r;
+		});
+	}
 
+    /**
+     * Opens a stream to the object, what is written being uploaded in parts as it is written. The stream must be either
+     * completed or aborted.
+     */
+    public S3MultipartOutputStream openUploadStream(@NotNull S3Location req, Map<String,String> metadata) {
+        log.debug("openUploadStream> in> req:{}", req);
+        return new S3MultipartOutputStream(s3, req, metadata, streamPartSize, streamMaxPartsInFlight);
     }
 
+	private <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw (RuntimeException) e.getCause();
+		}
+	}
+
 
     private CompletableFuture<Void> queryS3(@NotNull S3AsyncClient s3,
                                                    S3SourceLocation req,
+                                                   SourceDataCompression compression,
                                                    SelectObjectContentResponseHandler handler) {
         log.debug("queryS3> in> req:{}", req);
 
@@ -150,7 +291,8 @@ public class S3Utils {
 			.json(JSONInput.builder()
 				.type(JSONType.LINES)
 				.build())
-			.compressionType(CompressionType.NONE)
+			.compressionType(SourceDataCompression.none.equals(compression) ? CompressionType.NONE
+				: SourceDataCompression.gzip.equals(compression) ? CompressionType.GZIP : CompressionType.BZIP2)
 			.build();
 
 		var outputSerialization = OutputSerialization.builder().json(JSONOutput.builder().build()).build();
@@ -174,25 +316,4 @@ public class S3Utils {
         return s3.selectObjectContent(select, handler);
     }
 
-
-
-    private static class SelectObjectHandler implements SelectObjectContentResponseHandler {
-        private final List<SelectObjectContentEventStream> receivedEvents = new ArrayList<>();
-
-        @Override
-        public void responseReceived(SelectObjectContentResponse response) {
-        }
-
-        @Override
-        public void onEventStream(SdkPublisher<SelectObjectContentEventStream> publisher) {
-            publisher.subscribe(receivedEvents::add);
-        }
-
-        @Override
-        public void exceptionOccurred(Throwable throwable) { }
-
-        @Override
-        public void complete() { }
-    }
-
 }
@@ -0,0 +1,177 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.RecordsEvent;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentEventStream;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentResponse;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentResponseHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Presents the records of an S3 Select query as a stream of bytes as they arrive, rather than once the query has
+ * completed. No more than {@code maxBufferedEvents} records events are requested ahead of the reader, therefore memory
+ * is bounded regardless of the size of the object (or scan range) queried, and the query is backpressured whilst the
+ * reader is busy processing rows.
+ * <p>
+ * Records events are split at arbitrary byte boundaries, meaning lines (and multibyte characters) may span events. The
+ * stream is therefore intended to be decoded and split into lines by a reader, not per event.
+ */
+@Slf4j
+class SelectRecordsInputStream extends InputStream implements SelectObjectContentResponseHandler, Subscriber<SelectObjectContentEventStream> {
+
+    private static final Object COMPLETE = new Object();
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final int maxBufferedEvents;
+    private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+    private volatile Subscription subscription;
+    private volatile boolean closed;
+
+    private ByteBuffer current = EMPTY;
+    private boolean finished;
+
+    SelectRecordsInputStream(int maxBufferedEvents) {
+        this.maxBufferedEvents = maxBufferedEvents;
+    }
+
+    @Override
+    public void responseReceived(SelectObjectContentResponse response) {
+    }
+
+    @Override
+    public void onEventStream(SdkPublisher<SelectObjectContentEventStream> publisher) {
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void exceptionOccurred(Throwable throwable) {
+        received.add(throwable);
+    }
+
+    @Override
+    public void complete() {
+        received.add(COMPLETE);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        if (closed) {
+            subscription.cancel();
+        } else {
+            subscription.request(maxBufferedEvents);
+        }
+    }
+
+    @Override
+    public void onNext(SelectObjectContentEventStream event) {
+        if (event instanceof RecordsEvent) {
+            var payload = ((RecordsEvent) event).payload();
+            var records = payload == null ? EMPTY : payload.asByteBuffer();
+            if (records.hasRemaining()) {
+                received.add(records);
+                return;
+            }
+        }
+        // stats, progress, continuation and end events are not buffered so are replaced with a request for another
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        received.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        received.add(COMPLETE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!current.hasRemaining() && !nextRecords()) {
+            return -1;
+        }
+        return current.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!current.hasRemaining() && !nextRecords()) {
+            return -1;
+        }
+        var read = Math.min(len, current.remaining());
+        current.get(b, off, read);
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return current.remaining();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        received.clear();
+        current = EMPTY;
+        finished = true;
+    }
+
+    private boolean nextRecords() throws IOException {
+        if (finished) {
+            return false;
+        }
+
+        Object next;
+        try {
+            next = received.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for S3 Select records");
+        }
+
+        if (next instanceof ByteBuffer) {
+            current = (ByteBuffer) next;
+            // the buffered records have been taken, so make room for another
+            subscription.request(1);
+            return true;
+        }
+
+        finished = true;
+        if (next instanceof Throwable) {
+            var cause = (Throwable) next;
+            log.error("nextRecords> " + cause.getMessage(), cause);
+            throw new IOException(String.format("Failed streaming S3 Select records, error: %s", cause.getMessage()), cause);
+        }
+        return false;
+    }
+}
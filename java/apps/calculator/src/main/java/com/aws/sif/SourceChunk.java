@@ -0,0 +1,30 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.Value;
+
+/**
+ * A chunk of source data to be processed by a single calculator invocation, its range being the start and end byte
+ * (both inclusive) as provided to {@link S3SourceLocation}.
+ */
+@Value
+public class SourceChunk {
+    int sequence;
+    long[] range;
+    /**
+     * The estimated cost of evaluating the rows of the chunk, relative to the other chunks of the same manifest.
+     */
+    double estimatedCost;
+}
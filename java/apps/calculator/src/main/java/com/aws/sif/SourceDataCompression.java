@@ -0,0 +1,65 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The compression of source data. Compressed source data is read either whole, or as chunks spanning whole compressed
+ * blocks (gzip members or zstd frames) that each end on a record boundary.
+ */
+public enum SourceDataCompression {
+    none,
+    gzip,
+    bzip2,
+    zstd;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Infers the compression from the extension of an object key.
+     */
+    public static SourceDataCompression fromKey(String key) {
+        if (key == null) {
+            return none;
+        } else if (key.endsWith(".gz") || key.endsWith(".gzip")) {
+            return gzip;
+        } else if (key.endsWith(".bz2")) {
+            return bzip2;
+        } else if (key.endsWith(".zst") || key.endsWith(".zstd")) {
+            return zstd;
+        }
+        return none;
+    }
+
+    /**
+     * Decompresses the stream as it is read. Concatenated gzip members and zstd frames are decompressed as one.
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        switch (this) {
+            case gzip:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case zstd:
+                return new ZstdInputStream(in);
+            case bzip2:
+                throw new IOException("bzip2 compressed source data is only supported when selected whole using S3 Select");
+            default:
+                return in;
+        }
+    }
+}
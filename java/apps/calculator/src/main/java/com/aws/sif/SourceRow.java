@@ -0,0 +1,31 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import lombok.Value;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A row of source data, parsed to the fields referenced by the transforms.
+ */
+@Value
+class SourceRow {
+    Map<String, String> fields;
+    /**
+     * All fields of the row, only parsed when needed such as to report a failure.
+     */
+    Supplier<Map<String, String>> allFields;
+}
@@ -22,7 +22,7 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class TransformRequest {
@@ -60,6 +60,13 @@ public class TransformRequest {
      */
     private Integer chunkNo;
 
+    /**
+     * optional - the chunks of the source data to process within the one invocation, in place of `chunkNo` and the
+     * start and end byte of `sourceDataLocation`. Each chunk's outputs, errors and groups are written as if it were
+     * processed by its own invocation.
+     */
+    private List<SourceChunk> chunks;
+
     /**
      * required only for s3 processing
      */
@@ -70,6 +77,12 @@ public class TransformRequest {
      */
     private List<String> sourceData;
 
+    /**
+     * optional - the format of the source data, being JSON lines if not provided. CSV source data
+     * must start with a header row.
+     */
+    private SourceDataFormat sourceDataFormat;
+
     /**
      * when in dry run mode, no audit should be published
      */
@@ -18,13 +18,19 @@ import com.google.gson.GsonBuilder;
 import lombok.Data;
 import software.amazon.awssdk.core.SdkBytes;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 
 @Data
 public class AuditMessageBlob implements Serializable, Cloneable {
     private SdkBytes bytes;
 	private final Gson gson = new GsonBuilder().create();
+	/** The order in which the message was added to the producer, messages being acknowledged in the same order */
+	private final long sequence;
+	/** Completed once the message has been acknowledged by (or failed to be sent to) Kinesis */
+	private final transient CompletableFuture<AuditMessageResult> result = new CompletableFuture<>();
 
-    public AuditMessageBlob(AuditMessage message) {
+    public AuditMessageBlob(AuditMessage message, long sequence) {
+        this.sequence = sequence;
         var json = this.gson.toJson(message);
         this.bytes = SdkBytes.fromByteArray(json.getBytes());
     }
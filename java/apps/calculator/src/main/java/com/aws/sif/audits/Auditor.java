@@ -17,6 +17,8 @@ import com.aws.sif.audits.exceptions.AuditDeliveryStreamException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Validate;
 
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 public class Auditor {
 	private final DataStreamProducer producer;
@@ -57,8 +59,17 @@ public class Auditor {
 		});
 	}
 
-	public void flushSync() {
-		this.producer.flushSync();
+	/**
+	 * Waits for the audit messages logged so far to be acknowledged, without blocking the caller so that other work
+	 * (such as uploading the output) can proceed meanwhile.
+	 */
+	public CompletableFuture<Void> drain() {
+		return this.producer.drain().thenAccept(drained -> {
+			if (!drained) {
+				log.warn("drain> Not all audit messages were acknowledged, outstanding:{}, flusher failed:{}",
+						producer.getOutstandingRecordsCount(), producer.isFlushFailed());
+			}
+		});
 	}
 
 	private void propagateAsyncExceptions() throws Exception {
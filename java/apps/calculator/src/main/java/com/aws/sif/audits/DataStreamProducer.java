@@ -56,6 +56,7 @@ public class DataStreamProducer {
     private final long maxBackOffInMillis;
     private final long baseBackOffInMillis;
     private final String dataStreamName;
+    private final long drainTimeoutInMillis;
 	private  String partitionKey;
 
 
@@ -86,6 +87,17 @@ public class DataStreamProducer {
     /** A flag representing if the Flusher thread has failed. */
     private volatile boolean isFlusherFailed;
 
+    /** The sequence of the last message added, and of the last message acknowledged. As messages are sent in the order
+     * they were added, all messages up to and including the acknowledged sequence have been acknowledged. */
+    @GuardedBy("producerBufferLock")
+    private long addedSequence;
+    @GuardedBy("producerBufferLock")
+    private long acknowledgedSequence;
+
+    /** The drains awaiting messages up to their sequence to be acknowledged, in sequence order. */
+    @GuardedBy("producerBufferLock")
+    private final Queue<Drain> drains = new ArrayDeque<>();
+
     public DataStreamProducer(KinesisAsyncClient kinesisClient, Config config ) {
         this.kinesisClient = kinesisClient;
         this.maxBufferSize = config.getInt("calculator.audits.kinesis.maxBufferSize");
@@ -98,6 +110,7 @@ public class DataStreamProducer {
         this.maxBackOffInMillis = config.getLong("calculator.audits.kinesis.maxBackOffInMillis");
         this.baseBackOffInMillis = config.getInt("calculator.audits.kinesis.baseBackOffInMillis");
         this.dataStreamName = config.getString("calculator.audits.kinesis.dataStreamName");
+        this.drainTimeoutInMillis = config.getLong("calculator.audits.kinesis.drainTimeoutInMillis");
 
         this.producerBuffer = new ArrayDeque<>(maxBufferSize);
         this.flusherBuffer = new ArrayDeque<>(maxBufferSize);
@@ -118,7 +131,8 @@ public class DataStreamProducer {
      * passed as {@code timeoutInMillis}
      * @param message the type of data to be buffered
      * @param timeoutInMillis the operation timeout in case the record cannot be added into the producerBuffer.
-     * @return CompletableFuture<AuditMessageResult>
+     * @return CompletableFuture<AuditMessageResult> completed once the message has been acknowledged by Kinesis, or
+     * exceptionally if it could not be sent
      * @throws TimeoutExpiredException if the operation got stuck and is not able to proceed.
      * @throws InterruptedException if any thread interrupted the current thread before or while the current thread
      * was waiting for a notification.  The <i>interrupted status</i> of the current thread is cleared when
@@ -133,6 +147,7 @@ public class DataStreamProducer {
 
         long operationTimeoutInNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
 
+        AuditMessageBlob blob;
         synchronized (producerBufferLock) {
             /* This happens whenever the current thread is trying to write, however, the Producer Buffer is full.
              * This guarantees if the writer thread is already running, should wait.
@@ -152,7 +167,8 @@ public class DataStreamProducer {
                 producerBufferLock.wait(bufferFullWaitTimeoutInMillis);
             }
 			this.partitionKey = getPartition(message,chunkNo);
-            producerBuffer.offer( new AuditMessageBlob(message));
+            blob = new AuditMessageBlob(message, ++addedSequence);
+            producerBuffer.offer(blob);
 
             /* If the buffer was filled up right after the last insertion we would like to wake up the flusher thread
              * and send the buffered data to Kinesis datastream as soon as possible */
@@ -160,10 +176,8 @@ public class DataStreamProducer {
                 producerBufferLock.notify();
             }
         }
-        var result = AuditMessageResult.builder().successful(true).build();
-
-        log.debug("addAuditMessage> result:{}", result);
-        return CompletableFuture.completedFuture(result);
+        log.debug("addAuditMessage> exit> sequence:{}", blob.getSequence());
+        return blob.getResult();
     }
 
     /**
@@ -191,7 +205,7 @@ public class DataStreamProducer {
                 if (isDestroyed) {
                     return;
                 } else if (syncFlush || (producerBuffer.size() >= maxBufferSize ||
-                        (timeoutFlush && producerBuffer.size() > 0))) {
+                        ((timeoutFlush || !drains.isEmpty()) && producerBuffer.size() > 0))) {
                     prepareRecordsToSubmit(producerBuffer, flusherBuffer);
                     producerBufferLock.notify();
                 } else {
@@ -210,12 +224,20 @@ public class DataStreamProducer {
                 submitBatchWithRetry(flusherBuffer);
 
                 Queue<AuditMessageBlob> emptyFlushBuffer = new ArrayDeque<>(maxBufferSize);
+                var acknowledged = flusherBuffer;
+                var result = AuditMessageResult.builder().successful(true).build();
+                acknowledged.forEach(m -> m.getResult().complete(result));
                 synchronized (producerBufferLock) {
                     /* We perform a swap at this point because {@code ArrayDeque<>.clear()} iterates over the items nullifying
                      * the items, and we would like to avoid such iteration just swapping references. */
                     Validate.validState(!flusherBuffer.isEmpty());
                     flusherBuffer = emptyFlushBuffer;
 
+                    acknowledgedSequence = acknowledged.stream().mapToLong(AuditMessageBlob::getSequence).max().getAsLong();
+                    while (!drains.isEmpty() && drains.peek().sequence <= acknowledgedSequence) {
+                        drains.poll().future.complete(true);
+                    }
+
                     if (syncFlush) {
                         syncFlush = false;
                         producerBufferLock.notify();
@@ -236,8 +258,13 @@ public class DataStreamProducer {
                     log.error("flushBuffer> " + errorMsg, ex);
                 }
 
+                flusherBuffer.forEach(m -> m.getResult().completeExceptionally(ex));
                 synchronized (producerBufferLock) {
                     isFlusherFailed = true;
+                    drains.forEach(d -> d.future.complete(false));
+                    drains.clear();
+                    // no further messages will be sent
+                    producerBuffer.forEach(m -> m.getResult().completeExceptionally(ex));
                 }
 
                 throw ex;
@@ -391,6 +418,34 @@ public class DataStreamProducer {
         }
     }
 
+    /**
+     * Waits until all messages added prior to the drain have been acknowledged by Kinesis, the flusher thread sending
+     * them regardless of whether the buffer is full or its timeout has expired. Messages added after the drain are not
+     * waited for.
+     *
+     * @return a future completed with true once the messages are acknowledged, or false if the flusher thread failed or
+     * the drain timeout expired first
+     */
+    public CompletableFuture<Boolean> drain() {
+        log.debug("drain> in>");
+
+        synchronized (producerBufferLock) {
+            if (acknowledgedSequence == addedSequence) {
+                log.debug("drain> exit> nothing outstanding");
+                return CompletableFuture.completedFuture(true);
+            }
+            if (isFlusherFailed) {
+                log.warn("drain> The flusher thread has failed, so outstanding messages cannot be drained.");
+                return CompletableFuture.completedFuture(false);
+            }
+            var drain = new Drain(addedSequence, new CompletableFuture<>());
+            drains.add(drain);
+            producerBufferLock.notify();
+            log.debug("drain> exit> sequence:{}, acknowledged:{}", addedSequence, acknowledgedSequence);
+            return drain.future.completeOnTimeout(false, drainTimeoutInMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
     /**
      * This method instructs the flusher thread to perform the flush on the buffer and wait for the completion.
      * <p>
@@ -401,21 +456,10 @@ public class DataStreamProducer {
      * The caller needs to make sure to assert the status of {@link #isFlushFailed()} in order guarantee whether
      * the flush has successfully completed or not.
      */
-
     public void flushSync() {
         log.debug("flushSync> in>");
-        while (getOutstandingRecordsCount() > 0 && !isFlushFailed()) {
-            flush();
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                log.warn("flushSync> An interruption has happened while trying to flush the buffer synchronously.");
-                Thread.currentThread().interrupt();
-            }
-        }
-
-        if (isFlushFailed()) {
-            log.warn("flushSync> The flusher thread has failed trying to synchronously flush the buffer.");
+        if (!drain().join()) {
+            log.warn("flushSync> The buffer could not be flushed, flusher failed:{}.", isFlushFailed());
         }
         log.debug("flushSync> exit>");
     }
@@ -423,4 +467,14 @@ public class DataStreamProducer {
 	private String getPartition(AuditMessage message,int chunkNo) {
 		return  String.format("%s-%s-%s",message.getPipelineId() ,message.getExecutionId(),chunkNo);
 	}
+
+    private static class Drain {
+        private final long sequence;
+        private final CompletableFuture<Boolean> future;
+
+        private Drain(long sequence, CompletableFuture<Boolean> future) {
+            this.sequence = sequence;
+            this.future = future;
+        }
+    }
 }
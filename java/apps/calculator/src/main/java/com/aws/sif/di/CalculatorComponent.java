@@ -13,6 +13,7 @@
 
 package com.aws.sif.di;
 
+import com.aws.sif.ChunkPlanHandler;
 import com.aws.sif.HandlerStream;
 import com.aws.sif.resources.calculations.CalculationsClient;
 import dagger.Component;
@@ -25,6 +26,8 @@ public interface CalculatorComponent {
 
     void inject(HandlerStream handler);
 
+    void inject(ChunkPlanHandler handler);
+
     CalculationsClient buildCalculationsClient();
 
 }
@@ -23,10 +23,14 @@ import com.aws.sif.execution.Calculator;
 import com.aws.sif.execution.CalculatorImpl;
 import com.aws.sif.execution.ExecutionVisitor;
 import com.aws.sif.execution.ExecutionVisitorImpl;
+import com.aws.sif.execution.ResourcePrefetcher;
 import com.aws.sif.execution.output.ActivityTypeOutputWriter;
 import com.aws.sif.execution.output.ActivitySqsWriter;
 import com.aws.sif.execution.output.DataTypeOutputWriter;
+import com.aws.sif.lambdaInvoker.LambdaInvocationLimiters;
 import com.aws.sif.lambdaInvoker.LambdaInvoker;
+import com.aws.sif.lambdaInvoker.TokenService;
+import com.aws.sif.resources.NegativeCaches;
 import com.aws.sif.resources.ResourcesRepository;
 import com.aws.sif.resources.calculations.Calculation;
 import com.aws.sif.resources.calculations.CalculationsClient;
@@ -34,12 +38,16 @@ import com.aws.sif.resources.calculations.CalculationsList;
 import com.aws.sif.resources.caml.CamlClient;
 import com.aws.sif.resources.groups.Group;
 import com.aws.sif.resources.groups.GroupsClient;
+import com.aws.sif.resources.groups.GroupsList;
 import com.aws.sif.resources.impacts.ActivitiesList;
 import com.aws.sif.resources.impacts.Activity;
 import com.aws.sif.resources.impacts.ImpactsClient;
 import com.aws.sif.resources.referenceDatasets.DataDownload;
 import com.aws.sif.resources.referenceDatasets.Dataset;
 import com.aws.sif.resources.referenceDatasets.DatasetsClient;
+import com.aws.sif.resources.referenceDatasets.IndexDownloader;
+import com.aws.sif.resources.referenceDatasets.IndexResidency;
+import com.aws.sif.resources.referenceDatasets.IndexStore;
 import com.aws.sif.resources.referenceDatasets.DatasetsList;
 import com.aws.sif.resources.users.User;
 import com.aws.sif.resources.users.UsersClient;
@@ -55,7 +63,7 @@ import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
-import software.amazon.awssdk.services.sagemakerruntime.SageMakerRuntimeClient;
+import software.amazon.awssdk.services.sagemakerruntime.SageMakerRuntimeAsyncClient;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -74,8 +82,8 @@ public class CalculatorModule {
 
 	@Provides
 	@Singleton
-	public SageMakerRuntimeClient provideSageMakerRuntimeClient(Config config) {
-		return SageMakerRuntimeClient.builder()
+	public SageMakerRuntimeAsyncClient provideSageMakerRuntimeClient(Config config) {
+		return SageMakerRuntimeAsyncClient.builder()
 				.region(Region.of(config.getString("calculator.aws.region")))
 				.overrideConfiguration(ClientOverrideConfiguration.builder()
 						.addExecutionInterceptor(new TracingInterceptor()).build())
@@ -135,8 +143,20 @@ public class CalculatorModule {
 
 	@Provides
 	@Singleton
-	public LambdaInvoker provideLambdaInvoker(LambdaAsyncClient lambdaClient) {
-		return new LambdaInvoker<>(lambdaClient);
+	public LambdaInvoker provideLambdaInvoker(LambdaAsyncClient lambdaClient, LambdaInvocationLimiters limiters, TokenService tokens) {
+		return new LambdaInvoker<>(lambdaClient, limiters, tokens);
+	}
+
+	@Provides
+	@Singleton
+	public TokenService provideTokenService(Config config) {
+		return new TokenService(config);
+	}
+
+	@Provides
+	@Singleton
+	public LambdaInvocationLimiters provideLambdaInvocationLimiters(Config config) {
+		return new LambdaInvocationLimiters(config);
 	}
 
 	@Provides
@@ -147,8 +167,8 @@ public class CalculatorModule {
 
 	@Provides
 	@Singleton
-	public Calculator provideCalculator(Provider<ExecutionVisitor> visitorProvider) {
-		return new CalculatorImpl(visitorProvider);
+	public Calculator provideCalculator(Provider<ExecutionVisitor> visitorProvider, Config config) {
+		return new CalculatorImpl(visitorProvider, config.getInt("calculator.formulas.parsed.maxEntries"));
 	}
 
 	@Provides
@@ -161,27 +181,52 @@ public class CalculatorModule {
 	@Singleton
 	public CalculationsClient provideCalculationsClient(LambdaInvoker<Calculation> calculationInvoker,
 														LambdaInvoker<CalculationsList> calculationsListInvoker,
-														Config config, ResourcesRepository repository) {
-		return new CalculationsClient(calculationInvoker, calculationsListInvoker, config, repository);
+														Config config, ResourcesRepository repository, NegativeCaches negativeCaches) {
+		return new CalculationsClient(calculationInvoker, calculationsListInvoker, config, repository, negativeCaches);
 	}
 
 	@Provides
 	@Singleton
 	public DatasetsClient provideDatasetsClient(LambdaInvoker<DatasetsList> datasetsListInvoker, LambdaInvoker<Dataset> datasetsInvoker, LambdaInvoker<DataDownload> dataDownloadInvoker,
-												Config config, ResourcesRepository repository) {
-		return new DatasetsClient(datasetsListInvoker, datasetsInvoker, dataDownloadInvoker, config, repository);
+												Config config, ResourcesRepository repository, NegativeCaches negativeCaches, IndexResidency indexResidency,
+												IndexDownloader indexDownloader, IndexStore indexStore) {
+		return new DatasetsClient(datasetsListInvoker, datasetsInvoker, dataDownloadInvoker, config, repository, negativeCaches, indexResidency, indexDownloader, indexStore);
+	}
+
+	@Provides
+	@Singleton
+	public IndexStore provideIndexStore(Config config, IndexResidency indexResidency) {
+		return new IndexStore(config, indexResidency);
+	}
+
+	@Provides
+	@Singleton
+	public IndexDownloader provideIndexDownloader(Config config) {
+		return new IndexDownloader(config);
 	}
+
 	@Provides
 	@Singleton
-	public GroupsClient provideGroupsClient(LambdaInvoker<Group> groupsInvoker, Config config, ResourcesRepository repository) {
-		return new GroupsClient(groupsInvoker, config, repository);
+	public IndexResidency provideIndexResidency(Config config) {
+		return new IndexResidency(config);
+	}
+	@Provides
+	@Singleton
+	public GroupsClient provideGroupsClient(LambdaInvoker<Group> groupsInvoker, LambdaInvoker<GroupsList> groupsListInvoker, Config config, ResourcesRepository repository, NegativeCaches negativeCaches) {
+		return new GroupsClient(groupsInvoker, groupsListInvoker, config, repository, negativeCaches);
 	}
 	@Provides
 	@Singleton
 	public ImpactsClient provideActivitiesClient(LambdaInvoker<Activity> activityInvoker,
 												 LambdaInvoker<ActivitiesList> activitiesListInvoker,
-												 Config config, ResourcesRepository repository) {
-		return new ImpactsClient(activityInvoker, activitiesListInvoker, config, repository);
+												 Config config, ResourcesRepository repository, NegativeCaches negativeCaches) {
+		return new ImpactsClient(activityInvoker, activitiesListInvoker, config, repository, negativeCaches);
+	}
+
+	@Provides
+	@Singleton
+	public NegativeCaches provideNegativeCaches(Config config) {
+		return new NegativeCaches(config);
 	}
 
 	@Provides
@@ -198,28 +243,35 @@ public class CalculatorModule {
 
 	@Provides
 	@Singleton
-	public CamlClient provideCamlClient(SageMakerRuntimeClient sagemakerClient, Config config, Gson gson, ResourcesRepository repository) {
+	public CamlClient provideCamlClient(SageMakerRuntimeAsyncClient sagemakerClient, Config config, Gson gson, ResourcesRepository repository) {
 		return new CamlClient(sagemakerClient, config, gson, repository);
 	}
 
     @Provides
     @Singleton
     public ActivityTypeCalculatorService provideActivityTypeCalculatorService(Calculator calculator, S3Utils s3Utils, Auditor auditor,
-            Config config, ActivityTypeOutputWriter outputWriter, UsersClient usersClient, Gson gson) {
-        return new ActivityTypeCalculatorService(calculator, s3Utils, auditor, config, outputWriter, usersClient, gson);
+            Config config, ActivityTypeOutputWriter outputWriter, UsersClient usersClient, ResourcePrefetcher prefetcher, Gson gson) {
+        return new ActivityTypeCalculatorService(calculator, s3Utils, auditor, config, outputWriter, usersClient, prefetcher, gson);
     }
 
     @Provides
     @Singleton
     public DataTypeCalculatorService provideDataTypeCalculatorService(Calculator calculator, S3Utils s3Utils, Auditor auditor,
-            Config config, DataTypeOutputWriter outputWriter, UsersClient usersClient, Gson gson) {
-        return new DataTypeCalculatorService(calculator, s3Utils, auditor, config, outputWriter, usersClient, gson);
+            Config config, DataTypeOutputWriter outputWriter, UsersClient usersClient, ResourcePrefetcher prefetcher, Gson gson) {
+        return new DataTypeCalculatorService(calculator, s3Utils, auditor, config, outputWriter, usersClient, prefetcher, gson);
     }
 
 	@Provides
 	@Singleton
-	public S3Utils provideS3Utils(S3AsyncClient s3Client) {
-		return new S3Utils(s3Client);
+	public ResourcePrefetcher provideResourcePrefetcher(ImpactsClient impactsClient, CalculationsClient calculationsClient, DatasetsClient datasetsClient,
+														CamlClient camlClient, GroupsClient groupsClient, ResourcesRepository repository, Config config) {
+		return new ResourcePrefetcher(impactsClient, calculationsClient, datasetsClient, camlClient, groupsClient, repository, config);
+	}
+
+	@Provides
+	@Singleton
+	public S3Utils provideS3Utils(S3AsyncClient s3Client, Config config) {
+		return new S3Utils(s3Client, config);
 	}
 
 	@Provides
@@ -26,32 +26,43 @@ import org.antlr.v4.runtime.CommonTokenStream;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Slf4j
 public class CalculatorImpl implements Calculator {
 
+    private static final int DEFAULT_MAX_PARSED_EXPRESSIONS = 1000;
+
     private final Provider<ExecutionVisitor> executionVisitorProvider;
 
+    // the parse trees of the expressions evaluated, as the same formulas are evaluated for every row (and chunk)
+    private final Map<String, CalculationsParser.ProgContext> parsed;
+
     private CalculationsLexer lexer;
     private CommonTokenStream tokens;
     private CalculationsParser parser;
 
     @Inject
     public CalculatorImpl(Provider<ExecutionVisitor> executionVisitorProvider) {
+        this(executionVisitorProvider, DEFAULT_MAX_PARSED_EXPRESSIONS);
+    }
+
+    public CalculatorImpl(Provider<ExecutionVisitor> executionVisitorProvider, int maxParsedExpressions) {
         this.executionVisitorProvider = executionVisitorProvider;
+        this.parsed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CalculationsParser.ProgContext> eldest) {
+                return size() > maxParsedExpressions;
+            }
+        };
     }
 
     @Override
     public EvaluateResponse evaluateExpression(EvaluateExpressionRequest req) {
         log.trace("evaluateExpression> in> {}", req);
-        var input = CharStreams.fromString(req.getExpression());
-
-        initLexer(input);
-        initTokenStream();
-        initParser();
 
-        var tree = parser.prog();
+        var tree = parse(req.getExpression());
 
         var evaluateReq = EvaluateRequest.builder()
                 .pipelineId(req.getPipelineId())
@@ -67,6 +78,20 @@ public class CalculatorImpl implements Calculator {
         return executionVisitorProvider.get().evaluate(evaluateReq);
     }
 
+    private CalculationsParser.ProgContext parse(String expression) {
+        var tree = parsed.get(expression);
+        if (tree == null) {
+            initLexer(CharStreams.fromString(expression));
+            initTokenStream();
+            initParser();
+
+            // expressions failing to parse are not cached, the syntax error being raised each time
+            tree = parser.prog();
+            parsed.put(expression, tree);
+        }
+        return tree;
+    }
+
     private void initParser() {
         if (parser==null) {
             parser = new CalculationsParser(tokens);
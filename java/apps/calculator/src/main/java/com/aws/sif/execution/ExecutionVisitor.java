@@ -70,6 +70,12 @@ public interface ExecutionVisitor extends CalculationsVisitor<DynamicTypeValue>
     @Override
     DynamicTypeValue visitLookupFunctionExpr(CalculationsParser.LookupFunctionExprContext ctx);
 
+    @Override
+    DynamicTypeValue visitCompositeLookupFunctionExpr(CalculationsParser.CompositeLookupFunctionExprContext ctx);
+
+    @Override
+    DynamicTypeValue visitLookupRangeFunctionExpr(CalculationsParser.LookupRangeFunctionExprContext ctx);
+
     @Override
     DynamicTypeValue visitCustomFunctionExpr(CalculationsParser.CustomFunctionExprContext ctx);
 
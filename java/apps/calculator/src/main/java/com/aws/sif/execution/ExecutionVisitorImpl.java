@@ -19,6 +19,7 @@ import com.aws.sif.resources.calculations.CalculationNotFoundException;
 import com.aws.sif.resources.calculations.CalculationsClient;
 import com.aws.sif.resources.caml.CamlClient;
 import com.aws.sif.resources.caml.CamlNotEnabledException;
+import com.aws.sif.resources.groups.GroupHierarchy;
 import com.aws.sif.resources.groups.GroupNotFoundException;
 import com.aws.sif.resources.groups.GroupsClient;
 import com.aws.sif.resources.impacts.Activity;
@@ -501,16 +502,9 @@ public class ExecutionVisitorImpl extends CalculationsBaseVisitor<DynamicTypeVal
 		}
 
 		// the group passed in must be the same as groupContextId or a child
-		var groupIdTokens = groupId.split("/");
-		var groupContextIdTokens = groupContextId.split("/");
-		if (groupIdTokens.length < groupContextIdTokens.length) {
+		if (!GroupHierarchy.isSameOrDescendant(groupId, groupContextId)) {
 			throw new ArithmeticException(String.format("The group passed to ASSIGN_TO_GROUP (%s) must be the same as or be a child of the group context of execution (%s)", groupId, groupContextId));
 		}
-		for(int ti=0; ti<groupContextIdTokens.length; ++ti) {
-			if (!groupContextIdTokens[ti].equals(groupIdTokens[ti])) {
-				throw new ArithmeticException(String.format("The group passed to ASSIGN_TO_GROUP (%s) must be the same as or be a child of the group context of execution (%s)", groupId, groupContextId));
-			}
-		}
 
 		auditEvaluated.put(ctx.getText(), groupId);
 
@@ -802,6 +796,126 @@ public class ExecutionVisitorImpl extends CalculationsBaseVisitor<DynamicTypeVal
         return result;
     }
 
+    @Override public DynamicTypeValue visitCompositeLookupFunctionExpr(CalculationsParser.CompositeLookupFunctionExprContext ctx) {
+        log.trace("visitCompositeLookupFunctionExpr> in> {}, parent: {}", ctx.getText(), ctx.getParent().getText());
+
+        // extract the mandatory parameters
+        var values = new ArrayList<String>();
+        for (var expr : ctx.values.expr()) {
+            values.add(super.visit(expr).asString());
+        }
+        var name = super.visit(ctx.name).asString();
+        var outputColumn = super.visit(ctx.outputColumn).asString();
+        var keyColumns = new ArrayList<String>();
+        for (var expr : ctx.keyColumns.expr()) {
+            keyColumns.add(super.visit(expr).asString());
+        }
+
+        if (values.size() != keyColumns.size()) {
+            throw new ArithmeticException(String.format("The number of values (%s) must match the number of key columns (%s).", values.size(), keyColumns.size()));
+        }
+
+        // extract any optional parameters
+		var optionalParams = getOptionalParams(ctx.optionalLookupParams());
+		Optional<String> groupParam = getOptionalParamValue(optionalParams, OptionalParamKey.group);
+		Optional<String> tenantParam = getOptionalParamValue(optionalParams, OptionalParamKey.tenant);
+		Optional<DynamicTypeValue> versionParam = getOptionalParam(optionalParams, OptionalParamKey.version);
+        Optional<String> versionAsAtParam = getOptionalParamValue(optionalParams, OptionalParamKey.versionAsAt);
+        var groupId = groupParam.orElse(groupContextId);
+
+        if (versionParam.isPresent() && versionAsAtParam.isPresent()) {
+            throw new ArithmeticException("Version and VersionAsAt are mutually exclusive parameters, specify one or the other.");
+        }
+
+        // retrieve the requested reference dataset value
+        DatasetsClient.GetValueResponse lookupValue = null;
+        try {
+            lookupValue = this.datasetsClient.getValue(pipelineId, executionId, groupId, authorizer, name, values, outputColumn, keyColumns, tenantParam, versionParam.map(v->v.asString()), versionAsAtParam);
+        } catch (ReferenceDatasetNotFoundException e) {
+            throw new ArithmeticException(e.getMessage());
+        } finally {
+            // track what we have evaluated for the audit log
+            var audit = new HashMap<>(Map.of(
+                    "value", String.join(",", values),
+                    "name", name,
+                    "keyColumn",  String.join(",", keyColumns),
+                    "outputColumn", outputColumn,
+                    "group", groupId
+            ));
+            tenantParam.ifPresent(v->audit.put("tenant", v));
+            if (lookupValue!=null) {
+                audit.put("version", Integer.toString(lookupValue.getVersion()));
+            } else {
+                versionParam.ifPresent(v->audit.put("version", v.asString()));
+            }
+            auditReferenceDatasets.add(audit);
+        }
+
+        var result = newTypeValue(lookupValue.getValue());
+
+        // track what we have evaluated for the audit log
+        auditEvaluated.put(ctx.getText(), result.asString());
+
+        log.trace("visitCompositeLookupFunctionExpr> exit> {}", result);
+        return result;
+    }
+
+    @Override public DynamicTypeValue visitLookupRangeFunctionExpr(CalculationsParser.LookupRangeFunctionExprContext ctx) {
+        log.trace("visitLookupRangeFunctionExpr> in> {}, parent: {}", ctx.getText(), ctx.getParent().getText());
+
+        // extract the mandatory parameters
+        var value = super.visit(ctx.value).asString();
+        var name = super.visit(ctx.name).asString();
+        var fromColumn = super.visit(ctx.fromColumn).asString();
+        var toColumn = super.visit(ctx.toColumn).asString();
+        var outputColumn = super.visit(ctx.outputColumn).asString();
+
+        // extract any optional parameters
+		var optionalParams = getOptionalParams(ctx.optionalLookupParams());
+		Optional<String> groupParam = getOptionalParamValue(optionalParams, OptionalParamKey.group);
+		Optional<String> tenantParam = getOptionalParamValue(optionalParams, OptionalParamKey.tenant);
+		Optional<DynamicTypeValue> versionParam = getOptionalParam(optionalParams, OptionalParamKey.version);
+        Optional<String> versionAsAtParam = getOptionalParamValue(optionalParams, OptionalParamKey.versionAsAt);
+        var groupId = groupParam.orElse(groupContextId);
+
+        if (versionParam.isPresent() && versionAsAtParam.isPresent()) {
+            throw new ArithmeticException("Version and VersionAsAt are mutually exclusive parameters, specify one or the other.");
+        }
+
+        // retrieve the requested reference dataset value
+        DatasetsClient.GetValueResponse lookupValue = null;
+        try {
+            lookupValue = this.datasetsClient.getRangeValue(pipelineId, executionId, groupId, authorizer, name, value, outputColumn, fromColumn, toColumn, tenantParam, versionParam.map(v->v.asString()), versionAsAtParam);
+        } catch (ReferenceDatasetNotFoundException e) {
+            throw new ArithmeticException(e.getMessage());
+        } finally {
+            // track what we have evaluated for the audit log
+            var audit = new HashMap<>(Map.of(
+                    "value", value,
+                    "name", name,
+                    "fromColumn", fromColumn,
+                    "toColumn", toColumn,
+                    "outputColumn", outputColumn,
+                    "group", groupId
+            ));
+            tenantParam.ifPresent(v->audit.put("tenant", v));
+            if (lookupValue!=null) {
+                audit.put("version", Integer.toString(lookupValue.getVersion()));
+            } else {
+                versionParam.ifPresent(v->audit.put("version", v.asString()));
+            }
+            auditReferenceDatasets.add(audit);
+        }
+
+        var result = newTypeValue(lookupValue.getValue());
+
+        // track what we have evaluated for the audit log
+        auditEvaluated.put(ctx.getText(), result.asString());
+
+        log.trace("visitLookupRangeFunctionExpr> exit> {}", result);
+        return result;
+    }
+
 	private <T> DynamicTypeValue newTypeValue(String value) {
 		DynamicTypeValue result;
 		if (value==null) {
@@ -0,0 +1,30 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.execution;
+
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * What all formulas of a request reference, collected once per request so that it may be reused by every batch of
+ * rows (and every chunk) rather than the formulas being parsed again each time.
+ */
+@Value
+public class RequestReferences {
+    Set<ResourceReference> references;
+    Set<LookupKeyReference> lookupKeys;
+    Set<String> camlTokens;
+    boolean assignsToGroups;
+}
@@ -0,0 +1,252 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.execution;
+
+import com.aws.sif.Authorizer;
+import com.aws.sif.Transform;
+import com.aws.sif.TransformRequest;
+import com.aws.sif.resources.ResourcesRepository;
+import com.aws.sif.resources.caml.CamlClient;
+import com.aws.sif.resources.groups.GroupsClient;
+import com.aws.sif.resources.calculations.CalculationsClient;
+import com.aws.sif.resources.impacts.ImpactsClient;
+import com.aws.sif.resources.referenceDatasets.DatasetsClient;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the resources referenced by literal name within a request's formulas concurrently, ahead of any rows
+ * being processed, so that the resource clients' caches are warm by the time the rows are evaluated. Without this
+ * each resource is resolved sequentially upon its first use.
+ * <p>
+ * Failures are logged and otherwise ignored, as the same resources are resolved again (and any errors reported
+ * against the rows) when evaluated.
+ */
+@Slf4j
+public class ResourcePrefetcher {
+
+    private final ImpactsClient impactsClient;
+    private final CalculationsClient calculationsClient;
+    private final DatasetsClient datasetsClient;
+    private final CamlClient camlClient;
+    private final GroupsClient groupsClient;
+    private final ResourcesRepository repository;
+    private final Config config;
+    private final ExecutorService executor;
+
+    @Inject
+    public ResourcePrefetcher(ImpactsClient impactsClient, CalculationsClient calculationsClient, DatasetsClient datasetsClient, CamlClient camlClient, GroupsClient groupsClient, ResourcesRepository repository, Config config) {
+        this.impactsClient = impactsClient;
+        this.calculationsClient = calculationsClient;
+        this.datasetsClient = datasetsClient;
+        this.camlClient = camlClient;
+        this.groupsClient = groupsClient;
+        this.repository = repository;
+        this.config = config;
+
+        var count = new AtomicLong(0);
+        this.executor = Executors.newFixedThreadPool(config.getInt("calculator.executor.threads"), runnable -> {
+            var thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("prefetch-thread-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Collects what the request's formulas reference, to be provided to each of the prefetch stages.
+     */
+    public static RequestReferences collect(TransformRequest req) {
+        return ResourceReferenceCollector.collectAll(req.getTransforms().stream().map(Transform::getFormula).toList());
+    }
+
+    public CompletableFuture<Void> prefetch(TransformRequest req, RequestReferences requestReferences, Authorizer authorizer) {
+        log.debug("prefetch> in> pipelineId:{}, executionId:{}, groupContextId:{}", req.getPipelineId(), req.getExecutionId(), req.getGroupContextId());
+
+        if (!config.getBoolean("calculator.prefetch.enabled")) {
+            log.debug("prefetch> early exit> disabled");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        var references = requestReferences.getReferences();
+
+        // the name to id/version mappings of all references are retrieved in bulk first, rather than one at a time as each is resolved
+        var mappingKeys = references.stream()
+                .map(r -> ResourcesRepository.MappingKey.of(req.getPipelineId(), req.getExecutionId(), r.getGroup().orElse(req.getGroupContextId()), r.getType(), r.getName()))
+                .toList();
+
+        Set<ResourceReference> visited = ConcurrentHashMap.newKeySet();
+        var future = repository.preloadMappings(mappingKeys)
+                .exceptionally(e -> {
+                    log.warn("prefetch> unable to preload mappings, will be retrieved individually: {}", e.getMessage());
+                    return null;
+                })
+                .thenCompose(v -> CompletableFuture.allOf(references.stream()
+                        .map(r -> prefetch(req, authorizer, r, visited))
+                        .toArray(CompletableFuture[]::new)));
+
+        // the groups rows are assigned to are verified against the group context's hierarchy, which is loaded in bulk
+        if (requestReferences.isAssignsToGroups()) {
+            future = CompletableFuture.allOf(future, CompletableFuture.runAsync(() -> loadGroupHierarchy(req, authorizer), executor));
+        }
+
+        // the mappings resolved are written as soon as prefetched, rather than when the handler exits, so that chunks
+        // being processed in parallel elsewhere resolve the same versions
+        future = future.whenComplete((v, e) -> repository.flush());
+
+        log.debug("prefetch> exit> references:{}", references);
+        return future;
+    }
+
+    /**
+     * Looks up the distinct keys of a batch of rows together, one search per dataset and key column, so that the lookups
+     * performed when the rows are evaluated are served from cache.
+     */
+    public void prefetchLookupKeys(TransformRequest req, RequestReferences requestReferences, Authorizer authorizer, List<Map<String, DynamicTypeValue>> rows) {
+        log.debug("prefetchLookupKeys> in> pipelineId:{}, executionId:{}, rows:{}", req.getPipelineId(), req.getExecutionId(), rows.size());
+
+        if (!config.getBoolean("calculator.prefetch.enabled")) {
+            log.debug("prefetchLookupKeys> early exit> disabled");
+            return;
+        }
+
+        var lookupKeys = requestReferences.getLookupKeys();
+        var futures = lookupKeys.stream()
+                // tokens that are not pipeline parameters are variables, whose values are only known once evaluated
+                .filter(k -> req.getParameters().stream().anyMatch(p -> k.getToken().equals(p.getKey())))
+                .map(k -> CompletableFuture.runAsync(() -> prefetchLookupKeys(req, authorizer, k, rows), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+
+        log.debug("prefetchLookupKeys> exit> lookupKeys:{}", lookupKeys);
+    }
+
+    /**
+     * Infers the distinct product names of a batch of rows together, so that the CaML functions evaluated for the rows
+     * are served from cache.
+     */
+    public void prefetchProductMatches(TransformRequest req, RequestReferences requestReferences, List<Map<String, DynamicTypeValue>> rows) {
+        log.debug("prefetchProductMatches> in> pipelineId:{}, executionId:{}, rows:{}", req.getPipelineId(), req.getExecutionId(), rows.size());
+
+        if (!config.getBoolean("calculator.prefetch.enabled")) {
+            log.debug("prefetchProductMatches> early exit> disabled");
+            return;
+        }
+
+        var tokens = new LinkedHashSet<>(requestReferences.getCamlTokens());
+        // tokens that are not pipeline parameters are variables, whose values are only known once evaluated
+        tokens.removeIf(t -> req.getParameters().stream().noneMatch(p -> t.equals(p.getKey())));
+        if (tokens.isEmpty()) {
+            log.debug("prefetchProductMatches> early exit> no parameters inferred");
+            return;
+        }
+
+        var productNames = rows.stream()
+                .flatMap(r -> tokens.stream().map(r::get))
+                .filter(Objects::nonNull)
+                .map(DynamicTypeValue::asString)
+                .filter(v -> !v.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        try {
+            camlClient.prefetchProductMatches(productNames);
+        } catch (Exception e) {
+            log.warn("prefetchProductMatches> unable to prefetch product matches, will be inferred when evaluated: {}", e.getMessage());
+        }
+
+        log.debug("prefetchProductMatches> exit> tokens:{}, productNames:{}", tokens, productNames.size());
+    }
+
+    private void prefetchLookupKeys(TransformRequest req, Authorizer authorizer, LookupKeyReference lookupKey, List<Map<String, DynamicTypeValue>> rows) {
+        var reference = lookupKey.getReference();
+        var values = rows.stream()
+                .map(r -> r.get(lookupKey.getToken()))
+                .filter(Objects::nonNull)
+                .map(DynamicTypeValue::asString)
+                // null values cannot be looked up
+                .filter(v -> !v.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            datasetsClient.getValues(req.getPipelineId(), req.getExecutionId(), reference.getGroup().orElse(req.getGroupContextId()), authorizer,
+                    reference.getName(), values, lookupKey.getOutputColumn(), lookupKey.getKeyColumn(), reference.getTenant(), reference.getVersion(), reference.getVersionAsAt());
+        } catch (Exception e) {
+            log.warn("prefetchLookupKeys> unable to prefetch keys of '{}', will be looked up when evaluated: {}", reference.getName(), e.getMessage());
+        }
+    }
+
+    private void loadGroupHierarchy(TransformRequest req, Authorizer authorizer) {
+        try {
+            groupsClient.loadHierarchy(req.getGroupContextId(), authorizer);
+        } catch (Exception e) {
+            log.warn("loadGroupHierarchy> unable to load the group hierarchy of '{}', groups will be verified individually: {}", req.getGroupContextId(), e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Void> prefetch(TransformRequest req, Authorizer authorizer, ResourceReference reference, Set<ResourceReference> visited) {
+        if (!visited.add(reference)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // custom calculations may themselves reference further resources, which are prefetched once known
+        return CompletableFuture.supplyAsync(() -> resolve(req, authorizer, reference), executor)
+                .thenCompose(nested -> CompletableFuture.allOf(nested.stream()
+                        .map(r -> prefetch(req, authorizer, r, visited))
+                        .toArray(CompletableFuture[]::new)));
+    }
+
+    private Set<ResourceReference> resolve(TransformRequest req, Authorizer authorizer, ResourceReference reference) {
+        log.debug("resolve> in> reference:{}", reference);
+
+        var groupId = reference.getGroup().orElse(req.getGroupContextId());
+        Set<ResourceReference> nested = Set.of();
+        try {
+            switch (reference.getType()) {
+                case ACTIVITY:
+                    impactsClient.getActivity(req.getPipelineId(), req.getExecutionId(), groupId, authorizer, reference.getName(),
+                            reference.getTenant(), reference.getVersion(), reference.getVersionAsAt());
+                    break;
+                case LOOKUP:
+                    datasetsClient.prefetch(req.getPipelineId(), req.getExecutionId(), groupId, authorizer, reference.getName(),
+                            reference.getTenant(), reference.getVersion(), reference.getVersionAsAt());
+                    break;
+                case FUNCTION:
+                    var calculation = calculationsClient.getCalculation(req.getPipelineId(), req.getExecutionId(), groupId, authorizer, reference.getName(),
+                            reference.getTenant(), reference.getVersion(), reference.getVersionAsAt());
+                    nested = ResourceReferenceCollector.collect(calculation.getFormula());
+                    break;
+                default:
+                    break;
+            }
+        } catch (Exception e) {
+            log.warn("resolve> unable to prefetch {} '{}', will be resolved when evaluated: {}", reference.getType(), reference.getName(), e.getMessage());
+        }
+
+        log.debug("resolve> exit> nested:{}", nested);
+        return nested;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.execution;
+
+import com.aws.sif.resources.ResourcesRepository;
+import lombok.Value;
+
+import java.util.Optional;
+
+/**
+ * A remote resource (activity, reference dataset or custom calculation) that a formula refers to by a literal name,
+ * along with any literal optional parameters that qualify which version of it is to be used.
+ */
+@Value
+public class ResourceReference {
+    ResourcesRepository.Type type;
+    String name;
+    Optional<String> group;
+    Optional<String> tenant;
+    Optional<String> version;
+    Optional<String> versionAsAt;
+}
@@ -0,0 +1,241 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.execution;
+
+import com.aws.sif.resources.ResourcesRepository;
+import lang.sif.CalculationsBaseVisitor;
+import lang.sif.CalculationsLexer;
+import lang.sif.CalculationsParser;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Walks a parsed formula collecting the remote resources it references. Only references whose name, and any
+ * optional parameters, are literals can be identified statically. Anything dependent on the row being evaluated
+ * (e.g. a name provided as a token) is skipped, and is left to be resolved lazily at evaluation time.
+ */
+@Slf4j
+public class ResourceReferenceCollector extends CalculationsBaseVisitor<Void> {
+
+    private final Set<ResourceReference> references = new LinkedHashSet<>();
+    private final Set<LookupKeyReference> lookupKeys = new LinkedHashSet<>();
+    private final Set<String> camlTokens = new LinkedHashSet<>();
+    private boolean assignsToGroups;
+
+    public static Set<ResourceReference> collect(String formula) {
+        log.debug("collect> in> formula:{}", formula);
+        var collector = parse(formula);
+        log.debug("collect> exit:{}", collector.references);
+        return collector.references;
+    }
+
+    /**
+     * Collects the lookups whose key is a pipeline parameter (or variable), and all other arguments are literals, such
+     * that the keys of many rows may be looked up together.
+     */
+    public static Set<LookupKeyReference> collectLookupKeys(String formula) {
+        log.debug("collectLookupKeys> in> formula:{}", formula);
+        var collector = parse(formula);
+        log.debug("collectLookupKeys> exit:{}", collector.lookupKeys);
+        return collector.lookupKeys;
+    }
+
+    /**
+     * Collects the tokens (pipeline parameters or variables) provided as the product name of CaML functions, such that
+     * the product names of many rows may be inferred together.
+     */
+    public static Set<String> collectCamlTokens(String formula) {
+        log.debug("collectCamlTokens> in> formula:{}", formula);
+        var collector = parse(formula);
+        log.debug("collectCamlTokens> exit:{}", collector.camlTokens);
+        return collector.camlTokens;
+    }
+
+    /**
+     * Returns whether the formula assigns rows to groups.
+     */
+    public static boolean assignsToGroups(String formula) {
+        return parse(formula).assignsToGroups;
+    }
+
+    /**
+     * Collects everything referenced by the formulas, parsing each formula once.
+     */
+    public static RequestReferences collectAll(List<String> formulas) {
+        log.debug("collectAll> in> formulas:{}", formulas);
+        var references = new LinkedHashSet<ResourceReference>();
+        var lookupKeys = new LinkedHashSet<LookupKeyReference>();
+        var camlTokens = new LinkedHashSet<String>();
+        var assignsToGroups = false;
+        for (var formula : formulas) {
+            var collector = parse(formula);
+            references.addAll(collector.references);
+            lookupKeys.addAll(collector.lookupKeys);
+            camlTokens.addAll(collector.camlTokens);
+            assignsToGroups |= collector.assignsToGroups;
+        }
+        var result = new RequestReferences(references, lookupKeys, camlTokens, assignsToGroups);
+        log.debug("collectAll> exit:{}", result);
+        return result;
+    }
+
+    private static ResourceReferenceCollector parse(String formula) {
+        var lexer = new CalculationsLexer(CharStreams.fromString(formula));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(ParserErrorListener.INSTANCE);
+        var parser = new CalculationsParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(ParserErrorListener.INSTANCE);
+
+        var collector = new ResourceReferenceCollector();
+        try {
+            collector.visit(parser.prog());
+        } catch (ParseCancellationException e) {
+            // invalid formulas are reported as part of evaluating each row
+            log.debug("parse> unable to parse formula: {}", e.getMessage());
+        }
+        return collector;
+    }
+
+    @Override
+    public Void visitImpactFunctionExpr(CalculationsParser.ImpactFunctionExprContext ctx) {
+        literal(ctx.activity).flatMap(name -> reference(ResourcesRepository.Type.ACTIVITY, name,
+                ctx.optionalImpactParams().stream().map(CalculationsParser.OptionalImpactParamsContext::optionalCommonParam).toList()))
+                .ifPresent(references::add);
+        return visitChildren(ctx);
+    }
+
+    @Override
+    public Void visitLookupFunctionExpr(CalculationsParser.LookupFunctionExprContext ctx) {
+        var reference = literal(ctx.name).flatMap(name -> reference(ResourcesRepository.Type.LOOKUP, name,
+                ctx.optionalLookupParams().stream().map(CalculationsParser.OptionalLookupParamsContext::optionalCommonParam).toList()));
+        reference.ifPresent(references::add);
+
+        var token = token(ctx.value);
+        var keyColumn = literal(ctx.keyColumn);
+        var outputColumn = literal(ctx.outputColumn);
+        if (reference.isPresent() && token.isPresent() && keyColumn.isPresent() && outputColumn.isPresent()) {
+            lookupKeys.add(new LookupKeyReference(reference.get(), token.get(), keyColumn.get(), outputColumn.get()));
+        }
+        return visitChildren(ctx);
+    }
+
+    @Override
+    public Void visitCompositeLookupFunctionExpr(CalculationsParser.CompositeLookupFunctionExprContext ctx) {
+        literal(ctx.name).flatMap(name -> reference(ResourcesRepository.Type.LOOKUP, name,
+                ctx.optionalLookupParams().stream().map(CalculationsParser.OptionalLookupParamsContext::optionalCommonParam).toList()))
+                .ifPresent(references::add);
+        return visitChildren(ctx);
+    }
+
+    @Override
+    public Void visitLookupRangeFunctionExpr(CalculationsParser.LookupRangeFunctionExprContext ctx) {
+        literal(ctx.name).flatMap(name -> reference(ResourcesRepository.Type.LOOKUP, name,
+                ctx.optionalLookupParams().stream().map(CalculationsParser.OptionalLookupParamsContext::optionalCommonParam).toList()))
+                .ifPresent(references::add);
+        return visitChildren(ctx);
+    }
+
+    @Override
+    public Void visitAssignToGroupFunctionExpr(CalculationsParser.AssignToGroupFunctionExprContext ctx) {
+        assignsToGroups = true;
+        return visitChildren(ctx);
+    }
+
+    @Override
+    public Void visitCamlFunctionExpr(CalculationsParser.CamlFunctionExprContext ctx) {
+        token(ctx.value).ifPresent(camlTokens::add);
+        return visitChildren(ctx);
+    }
+
+    @Override
+    public Void visitCustomFunctionExpr(CalculationsParser.CustomFunctionExprContext ctx) {
+        var name = ctx.function.getText().substring(1);
+        reference(ResourcesRepository.Type.FUNCTION, name,
+                ctx.optionalCustomParams().stream().map(CalculationsParser.OptionalCustomParamsContext::optionalCommonParam).toList())
+                .ifPresent(references::add);
+        return visitChildren(ctx);
+    }
+
+    private Optional<ResourceReference> reference(ResourcesRepository.Type type, String name, List<CalculationsParser.OptionalCommonParamContext> params) {
+        Optional<String> group = Optional.empty(), tenant = Optional.empty(), version = Optional.empty(), versionAsAt = Optional.empty();
+        for (var param : params) {
+            Optional<String> value;
+            if (param.group != null) {
+                value = group = literal(param.group.expr());
+            } else if (param.tenant != null) {
+                value = tenant = literal(param.tenant.expr());
+            } else if (param.version != null) {
+                value = version = literal(param.version.expr());
+            } else {
+                value = versionAsAt = literal(param.versionAsAt.expr());
+            }
+            if (value.isEmpty()) {
+                // the optional parameter is only known at evaluation time
+                return Optional.empty();
+            }
+        }
+        if (version.isPresent() && versionAsAt.isPresent()) {
+            // invalid, will be reported when evaluated
+            return Optional.empty();
+        }
+        return Optional.of(new ResourceReference(type, name, group, tenant, version, versionAsAt));
+    }
+
+    /**
+     * Returns the name of the token if the expression is a token (parameter or variable) reference.
+     */
+    private Optional<String> token(CalculationsParser.ExprContext expr) {
+        if (!(expr instanceof CalculationsParser.AtomsExprContext)) {
+            return Optional.empty();
+        }
+        var atom = ((CalculationsParser.AtomsExprContext) expr).atom();
+        if (atom instanceof CalculationsParser.TokenAtomContext) {
+            return Optional.of(((CalculationsParser.TokenAtomContext) atom).TOKEN().getText().substring(1));
+        } else if (atom instanceof CalculationsParser.BracesAtomContext) {
+            return token(((CalculationsParser.BracesAtomContext) atom).expr());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the value of the expression if it is a literal, evaluated the same way as the execution visitor would.
+     */
+    private Optional<String> literal(CalculationsParser.ExprContext expr) {
+        if (!(expr instanceof CalculationsParser.AtomsExprContext)) {
+            return Optional.empty();
+        }
+        var atom = ((CalculationsParser.AtomsExprContext) expr).atom();
+        if (atom instanceof CalculationsParser.QuotedStringAtomContext) {
+            var quoted = ((CalculationsParser.QuotedStringAtomContext) atom).QUOTED_STRING().getText();
+            var unquoted = (quoted.startsWith("'") && quoted.endsWith("'")) ? quoted.substring(1, quoted.length() - 1) : quoted;
+            return Optional.of(unquoted.replace("\\'", "'"));
+        } else if (atom instanceof CalculationsParser.NumberAtomContext) {
+            return Optional.of(new NumberTypeValue(new BigDecimal(((CalculationsParser.NumberAtomContext) atom).NUMBER().getText())).asString());
+        } else if (atom instanceof CalculationsParser.ScientificAtomContext) {
+            return Optional.of(new NumberTypeValue(new BigDecimal(((CalculationsParser.ScientificAtomContext) atom).SCIENTIFIC_NUMBER().getText())).asString());
+        } else if (atom instanceof CalculationsParser.BracesAtomContext) {
+            return literal(((CalculationsParser.BracesAtomContext) atom).expr());
+        }
+        return Optional.empty();
+    }
+}
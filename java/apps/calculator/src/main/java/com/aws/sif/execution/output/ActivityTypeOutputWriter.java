@@ -14,6 +14,7 @@ package com.aws.sif.execution.output;
 
 import com.aws.sif.ActivityTypeRecord;
 import com.aws.sif.S3Location;
+import com.aws.sif.S3Upload;
 import com.aws.sif.S3Utils;
 import com.aws.sif.execution.*;
 import com.typesafe.config.Config;
@@ -26,8 +27,6 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -36,8 +35,9 @@ import java.util.concurrent.CompletableFuture;
 public class ActivityTypeOutputWriter implements OutputWriter<ActivityTypeRecord> {
     private final S3Utils s3;
     private final Config config;
+    private OutputSink activityValueSink;
     private BufferedWriter activityValueWriter;
-    public Path activityValuePath;
+    public String activityValueName;
     // context
     private String pipelineId;
     private String executionId;
@@ -62,12 +62,22 @@ public class ActivityTypeOutputWriter implements OutputWriter<ActivityTypeRecord
 
     private void initLocalFiles(int chunkNo) throws IOException {
 
-        if (this.activityValueWriter != null) {
-            this.activityValueWriter.close();
+        // an output which was never submitted (e.g. a dry run) is abandoned
+        if (this.activityValueSink != null) {
+            this.activityValueSink.discard();
         }
 
-        this.activityValuePath = Files.createTempFile(String.format("%s-%s_", chunkNo, config.getString("calculator.upload.s3.activityValues.name")), ".csv");
-        this.activityValueWriter = Files.newBufferedWriter(this.activityValuePath);
+        this.activityValueName = String.format("%s-%s_%s.csv", chunkNo, config.getString("calculator.upload.s3.activityValues.name"), UUID.randomUUID());
+        var location = new S3Location(config.getString("calculator.upload.s3.bucket"), config.getString("calculator.upload.s3.activities.key")
+                .replace("<pipelineId>", this.pipelineId)
+                .replace("<executionId>", this.executionId)
+                + this.activityValueName);
+        Map<String, String> metadata = Map.of(
+                "pipelineId", this.pipelineId,
+                "executionId", this.executionId
+        );
+        this.activityValueSink = new OutputSink(s3, config.getString("calculator.upload.s3.outputs.mode"), location, metadata);
+        this.activityValueWriter = this.activityValueSink.writer();
         this.activityValueWriter.append("activityId,groupId,pipelineId,executionId,date,key1,key2,key3,key4,key5,isDeletion,name,createdAt,val,error,errorMessage,auditId,dataType\n");
 
     }
@@ -220,41 +230,23 @@ public class ActivityTypeOutputWriter implements OutputWriter<ActivityTypeRecord
 
 
     /**
-     * Uploads the local csv files to s3, ready for db insertion
+     * Completes the csv output, ready for db insertion, uploading whatever of it has not already been streamed to s3
      *
+     * @return the uploads, in flight
      * @throws IOException
      */
-    public void submit() throws IOException {
-        log.debug("submit> in> activityValuePath:{}", activityValuePath);
+    public List<CompletableFuture<S3Upload>> submit() throws IOException {
+        log.debug("submit> in> activityValueName:{}", activityValueName);
 
-        var bucket = config.getString("calculator.upload.s3.bucket");
-
-        List<Path> uploads = new ArrayList<Path>();
-
-        Map<String, String> metadata = Map.of(
-                "pipelineId", this.pipelineId,
-                "executionId", this.executionId
-        );
+        return List.of(this.activityValueSink.submit());
+    }
 
+    public void discard() {
+        log.debug("discard> in>");
 
-        if (this.activityValueWriter != null) {
-            this.activityValueWriter.flush();
-            this.activityValueWriter.close();
+        if (this.activityValueSink != null) {
+            this.activityValueSink.discard();
         }
-
-        uploads.add(0, this.activityValuePath);
-
-        CompletableFuture<?>[] futures = uploads.stream()
-                .map(filePath -> s3.uploadAsync(
-                        new S3Location(bucket, config.getString("calculator.upload.s3.activities.key")
-                                .replace("<pipelineId>", this.pipelineId)
-                                .replace("<executionId>", this.executionId)
-                                + filePath.getFileName().toString())
-                        , filePath, metadata))
-                .toArray(CompletableFuture[]::new);
-
-        // Wait for all futures to complete
-        CompletableFuture.allOf(futures).join();
     }
 
     @Data
@@ -14,6 +14,7 @@ package com.aws.sif.execution.output;
 
 import com.aws.sif.DataTypeRecord;
 import com.aws.sif.S3Location;
+import com.aws.sif.S3Upload;
 import com.aws.sif.S3Utils;
 import com.aws.sif.execution.StringTypeValue;
 import com.typesafe.config.Config;
@@ -22,8 +23,6 @@ import org.apache.commons.lang3.Validate;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +32,8 @@ import java.util.concurrent.CompletableFuture;
 public class DataTypeOutputWriter implements OutputWriter<DataTypeRecord> {
     private final S3Utils s3;
     private final Config config;
+    private OutputSink activityValueSink;
     private BufferedWriter activityValueWriter;
-    private Path activityValuePath;
     // context
     private String pipelineId;
     private String executionId;
@@ -55,12 +54,15 @@ public class DataTypeOutputWriter implements OutputWriter<DataTypeRecord> {
     }
 
     private void initLocalFiles(int chunkNo, Map<String, String> outputMap) throws IOException {
-        if (this.activityValueWriter != null) {
-            this.activityValueWriter.close();
+        // an output which was never submitted (e.g. a dry run) is abandoned
+        if (this.activityValueSink != null) {
+            this.activityValueSink.discard();
         }
 
-        this.activityValuePath = Files.createTempFile(String.format("%s-%s_", chunkNo, config.getString("calculator.upload.s3.activityValues.name")), ".csv");
-        this.activityValueWriter = Files.newBufferedWriter(this.activityValuePath);
+        var location = new S3Location(config.getString("calculator.upload.s3.bucket"), config.getString("calculator.upload.s3.activities.key").replace("<pipelineId>", this.pipelineId).replace("<executionId>", this.executionId) + chunkNo + ".csv");
+        Map<String, String> metadata = Map.of("pipelineId", this.pipelineId, "executionId", this.executionId);
+        this.activityValueSink = new OutputSink(s3, config.getString("calculator.upload.s3.outputs.mode"), location, metadata);
+        this.activityValueWriter = this.activityValueSink.writer();
         // only set header for the first chunk
         if (chunkNo == 0) {
             this.activityValueWriter.append(String.join(",", outputMap.keySet().toArray(String[]::new))).append("\n");
@@ -88,29 +90,22 @@ public class DataTypeOutputWriter implements OutputWriter<DataTypeRecord> {
     }
 
     /**
-     * Uploads the local csv files to s3, ready for db insertion
+     * Completes the csv output, ready for db insertion, uploading whatever of it has not already been streamed to s3
      *
+     * @return the uploads, in flight
      * @throws IOException
      */
-    public void submit() throws IOException {
-        log.debug("submit> in> activityValuePath:{}", activityValuePath);
-
-        var bucket = config.getString("calculator.upload.s3.bucket");
+    public List<CompletableFuture<S3Upload>> submit() throws IOException {
+        log.debug("submit> in> chunkNo:{}", chunkNo);
 
-        List<Path> uploads = new ArrayList<Path>();
+        return List.of(this.activityValueSink.submit());
+    }
 
-        Map<String, String> metadata = Map.of("pipelineId", this.pipelineId, "executionId", this.executionId);
+    public void discard() {
+        log.debug("discard> in>");
 
-        if (this.activityValueWriter != null) {
-            this.activityValueWriter.flush();
-            this.activityValueWriter.close();
+        if (this.activityValueSink != null) {
+            this.activityValueSink.discard();
         }
-
-        uploads.add(0, this.activityValuePath);
-
-        CompletableFuture<?>[] futures = uploads.stream().map(filePath -> s3.uploadAsync(new S3Location(bucket, config.getString("calculator.upload.s3.activities.key").replace("<pipelineId>", this.pipelineId).replace("<executionId>", this.executionId) + chunkNo + ".csv"), filePath, metadata)).toArray(CompletableFuture[]::new);
-
-        // Wait for all futures to complete
-        CompletableFuture.allOf(futures).join();
     }
 }
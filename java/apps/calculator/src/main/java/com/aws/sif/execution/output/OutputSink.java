@@ -0,0 +1,118 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.execution.output;
+
+import com.aws.sif.S3Location;
+import com.aws.sif.S3MultipartOutputStream;
+import com.aws.sif.S3Upload;
+import com.aws.sif.S3Utils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where an output writer's csv is written to. In <code>stream</code> mode the csv is uploaded to S3 as it is written,
+ * whereas in <code>file</code> mode it is written to a temporary file which is uploaded once submitted, the file being
+ * deleted once uploaded.
+ */
+@Slf4j
+class OutputSink {
+
+    static final String MODE_STREAM = "stream";
+    static final String MODE_FILE = "file";
+
+    private final S3Utils s3;
+    private final S3Location location;
+    private final Map<String, String> metadata;
+    private final S3MultipartOutputStream stream;
+    private final Path path;
+    private final BufferedWriter writer;
+    private boolean submitted;
+
+    OutputSink(S3Utils s3, String mode, S3Location location, Map<String, String> metadata) throws IOException {
+        log.debug("OutputSink> in> mode:{}, location:{}", mode, location);
+        this.s3 = s3;
+        this.location = location;
+        this.metadata = metadata;
+        if (MODE_STREAM.equals(mode)) {
+            this.stream = s3.openUploadStream(location, metadata);
+            this.path = null;
+            this.writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        } else if (MODE_FILE.equals(mode)) {
+            this.stream = null;
+            this.path = Files.createTempFile("output_", ".csv");
+            this.writer = Files.newBufferedWriter(path);
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported output upload mode '%s'", mode));
+        }
+    }
+
+    BufferedWriter writer() {
+        return writer;
+    }
+
+    /**
+     * Completes the output, starting its upload (or the upload of what remains of it if streamed).
+     *
+     * @return the upload, in flight
+     */
+    CompletableFuture<S3Upload> submit() throws IOException {
+        log.debug("submit> in> location:{}", location);
+        submitted = true;
+        writer.flush();
+        if (stream != null) {
+            // not closed, as closing the stream would wait for the upload to complete
+            return stream.complete();
+        }
+        writer.close();
+        return s3.uploadAsync(location, path, metadata)
+                .whenComplete((r, e) -> deleteFile());
+    }
+
+    /**
+     * Abandons an output which has not been submitted, aborting its upload or deleting its file.
+     */
+    void discard() {
+        if (submitted) {
+            return;
+        }
+        log.debug("discard> in> location:{}", location);
+        submitted = true;
+        if (stream != null) {
+            stream.abort();
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("discard> failed closing {}: {}", path, e.getMessage());
+        }
+        deleteFile();
+    }
+
+    private void deleteFile() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("deleteFile> failed deleting {}: {}", path, e.getMessage());
+        }
+    }
+}
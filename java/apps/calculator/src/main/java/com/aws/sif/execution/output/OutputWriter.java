@@ -1,6 +1,9 @@
 package com.aws.sif.execution.output;
 
+import com.aws.sif.S3Upload;
+
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -9,5 +12,15 @@ public interface OutputWriter<T> {
 
     CompletableFuture<Void> addRecord(T record) throws IOException;
 
-    void submit() throws IOException;
+    /**
+     * Closes the output, starting its upload.
+     *
+     * @return the uploads of the output's files, in flight
+     */
+    List<CompletableFuture<S3Upload>> submit() throws IOException;
+
+    /**
+     * Abandons the output if not submitted, aborting its upload or deleting its file.
+     */
+    void discard();
 }
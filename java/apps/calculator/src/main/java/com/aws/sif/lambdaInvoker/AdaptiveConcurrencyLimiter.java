@@ -0,0 +1,176 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.lambdaInvoker;
+
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Limits the number of concurrent invocations of a single downstream function using an additive increase /
+ * multiplicative decrease (AIMD) algorithm: every successful invocation grows the limit by <code>1/limit</code>,
+ * whereas every throttled invocation shrinks it by the configured backoff ratio. Only throttles of invocations
+ * started after the most recent decrease are acted upon, so a burst of throttles reduces the limit once rather
+ * than collapsing it to the minimum.
+ * <p>
+ * Callers that exceed the limit are queued, and released in order as capacity becomes available.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int LATENCY_SAMPLES = 100;
+
+    @Getter
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private int latencyCount;
+    private int latencyIndex;
+
+    // metrics, reset each time they are published
+    private long throttles;
+    private long retries;
+    private long hedges;
+    private long hedgeWins;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns a future that completes once the caller has been granted a permit. Every granted permit must be
+     * returned via {@link #release(Outcome, long, long)}.
+     */
+    public synchronized CompletableFuture<Void> acquire() {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return CompletableFuture.completedFuture(null);
+        }
+        var waiter = new CompletableFuture<Void>();
+        waiters.add(waiter);
+        log.trace("acquire> {} queued, inFlight:{}, limit:{}", name, inFlight, limit);
+        return waiter;
+    }
+
+    /**
+     * Grants a permit only if one is immediately available.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    public void release(Outcome outcome, long startNanos, long latencyMillis) {
+        var ready = new ArrayList<CompletableFuture<Void>>();
+        synchronized (this) {
+            inFlight--;
+            switch (outcome) {
+                case SUCCESS -> {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                    latencies[latencyIndex] = latencyMillis;
+                    latencyIndex = (latencyIndex + 1) % LATENCY_SAMPLES;
+                    latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+                }
+                case THROTTLED -> {
+                    throttles++;
+                    if (startNanos - lastDecreaseNanos >= 0) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                        lastDecreaseNanos = System.nanoTime();
+                        log.debug("release> {} throttled, limit decreased to:{}", name, limit);
+                    }
+                }
+                default -> {
+                }
+            }
+            while (!waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                ready.add(waiters.poll());
+            }
+        }
+        // complete outside of the lock as the waiters continue on this thread
+        ready.forEach(w -> w.complete(null));
+    }
+
+    /**
+     * The 95th percentile latency of recent successful invocations, if enough have been sampled.
+     */
+    public synchronized OptionalLong p95LatencyMillis(int minSamples) {
+        if (latencyCount == 0 || latencyCount < minSamples) {
+            return OptionalLong.empty();
+        }
+        var sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return OptionalLong.of(sorted[(int) Math.ceil(latencyCount * 0.95) - 1]);
+    }
+
+    public synchronized void recordRetry() {
+        retries++;
+    }
+
+    public synchronized void recordHedge() {
+        hedges++;
+    }
+
+    public synchronized void recordHedgeWin() {
+        hedgeWins++;
+    }
+
+    public synchronized Metrics snapshotAndReset() {
+        var metrics = new Metrics(name, limit, inFlight, waiters.size(), throttles, retries, hedges, hedgeWins, p95LatencyMillis(1).orElse(0));
+        throttles = retries = hedges = hedgeWins = 0;
+        return metrics;
+    }
+
+    public enum Outcome {
+        SUCCESS, THROTTLED, FAILED,
+        // the permit was granted but never used to invoke
+        CANCELLED
+    }
+
+    @Value
+    public static class Metrics {
+        String functionName;
+        double limit;
+        int inFlight;
+        int queued;
+        long throttles;
+        long retries;
+        long hedges;
+        long hedgeWins;
+        long p95LatencyMillis;
+    }
+}
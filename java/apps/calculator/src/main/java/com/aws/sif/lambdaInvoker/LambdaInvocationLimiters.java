@@ -0,0 +1,188 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.lambdaInvoker;
+
+import com.aws.sif.metrics.EmbeddedMetrics;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomUtils;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+import software.amazon.awssdk.services.lambda.model.LambdaException;
+import software.amazon.awssdk.services.lambda.model.TooManyRequestsException;
+
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Shared across all {@link LambdaInvoker}s so that the invocations of each downstream function are governed by a
+ * single {@link AdaptiveConcurrencyLimiter} per container.
+ * <p>
+ * Throttled invocations are retried with full jitter exponential backoff. Idempotent invocations may optionally be
+ * hedged: if no response has been received by the p95 latency of recent invocations of the same function, a duplicate
+ * request is sent (capacity permitting) and whichever responds first successfully is used.
+ */
+@Slf4j
+public class LambdaInvocationLimiters {
+
+    private final Config config;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters;
+    private final ScheduledExecutorService scheduler;
+
+    @Inject
+    public LambdaInvocationLimiters(Config config) {
+        this.config = config;
+        this.limiters = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("lambda-invoker-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public AdaptiveConcurrencyLimiter limiter(String functionName) {
+        return limiters.computeIfAbsent(functionName, f -> new AdaptiveConcurrencyLimiter(f,
+                config.getInt("calculator.lambda.limiter.initialLimit"),
+                config.getInt("calculator.lambda.limiter.minLimit"),
+                config.getInt("calculator.lambda.limiter.maxLimit"),
+                config.getDouble("calculator.lambda.limiter.backoffRatio")));
+    }
+
+    public CompletableFuture<InvokeResponse> execute(String functionName, boolean idempotent, Supplier<CompletableFuture<InvokeResponse>> invocation) {
+        log.trace("execute> in> functionName:{}, idempotent:{}", functionName, idempotent);
+
+        var limiter = limiter(functionName);
+        var primary = attempt(limiter, invocation, 0);
+        if (!idempotent || !config.getBoolean("calculator.lambda.hedge.enabled")) {
+            return primary;
+        }
+
+        var p95 = limiter.p95LatencyMillis(config.getInt("calculator.lambda.hedge.minSamples"));
+        if (p95.isEmpty()) {
+            return primary;
+        }
+        var delay = Math.max(p95.getAsLong(), config.getLong("calculator.lambda.hedge.minDelayInMillis"));
+
+        var result = new CompletableFuture<InvokeResponse>();
+        var outstanding = new AtomicInteger(1);
+        race(result, primary, outstanding, limiter, false);
+
+        scheduler.schedule(() -> {
+            // only hedge if still waiting, and if we can do so without exceeding the limit
+            if (result.isDone() || !limiter.tryAcquire()) {
+                return;
+            }
+            // the primary may have completed since, in which case there is nothing left to race (a failed primary
+            // having already brought outstanding to 0), so join only while an attempt is still outstanding
+            if (outstanding.getAndUpdate(n -> n > 0 ? n + 1 : n) == 0 || result.isDone()) {
+                limiter.release(AdaptiveConcurrencyLimiter.Outcome.CANCELLED, System.nanoTime(), 0);
+                return;
+            }
+            log.debug("execute> hedging invocation of {} after {}ms", functionName, delay);
+            limiter.recordHedge();
+            race(result, invokeOnce(limiter, invocation), outstanding, limiter, true);
+        }, delay, TimeUnit.MILLISECONDS);
+
+        return result;
+    }
+
+    private void race(CompletableFuture<InvokeResponse> result, CompletableFuture<InvokeResponse> attempt, AtomicInteger outstanding, AdaptiveConcurrencyLimiter limiter, boolean hedge) {
+        attempt.whenComplete((r, e) -> {
+            if (e == null) {
+                if (result.complete(r) && hedge) {
+                    limiter.recordHedgeWin();
+                }
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private CompletableFuture<InvokeResponse> attempt(AdaptiveConcurrencyLimiter limiter, Supplier<CompletableFuture<InvokeResponse>> invocation, int attemptNo) {
+        return limiter.acquire()
+                .thenCompose(v -> invokeOnce(limiter, invocation))
+                .handle((r, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(r);
+                    }
+                    if (isThrottle(e) && attemptNo < config.getInt("calculator.lambda.retry.numberOfRetries")) {
+                        limiter.recordRetry();
+                        var backoff = Math.min(config.getLong("calculator.lambda.retry.maxBackOffInMillis"),
+                                config.getLong("calculator.lambda.retry.baseBackOffInMillis") * (1L << attemptNo));
+                        var delay = RandomUtils.nextLong(0, backoff + 1);
+                        log.debug("attempt> {} throttled, retry {} in {}ms", limiter.getName(), attemptNo + 1, delay);
+                        var delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, scheduler);
+                        return CompletableFuture.runAsync(() -> {}, delayed).thenCompose(v -> attempt(limiter, invocation, attemptNo + 1));
+                    }
+                    return CompletableFuture.<InvokeResponse>failedFuture(e);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Performs a single invocation, the caller having already been granted a permit from the limiter.
+     */
+    private CompletableFuture<InvokeResponse> invokeOnce(AdaptiveConcurrencyLimiter limiter, Supplier<CompletableFuture<InvokeResponse>> invocation) {
+        var start = System.nanoTime();
+        CompletableFuture<InvokeResponse> future;
+        try {
+            future = invocation.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((r, e) -> {
+            var outcome = (e == null) ? AdaptiveConcurrencyLimiter.Outcome.SUCCESS
+                    : isThrottle(e) ? AdaptiveConcurrencyLimiter.Outcome.THROTTLED
+                    : AdaptiveConcurrencyLimiter.Outcome.FAILED;
+            limiter.release(outcome, start, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        });
+    }
+
+    private boolean isThrottle(Throwable e) {
+        var cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+        return cause instanceof TooManyRequestsException
+                || (cause instanceof LambdaException && ((LambdaException) cause).statusCode() == 429);
+    }
+
+    public List<AdaptiveConcurrencyLimiter.Metrics> snapshotAndReset() {
+        return limiters.values().stream().map(AdaptiveConcurrencyLimiter::snapshotAndReset).collect(Collectors.toList());
+    }
+
+    /**
+     * Publishes the state of each limiter as CloudWatch metrics.
+     */
+    public void publishMetrics() {
+        var namespace = config.getString("calculator.metrics.namespace");
+        for (var m : snapshotAndReset()) {
+            var values = new LinkedHashMap<String, Number>();
+            values.put("Limit", m.getLimit());
+            values.put("InFlight", m.getInFlight());
+            values.put("Queued", m.getQueued());
+            values.put("Throttles", m.getThrottles());
+            values.put("Retries", m.getRetries());
+            values.put("Hedges", m.getHedges());
+            values.put("HedgeWins", m.getHedgeWins());
+            values.put("P95Latency", m.getP95LatencyMillis());
+            EmbeddedMetrics.publish(namespace, "FunctionName", m.getFunctionName(), values, Set.of("P95Latency"));
+        }
+    }
+}
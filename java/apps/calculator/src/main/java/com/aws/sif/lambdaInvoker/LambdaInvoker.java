@@ -16,8 +16,10 @@ package com.aws.sif.lambdaInvoker;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.aws.sif.Authorizer;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializer;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.joda.time.DateTime;
 import software.amazon.awssdk.core.SdkBytes;
@@ -29,29 +31,38 @@ import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class LambdaInvoker<T> {
 
     private final LambdaAsyncClient lambdaClient;
+    private final LambdaInvocationLimiters limiters;
+    private final TokenService tokens;
 
-    private final Map<String,String> jwsMap;
+    /**
+     * Gson is thread safe, so a single instance is shared by all invokers.
+     */
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(DateTime.class, (JsonDeserializer<DateTime>) (json, type, jsonDeserializationContext) ->
+            DateTime.parse(json.getAsJsonPrimitive().getAsString())).create();
+
+    private final Map<InvocationKey, CompletableFuture<LambdaResponse<T>>> inFlight;
 
     @Inject
-    public LambdaInvoker(LambdaAsyncClient awsLambda) {
+    public LambdaInvoker(LambdaAsyncClient awsLambda, LambdaInvocationLimiters limiters, TokenService tokens) {
         this.lambdaClient = awsLambda;
-        this.jwsMap = new HashMap<>();
+        this.limiters = limiters;
+        this.tokens = tokens;
+        this.inFlight = new ConcurrentHashMap<>();
     }
 
 
     private Map<String, String> headers(String groupContextId, Optional<String> tenantId, Authorizer authorizer) {
         log.debug("headers> in> groupContextId:{}, tenantId:{}", groupContextId, tenantId);
 
-        var jwsMapKey = String.format("%s-%s", groupContextId, tenantId.orElse(""));
-        if (!jwsMap.containsKey(jwsMapKey)) {
-            jwsMap.put(jwsMapKey, authorizer.buildJwt(groupContextId, tenantId));
-        }
-        var jws = jwsMap.get(jwsMapKey);
+        var jws = tokens.jwt(authorizer, groupContextId, tenantId);
 
         var map = new HashMap<String, String>();
         map.put("Accept", "application/json");
@@ -72,10 +83,56 @@ public class LambdaInvoker<T> {
         log.debug("invokeFunction> in> functionName:{}, groupContextId:{}, authorizer:{}, httpMethod:{}, path:{}, queryString:{}, body:{}, tenantId:{} ",
                 functionName, groupContextId, authorizer, httpMethod, path, queryString, body, tenantId);
 
-        LambdaResponse<T> response;
+        var response = invokeFunctionAsync(functionName, groupContextId, authorizer, httpMethod, path, queryString, body, tenantId, responseBodyClass).join();
+
+        log.debug("invokeFunction> exit:{}", response);
+        return response;
+    }
+
+    /**
+     * Invokes the function without blocking. Concurrent GET requests for the same function, path, query string, group
+     * context, tenant and caller are coalesced so that all callers share the single invocation already in flight.
+     * <p>
+     * Any failure completes the returned future with a {@link java.util.concurrent.CompletionException} whose cause
+     * is a {@link LambdaInvocationException}.
+     */
+    public CompletableFuture<LambdaResponse<T>> invokeFunctionAsync(String functionName, String groupContextId, Authorizer authorizer, String httpMethod, String path, Optional<Map<String, String>> queryString, Optional<String> body, Optional<String> tenantId, Class<T> responseBodyClass) {
+        log.debug("invokeFunctionAsync> in> functionName:{}, groupContextId:{}, authorizer:{}, httpMethod:{}, path:{}, queryString:{}, body:{}, tenantId:{} ",
+                functionName, groupContextId, authorizer, httpMethod, path, queryString, body, tenantId);
+
+        // only idempotent requests are safe to share
+        if (!"GET".equals(httpMethod) || body.isPresent()) {
+            return invoke(functionName, groupContextId, authorizer, httpMethod, path, queryString, body, tenantId, responseBodyClass);
+        }
+
+        var key = new InvocationKey(functionName, path, queryString, groupContextId, tenantId, authorizer);
+        var promise = new CompletableFuture<LambdaResponse<T>>();
+        var inFlight = this.inFlight.putIfAbsent(key, promise);
+        if (inFlight != null) {
+            log.debug("invokeFunctionAsync> exit> joining in flight invocation:{}", key);
+            return inFlight;
+        }
+
+        invoke(functionName, groupContextId, authorizer, httpMethod, path, queryString, body, tenantId, responseBodyClass)
+                .whenComplete((r, e) -> {
+                    this.inFlight.remove(key, promise);
+                    if (e != null) {
+                        promise.completeExceptionally(e);
+                    } else {
+                        promise.complete(r);
+                    }
+                });
+
+        log.debug("invokeFunctionAsync> exit:");
+        return promise;
+    }
+
+    private CompletableFuture<LambdaResponse<T>> invoke(String functionName, String groupContextId, Authorizer authorizer, String httpMethod, String path, Optional<Map<String, String>> queryString, Optional<String> body, Optional<String> tenantId, Class<T> responseBodyClass) {
+        log.debug("invoke> in> functionName:{}, groupContextId:{}, httpMethod:{}, path:{}, tenantId:{} ",
+                functionName, groupContextId, httpMethod, path, tenantId);
+
+        InvokeRequest request;
         try {
-            // Need a SdkBytes instance for the payload.
-            var cognitoGroup = String.format("%s|||reader", groupContextId);
             var event = new APIGatewayProxyRequestEvent();
             event.setPath(path);
             event.setHttpMethod(httpMethod);
@@ -84,55 +141,65 @@ public class LambdaInvoker<T> {
             queryString.ifPresent(qs->event.setQueryStringParameters(qs));
 
             var requestContext = new APIGatewayProxyRequestEvent.ProxyRequestContext();
-            requestContext.setAuthorizer(authorizer.buildRequestContextAuthorizer(groupContextId, tenantId));
+            requestContext.setAuthorizer(tokens.requestContextAuthorizer(authorizer, groupContextId, tenantId));
 
             event.setRequestContext(requestContext);
 
-            var gson = new GsonBuilder().registerTypeAdapter(DateTime.class, (JsonDeserializer<DateTime>) (json, type, jsonDeserializationContext) ->
-                    DateTime.parse(json.getAsJsonPrimitive().getAsString())).create();
-
-            var json = gson.toJson(event);
-
-            var requestPayload = SdkBytes.fromUtf8String(json);
+            // Need a SdkBytes instance for the payload.
+            var requestPayload = SdkBytes.fromUtf8String(GSON.toJson(event));
 
             // Setup an InvokeRequest.
-            var request = InvokeRequest.builder()
+            request = InvokeRequest.builder()
                     .functionName(functionName)
                     .payload(requestPayload)
                     .build();
-            log.trace("invokeFunction> request:{}", request);
-
-            response = lambdaClient.invoke(request)
-                    .thenApplyAsync(r-> {
-                        log.trace("invokeFunction> response:{}", r);
-                        if (r.statusCode() >= 200 && r.statusCode() < 300) {
-                            var responsePayload = gson.fromJson(r.payload().asUtf8String(), APIGatewayProxyResponseEvent.class);
-                            log.trace("invokeFunction> responsePayload:{}", responsePayload);
-                            var responseBody = gson.fromJson(responsePayload.getBody(), responseBodyClass);
-                            log.trace("invokeFunction> responseBody:{}", responseBody);
-
-                            var result = new LambdaResponse<>(responsePayload.getStatusCode(), responseBody);
-                            if (r.functionError() != null) {
-                                throw new LambdaInvocationException(r.functionError(), responsePayload);
-                            }
-                            if (result.getStatusCode() >= 300) {
-                                throw new LambdaInvocationException(r.functionError(), result.getStatusCode(), responsePayload);
-                            }
-
-                            return result;
-                        } else {
-                            throw new LambdaInvocationException(r.functionError(), r.statusCode());
+            log.trace("invoke> request:{}", request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(new CompletionException(e));
+        }
+
+        // only reads without a body are safe to hedge
+        var idempotent = "GET".equals(httpMethod) && body.isEmpty();
+        var invokeRequest = request;
+        return limiters.execute(functionName, idempotent, () -> lambdaClient.invoke(invokeRequest))
+                .handle((r, e) -> {
+                    if (e != null) {
+                        var cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                        if (cause instanceof LambdaException) {
+                            throw new LambdaInvocationException(cause.getMessage(), ((LambdaException) cause).statusCode());
+                        }
+                        throw new LambdaInvocationException(cause.getMessage(), -1);
+                    }
+                    log.trace("invoke> response:{}", r);
+                    if (r.statusCode() >= 200 && r.statusCode() < 300) {
+                        var responsePayload = GSON.fromJson(r.payload().asUtf8String(), APIGatewayProxyResponseEvent.class);
+                        log.trace("invoke> responsePayload:{}", responsePayload);
+                        var responseBody = GSON.fromJson(responsePayload.getBody(), responseBodyClass);
+                        log.trace("invoke> responseBody:{}", responseBody);
+
+                        var result = new LambdaResponse<>(responsePayload.getStatusCode(), responseBody);
+                        if (r.functionError() != null) {
+                            throw new LambdaInvocationException(r.functionError(), responsePayload);
+                        }
+                        if (result.getStatusCode() >= 300) {
+                            throw new LambdaInvocationException(r.functionError(), result.getStatusCode(), responsePayload);
                         }
-                    }).join();
 
+                        return result;
+                    } else {
+                        throw new LambdaInvocationException(r.functionError(), r.statusCode());
+                    }
+                });
+    }
 
-        } catch (LambdaException e) {
-            throw new LambdaInvocationException(e.getMessage(), e.statusCode());
-        } catch (LambdaInvocationException e) {
-            throw e;
-        }
-        log.debug("invokeFunction> exit:{}", response);
-        return response;
+    @Value
+    private static class InvocationKey {
+        String functionName;
+        String path;
+        Optional<Map<String, String>> queryString;
+        String groupContextId;
+        Optional<String> tenantId;
+        Authorizer authorizer;
     }
 
 }
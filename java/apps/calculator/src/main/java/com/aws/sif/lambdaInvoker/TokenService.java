@@ -0,0 +1,135 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.lambdaInvoker;
+
+import com.aws.sif.Authorizer;
+import com.typesafe.config.Config;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the claims, and signed JWT, that downstream modules are invoked with on behalf of a user. Both are cached
+ * per user, groups, authorizer and target group context, and tenant for a limited time, with the least recently used
+ * evicted once the maximum number of entries is reached.
+ * <p>
+ * A single signing key is generated per container. The modules do not verify the key as that's the responsibility of
+ * the IdP.
+ */
+@Slf4j
+public class TokenService {
+
+    private final SecretKey secretKey;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<TokenKey, Token> tokens;
+
+    @Inject
+    public TokenService(Config config) {
+        this(config.getLong("calculator.tokens.ttlInMillis"), config.getInt("calculator.tokens.maxEntries"), System::currentTimeMillis);
+    }
+
+    TokenService(long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.tokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TokenKey, Token> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public String jwt(Authorizer authorizer, String targetGroupContextId, Optional<String> tenantId) {
+        return token(authorizer, targetGroupContextId, tenantId).getJwt();
+    }
+
+    public Map<String, Object> requestContextAuthorizer(Authorizer authorizer, String targetGroupContextId, Optional<String> tenantId) {
+        return token(authorizer, targetGroupContextId, tenantId).getRequestContextAuthorizer();
+    }
+
+    private Token token(Authorizer authorizer, String targetGroupContextId, Optional<String> tenantId) {
+        var key = new TokenKey(authorizer.getEmail(), authorizer.getGroups(), authorizer.getGroupContextId(), targetGroupContextId, tenantId);
+        var now = clock.getAsLong();
+        synchronized (tokens) {
+            var token = tokens.get(key);
+            if (token != null && now < token.getExpiresAt()) {
+                return token;
+            }
+        }
+
+        // built outside of the lock, as signing is comparatively expensive
+        log.debug("token> building> key:{}", key);
+        var claims = Collections.unmodifiableMap(claims(authorizer, targetGroupContextId, tenantId));
+        var jwt = Jwts.builder()
+                .setSubject("Calculator")
+                .addClaims(claims)
+                .signWith(secretKey)
+                .compact();
+        var token = new Token(jwt, Map.of("claims", claims), now + ttlMillis);
+        synchronized (tokens) {
+            tokens.put(key, token);
+        }
+        return token;
+    }
+
+    private Map<String, Object> claims(Authorizer authorizer, String targetGroupContextId, Optional<String> tenantId) {
+        var cognitoGroups = authorizer.getGroups().stream().map(g -> String.format("%s|||reader", g)).collect(Collectors.joining(","));
+
+        var claims = new HashMap<String, Object>(Map.of(
+                "email", String.format("Calculator (%s)", authorizer.getEmail()),
+                "cognito:groups", cognitoGroups
+        ));
+
+        tenantId.ifPresentOrElse(
+                t -> {
+                    claims.put("tenantId", t);
+                    claims.put("groupContextId", authorizer.getGroupContextId());
+                },
+                () -> claims.put("groupContextId", targetGroupContextId)
+        );
+
+        return claims;
+    }
+
+    @Value
+    private static class TokenKey {
+        String email;
+        Set<String> groups;
+        String groupContextId;
+        String targetGroupContextId;
+        Optional<String> tenantId;
+    }
+
+    @Value
+    private static class Token {
+        String jwt;
+        Map<String, Object> requestContextAuthorizer;
+        long expiresAt;
+    }
+}
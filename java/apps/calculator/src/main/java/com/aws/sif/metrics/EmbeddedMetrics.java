@@ -0,0 +1,59 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.metrics;
+
+import com.google.gson.Gson;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes CloudWatch metrics using the embedded metric format, which CloudWatch extracts from the function's log
+ * output. The documents are written directly to stdout (rather than via the logger) as each log event must consist
+ * of the json document alone.
+ */
+public final class EmbeddedMetrics {
+
+    private static final Gson GSON = new Gson();
+
+    private EmbeddedMetrics() {
+    }
+
+    /**
+     * @param namespace          the CloudWatch namespace
+     * @param dimensionName      the single dimension the metrics are published against
+     * @param dimensionValue     the value of the dimension
+     * @param values             the metric values, all of unit <code>Count</code> unless listed within <code>milliseconds</code>
+     * @param milliseconds       the names of the metrics which are of unit <code>Milliseconds</code>
+     */
+    public static void publish(String namespace, String dimensionName, String dimensionValue, Map<String, Number> values, Set<String> milliseconds) {
+        var metrics = values.keySet().stream()
+                .map(n -> Map.of("Name", n, "Unit", milliseconds.contains(n) ? "Milliseconds" : "Count"))
+                .collect(Collectors.toList());
+
+        var document = new LinkedHashMap<String, Object>();
+        document.put("_aws", Map.of(
+                "Timestamp", System.currentTimeMillis(),
+                "CloudWatchMetrics", List.of(Map.of(
+                        "Namespace", namespace,
+                        "Dimensions", List.of(List.of(dimensionName)),
+                        "Metrics", metrics))));
+        document.put(dimensionName, dimensionValue);
+        document.putAll(values);
+
+        System.out.println(GSON.toJson(document));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources;
+
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the keys of resources (or lookup values) that were found not to exist, along with the reason, for a
+ * limited time. This allows data containing a systematically bad reference to fail fast per row rather than
+ * re-requesting the same missing resource from the downstream service every time.
+ * <p>
+ * The oldest entries are evicted once the maximum number of entries is reached.
+ */
+@Slf4j
+public class NegativeCache {
+
+    @Getter
+    private final String name;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+
+    // metrics, reset each time they are published
+    private long hits;
+    private long stores;
+
+    public NegativeCache(String name, long ttlMillis, int maxEntries) {
+        this(name, ttlMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    NegativeCache(String name, long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the reason the key was not found, if it is known not to exist.
+     */
+    public synchronized Optional<String> get(String key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (clock.getAsLong() >= entry.expiresAt) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        hits++;
+        log.trace("get> {} hit> key:{}", name, key);
+        return Optional.of(entry.reason);
+    }
+
+    public synchronized void put(String key, String reason) {
+        // re-inserted so that the entry is ordered (for eviction) as the most recent
+        entries.remove(key);
+        entries.put(key, new Entry(reason, clock.getAsLong() + ttlMillis));
+        stores++;
+    }
+
+    public synchronized Metrics snapshotAndReset() {
+        var metrics = new Metrics(name, hits, stores, entries.size());
+        hits = stores = 0;
+        return metrics;
+    }
+
+    @Value
+    private static class Entry {
+        String reason;
+        long expiresAt;
+    }
+
+    @Value
+    public static class Metrics {
+        String cacheName;
+        long hits;
+        long stores;
+        int entries;
+    }
+}
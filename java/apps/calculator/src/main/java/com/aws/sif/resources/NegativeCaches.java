@@ -0,0 +1,55 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources;
+
+import com.aws.sif.metrics.EmbeddedMetrics;
+import com.typesafe.config.Config;
+
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared across the resource clients so that the {@link NegativeCache} metrics of all clients are published together.
+ */
+public class NegativeCaches {
+
+    private final Config config;
+    private final Map<String, NegativeCache> caches;
+
+    @Inject
+    public NegativeCaches(Config config) {
+        this.config = config;
+        this.caches = new ConcurrentHashMap<>();
+    }
+
+    public NegativeCache cache(String name) {
+        return caches.computeIfAbsent(name, n -> new NegativeCache(n,
+                config.getLong("calculator.negativeCache.ttlInMillis"),
+                config.getInt("calculator.negativeCache.maxEntries")));
+    }
+
+    public void publishMetrics() {
+        var namespace = config.getString("calculator.metrics.namespace");
+        for (var cache : caches.values()) {
+            var m = cache.snapshotAndReset();
+            var values = new LinkedHashMap<String, Number>();
+            values.put("NegativeCacheHits", m.getHits());
+            values.put("NegativeCacheStores", m.getStores());
+            values.put("NegativeCacheEntries", m.getEntries());
+            EmbeddedMetrics.publish(namespace, "CacheName", m.getCacheName(), values, Set.of());
+        }
+    }
+}
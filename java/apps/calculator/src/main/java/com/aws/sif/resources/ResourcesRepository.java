@@ -16,40 +16,86 @@ package com.aws.sif.resources;
 import com.typesafe.config.Config;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RandomUtils;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 import javax.inject.Inject;
 import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Stores the mapping of resource names to the id and version first resolved for a pipeline execution, so that all
+ * chunks of the same execution resolve a name to the same version.
+ * <p>
+ * Mappings may be preloaded in bulk via {@link #preloadMappings(Collection)}, after which {@link #getMapping} is
+ * served locally for any preloaded key (including keys known not to exist). Preloaded mappings are retained for the
+ * life of the container, up to a maximum number of entries after which the least recently used are evicted. New
+ * mappings are written behind in batches, with any buffered mappings written upon {@link #flush()}.
+ */
 @Slf4j
 public class ResourcesRepository {
 
+    // DynamoDB service limits
+    private static final int MAX_BATCH_GET_ITEMS = 100;
+    private static final int MAX_BATCH_WRITE_ITEMS = 25;
+
     private final DynamoDbAsyncClient ddb;
     private final Config config;
 
+    private final Map<MappingKey, Optional<Mapping>> preloaded;
+    private final Map<MappingKey, Mapping> pendingWrites;
+    private final Set<CompletableFuture<Void>> writesInProgress;
+
     @Inject
     public ResourcesRepository(DynamoDbAsyncClient ddb, Config config) {
         this.ddb = ddb;
         this.config = config;
+        var maxEntries = config.getInt("calculator.resourceMapping.maxEntries");
+        this.preloaded = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MappingKey, Optional<Mapping>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        this.pendingWrites = new LinkedHashMap<>();
+        this.writesInProgress = ConcurrentHashMap.newKeySet();
     }
 
     public Mapping getMapping(String key, Type type, String name) {
         log.debug("getMapping> in> key:{}, type:{}, name:{}",
                 key, type, name);
 
+        var mappingKey = new MappingKey(key, type, name);
+        var known = preloaded.get(mappingKey);
+        if (known != null) {
+            log.debug("getMapping> exit (preloaded):{}", known);
+            return known.orElse(null);
+        }
+
         var request = GetItemRequest.builder()
                 .tableName(config.getString("calculator.resourceMappingTableName"))
-                .key(Map.of(
-                        "pk", AttributeValue.builder().s(key).build(),
-                        "sk", AttributeValue.builder().s(String.format("%s:%s", type, encodeValue(name))).build()
-                ))
+                .key(mappingKey.toKey())
                 .build();
         log.debug("getMapping> request:{}", request);
 
@@ -76,31 +122,86 @@ public class ResourcesRepository {
         log.debug("getMapping> in> pipelineId:{}, executionId:{}, groupContextId:{}, type:{}, name:{}",
                 pipelineId, executionId, groupContextId, type, name);
 
-        var key = String.format("%s:%s:%s", pipelineId, executionId, encodeValue(groupContextId));
-
-        var response = this.getMapping(key, type, name);
+        var response = this.getMapping(key(pipelineId, executionId, groupContextId), type, name);
         log.debug("getMapping> exit:{}", response);
         return response;
     }
 
+    /**
+     * Retrieves the mappings for all provided keys using as few <code>BatchGetItem</code> requests as possible,
+     * retaining the result (found or not) for subsequent {@link #getMapping} calls. Keys still unprocessed once the
+     * retries are exhausted are not retained, and are therefore retrieved individually when requested.
+     */
+    public CompletableFuture<Void> preloadMappings(Collection<MappingKey> keys) {
+        log.debug("preloadMappings> in> keys:{}", keys);
+
+        var toLoad = keys.stream().distinct().filter(k -> !preloaded.containsKey(k)).toList();
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (var i = 0; i < toLoad.size(); i += MAX_BATCH_GET_ITEMS) {
+            var batch = toLoad.subList(i, Math.min(i + MAX_BATCH_GET_ITEMS, toLoad.size()));
+            futures.add(batchGet(batch.stream().map(MappingKey::toKey).toList(), 0)
+                    .thenAccept(found -> batch.forEach(k -> {
+                        if (found.containsKey(k)) {
+                            preloaded.put(k, found.get(k));
+                        }
+                    })));
+        }
+
+        log.debug("preloadMappings> exit> batches:{}", futures.size());
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Returns the mappings of the processed keys, with missing items as empty.
+     */
+    private CompletableFuture<Map<MappingKey, Optional<Mapping>>> batchGet(List<Map<String, AttributeValue>> keys, int attempt) {
+        var tableName = config.getString("calculator.resourceMappingTableName");
+        var request = BatchGetItemRequest.builder()
+                .requestItems(Map.of(tableName, KeysAndAttributes.builder().keys(keys).build()))
+                .build();
+
+        return ddb.batchGetItem(request).thenCompose(r -> {
+            var unprocessed = r.hasUnprocessedKeys() && r.unprocessedKeys().containsKey(tableName)
+                    ? r.unprocessedKeys().get(tableName).keys() : List.<Map<String, AttributeValue>>of();
+
+            var result = new ConcurrentHashMap<MappingKey, Optional<Mapping>>();
+            keys.stream().filter(k -> !unprocessed.contains(k)).forEach(k -> result.put(MappingKey.fromItem(k), Optional.empty()));
+            r.responses().getOrDefault(tableName, List.of()).forEach(item -> result.put(MappingKey.fromItem(item),
+                    Optional.of(new Mapping(item.get("id").s(), Integer.parseInt(item.get("version").n())))));
+
+            if (unprocessed.isEmpty()) {
+                return CompletableFuture.completedFuture(result);
+            }
+            if (attempt >= config.getInt("calculator.resourceMapping.numberOfRetries")) {
+                log.warn("batchGet> {} keys remain unprocessed after {} retries", unprocessed.size(), attempt);
+                return CompletableFuture.completedFuture(result);
+            }
+            log.debug("batchGet> retrying {} unprocessed keys, attempt:{}", unprocessed.size(), attempt + 1);
+            return CompletableFuture.runAsync(() -> {}, backoff(attempt))
+                    .thenCompose(v -> batchGet(unprocessed, attempt + 1))
+                    .thenApply(retried -> {
+                        result.putAll(retried);
+                        return result;
+                    });
+        });
+    }
+
     public void saveMapping(String key, Type type, String name, Mapping mapping) {
         log.debug("saveMapping> in> key:{}, type: {}, name: {}, mapping: {}", key, type, name, mapping);
 
-        var request = PutItemRequest.builder()
-                .tableName(config.getString("calculator.resourceMappingTableName"))
-                .item(Map.of(
-                        "pk", AttributeValue.builder().s(key).build(),
-                        "sk", AttributeValue.builder().s(String.format("%s:%s", type, encodeValue(name))).build(),
-                        "id", AttributeValue.builder().s(mapping.id).build(),
-                        "version", AttributeValue.builder().n(String.valueOf(mapping.latestVersion)).build()
-                ))
-                .build();
+        var mappingKey = new MappingKey(key, type, name);
+        preloaded.put(mappingKey, Optional.of(mapping));
 
-        try {
-            ddb.putItem(request);
-        } catch (DynamoDbException e) {
-            System.err.println(e.getMessage());
-            System.exit(1);
+        List<Map.Entry<MappingKey, Mapping>> batch = null;
+        synchronized (pendingWrites) {
+            pendingWrites.put(mappingKey, mapping);
+            if (pendingWrites.size() >= MAX_BATCH_WRITE_ITEMS) {
+                batch = new ArrayList<>(pendingWrites.entrySet());
+                pendingWrites.clear();
+            }
+        }
+        if (batch != null) {
+            write(batch);
         }
 
         log.debug("saveMapping>");
@@ -109,18 +210,112 @@ public class ResourcesRepository {
     public void saveMapping(String pipelineId, String executionId, String groupContextId, Type type, String name, Mapping mapping) {
         log.debug("saveMapping> in> pipelineId:{}, executionId:{}, groupContextId:{}, type:{}, name:{}, mapping:{}",
                 pipelineId, executionId, groupContextId, type, name, mapping);
-        var key = String.format("%s:%s:%s", pipelineId, executionId, encodeValue(groupContextId));
-        this.saveMapping(key, type, name, mapping);
+        this.saveMapping(key(pipelineId, executionId, groupContextId), type, name, mapping);
         log.debug("saveMapping>");
     }
 
+    /**
+     * Writes any buffered mappings, completing once all writes started so far (including those of previous flushes
+     * still in progress) have completed.
+     */
+    public CompletableFuture<Void> flush() {
+        log.debug("flush> in>");
+
+        List<Map.Entry<MappingKey, Mapping>> batch;
+        synchronized (pendingWrites) {
+            batch = new ArrayList<>(pendingWrites.entrySet());
+            pendingWrites.clear();
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+
+        var all = CompletableFuture.allOf(writesInProgress.toArray(CompletableFuture[]::new));
+
+        log.debug("flush> exit> mappings:{}", batch.size());
+        return all;
+    }
+
+    private void write(List<Map.Entry<MappingKey, Mapping>> batch) {
+        var tableName = config.getString("calculator.resourceMappingTableName");
+        var requests = batch.stream().map(e -> {
+            var item = new LinkedHashMap<>(e.getKey().toKey());
+            item.put("id", AttributeValue.builder().s(e.getValue().id).build());
+            item.put("version", AttributeValue.builder().n(String.valueOf(e.getValue().latestVersion)).build());
+            return WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build();
+        }).toList();
+
+        var future = batchWrite(tableName, requests, 0)
+                .exceptionally(e -> {
+                    // the mappings are an optimization, therefore losing them is not fatal to the calculation
+                    log.error("write> failed writing {} mappings: {}", requests.size(), e.getMessage());
+                    return null;
+                });
+        writesInProgress.add(future);
+        future.whenComplete((r, e) -> writesInProgress.remove(future));
+    }
+
+    private CompletableFuture<Void> batchWrite(String tableName, List<WriteRequest> requests, int attempt) {
+        var request = BatchWriteItemRequest.builder()
+                .requestItems(Map.of(tableName, requests))
+                .build();
+
+        return ddb.batchWriteItem(request).thenCompose(r -> {
+            var unprocessed = r.hasUnprocessedItems() ? r.unprocessedItems().getOrDefault(tableName, List.of()) : List.<WriteRequest>of();
+            if (unprocessed.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (attempt >= config.getInt("calculator.resourceMapping.numberOfRetries")) {
+                log.error("batchWrite> {} mappings remain unprocessed after {} retries", unprocessed.size(), attempt);
+                return CompletableFuture.completedFuture(null);
+            }
+            log.debug("batchWrite> retrying {} unprocessed items, attempt:{}", unprocessed.size(), attempt + 1);
+            return CompletableFuture.runAsync(() -> {}, backoff(attempt))
+                    .thenCompose(v -> batchWrite(tableName, unprocessed, attempt + 1));
+        });
+    }
+
+    private Executor backoff(int attempt) {
+        var max = Math.min(config.getLong("calculator.resourceMapping.maxBackOffInMillis"),
+                config.getLong("calculator.resourceMapping.baseBackOffInMillis") * (1L << attempt));
+        return CompletableFuture.delayedExecutor(RandomUtils.nextLong(0, max + 1), TimeUnit.MILLISECONDS);
+    }
+
+    public static String key(String pipelineId, String executionId, String groupContextId) {
+        return String.format("%s:%s:%s", pipelineId, executionId, encodeValue(groupContextId));
+    }
+
     @Value
     public static class Mapping {
         String id;
         int latestVersion;
     }
 
-    private String encodeValue(String value) {
+    @Value
+    public static class MappingKey {
+        String key;
+        Type type;
+        String name;
+
+        public static MappingKey of(String pipelineId, String executionId, String groupContextId, Type type, String name) {
+            return new MappingKey(ResourcesRepository.key(pipelineId, executionId, groupContextId), type, name);
+        }
+
+        Map<String, AttributeValue> toKey() {
+            return Map.of(
+                    "pk", AttributeValue.builder().s(key).build(),
+                    "sk", AttributeValue.builder().s(String.format("%s:%s", type, encodeValue(name))).build());
+        }
+
+        static MappingKey fromItem(Map<String, AttributeValue> item) {
+            var sk = item.get("sk").s();
+            var separator = sk.indexOf(':');
+            return new MappingKey(item.get("pk").s(), Type.valueOf(sk.substring(0, separator)),
+                    URLDecoder.decode(sk.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String encodeValue(String value) {
         try {
             return URLEncoder.encode(value, StandardCharsets.UTF_8.toString());
         } catch (UnsupportedEncodingException e) {
@@ -15,15 +15,17 @@ package com.aws.sif.resources.calculations;
 
 import com.aws.sif.Authorizer;
 import com.aws.sif.lambdaInvoker.LambdaInvoker;
+import com.aws.sif.resources.NegativeCache;
+import com.aws.sif.resources.NegativeCaches;
 import com.aws.sif.resources.ResourcesRepository;
 import com.typesafe.config.Config;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Validate;
 
 import javax.inject.Inject;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class CalculationsClient {
@@ -32,20 +34,22 @@ public class CalculationsClient {
     private final LambdaInvoker<CalculationsList> calculationsListInvoker;
     private final Config config;
     private final ResourcesRepository repository;
+    private final NegativeCache notFoundCache;
     private final Map<String, Calculation> calculationsCache;
     private final Map<String, ResourcesRepository.Mapping> mappingCache;
     private final Map<String, Integer> activationDateVersionCache;
 
 
     @Inject
-    public CalculationsClient(LambdaInvoker<Calculation> calculationInvoker, LambdaInvoker<CalculationsList> calculationsListInvoker, Config config, ResourcesRepository repository) {
+    public CalculationsClient(LambdaInvoker<Calculation> calculationInvoker, LambdaInvoker<CalculationsList> calculationsListInvoker, Config config, ResourcesRepository repository, NegativeCaches negativeCaches) {
         this.calculationInvoker = calculationInvoker;
         this.calculationsListInvoker = calculationsListInvoker;
         this.config = config;
         this.repository = repository;
-        this.calculationsCache = new HashMap<>();
-        this.mappingCache = new HashMap<>();
-        this.activationDateVersionCache = new HashMap<>();
+        this.notFoundCache = negativeCaches.cache("CalculationsClient");
+        this.calculationsCache = new ConcurrentHashMap<>();
+        this.mappingCache = new ConcurrentHashMap<>();
+        this.activationDateVersionCache = new ConcurrentHashMap<>();
 
     }
 
@@ -81,13 +85,25 @@ public class CalculationsClient {
         // do we already have it cached locally?
         var mappingCacheKey = mappingCacheKey(pipelineId, executionId, groupContextId, name, tenantId);
         if (!mappingCache.containsKey(mappingCacheKey)) {
-            // not in cache, but do we have it already available in the database cache?
+            // not in cache, but have we recently found that it does not exist? checked before the database cache so
+            // that repeated misses (e.g. names built from row data) do not each cost a round trip
+            var notFound = notFoundCache.get(mappingCacheKey);
+            if (notFound.isPresent()) {
+                throw new CalculationNotFoundException(notFound.get());
+            }
+            // do we have it already available in the database cache?
             var mapping = repository.getMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.FUNCTION, name);
             if (mapping!=null) {
                 mappingCache.put(mappingCacheKey, mapping);
             } else {
-                // not in db cache either so let's get it, then cache it for future use
-                var calculation = invokeGetCalculationByName(groupContextId, authorizer, name, tenantId);
+                // not in db cache either, so let's get it, then cache it for future use
+                Calculation calculation;
+                try {
+                    calculation = invokeGetCalculationByName(groupContextId, authorizer, name, tenantId);
+                } catch (CalculationNotFoundException e) {
+                    notFoundCache.put(mappingCacheKey, e.getMessage());
+                    throw e;
+                }
                 var newMapping = new ResourcesRepository.Mapping(calculation.getId(), calculation.getVersion());
                 repository.saveMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.FUNCTION, name, newMapping);
                 mappingCache.put(mappingCacheKey, newMapping);
@@ -5,31 +5,50 @@ import com.google.gson.Gson;
 import com.typesafe.config.Config;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.sagemakerruntime.SageMakerRuntimeClient;
+import software.amazon.awssdk.services.sagemakerruntime.SageMakerRuntimeAsyncClient;
 import software.amazon.awssdk.services.sagemakerruntime.model.InvokeEndpointRequest;
 
 import javax.inject.Inject;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Matches product names to products using the CaML inference endpoint. Product names are normalized (trimmed, with
+ * runs of whitespace collapsed) before being inferred, with the matches cached locally as well as within the resource
+ * mapping table.
+ * <p>
+ * The distinct product names of a batch of rows may be inferred ahead of the rows being evaluated via
+ * {@link #prefetchProductMatches(Collection)}, which sends them as multi-record requests of up to
+ * <code>calculator.caml.batch.maxRecords</code> names, with up to <code>calculator.caml.batch.concurrency</code>
+ * requests in flight. A multi-record request is of the form <code>{"inputs":["name1","name2"]}</code>, its response
+ * being an array of the matches of each name in the same order, whereas a single name is requested as
+ * <code>{"inputs":"name"}</code>.
+ */
 @Slf4j
 public class CamlClient {
-    private final SageMakerRuntimeClient sagemakerClient;
+    private final SageMakerRuntimeAsyncClient sagemakerClient;
+    private final Config config;
     private final Gson gson;
     private final String endpointName;
     private final Map<String, ProductMatch[]> productMatchesCache;
     private final ResourcesRepository repository;
-    private final Map<String, ResourcesRepository.Mapping> mappingCache;
 
     @Inject
-    public CamlClient(SageMakerRuntimeClient client, Config config, Gson gson, ResourcesRepository repository) {
+    public CamlClient(SageMakerRuntimeAsyncClient client, Config config, Gson gson, ResourcesRepository repository) {
         this.sagemakerClient = client;
+        this.config = config;
         this.gson = gson;
         this.endpointName = config.getString("calculator.caml.inferenceEndpointName");
-        this.productMatchesCache = new HashMap<>();
+        this.productMatchesCache = new ConcurrentHashMap<>();
         this.repository = repository;
-        this.mappingCache = new HashMap<>();
     }
 
     public ProductMatch[] getProductMatches(String productName) throws CamlNotEnabledException {
@@ -40,20 +59,23 @@ public class CamlClient {
         }
 
 		// result for a particular product name should be the same regardless of pipeline id and execution id
-        var cacheKey = productName;
+        var cacheKey = normalize(productName);
         if (!productMatchesCache.containsKey(cacheKey)) {
             // not in cache, but do we have it already available in the database cache?
-            var mapping = repository.getMapping(cacheKey, ResourcesRepository.Type.CAML, productName);
+            var mapping = repository.getMapping(cacheKey, ResourcesRepository.Type.CAML, cacheKey);
             if (mapping != null) {
                 this.productMatchesCache.put(cacheKey, this.gson.fromJson(mapping.getId(), ProductMatch[].class));
             } else {
-                var invokeEndpointRequest = InvokeEndpointRequest.builder().contentType("application/json").endpointName(this.endpointName).body(SdkBytes.fromUtf8String("{\"inputs \":\"" + productName + "\"}")).build();
-                var invokeEndpointResponse = this.sagemakerClient.invokeEndpoint(invokeEndpointRequest);
-                var productMatchInString = invokeEndpointResponse.body().asUtf8String();
+                String productMatchInString;
+                try {
+                    productMatchInString = invoke(gson.toJson(Map.of("inputs", cacheKey))).join();
+                } catch (CompletionException e) {
+                    throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+                }
                 // store the response as string in distributed dynamodb cache
                 var newMapping = new ResourcesRepository.Mapping(productMatchInString, 0);
-                this.repository.saveMapping(cacheKey, ResourcesRepository.Type.CAML, productName, newMapping);
-                var response = this.gson.fromJson(invokeEndpointResponse.body().asUtf8String(), ProductMatch[].class);
+                this.repository.saveMapping(cacheKey, ResourcesRepository.Type.CAML, cacheKey, newMapping);
+                var response = this.gson.fromJson(productMatchInString, ProductMatch[].class);
                 productMatchesCache.put(cacheKey, response);
             }
         }
@@ -63,4 +85,82 @@ public class CamlClient {
         return productMatchList;
     }
 
+    /**
+     * Infers the matches of all product names not already known, so that subsequent {@link #getProductMatches(String)}
+     * calls are served from cache. Failures are logged and otherwise ignored, as any names not prefetched are inferred
+     * individually when evaluated.
+     */
+    public void prefetchProductMatches(Collection<String> productNames) {
+        log.debug("prefetchProductMatches> in> productNames:{}", productNames.size());
+
+        if (Objects.equals(this.endpointName, "")) {
+            log.debug("prefetchProductMatches> early exit> not enabled");
+            return;
+        }
+
+        var names = new LinkedHashSet<String>();
+        productNames.stream().filter(Objects::nonNull).map(this::normalize)
+                .filter(n -> !n.isEmpty() && !productMatchesCache.containsKey(n))
+                .forEach(names::add);
+        if (names.isEmpty()) {
+            log.debug("prefetchProductMatches> early exit> all cached");
+            return;
+        }
+
+        // names inferred previously are retrieved from the database cache in bulk first
+        try {
+            repository.preloadMappings(names.stream().map(n -> new ResourcesRepository.MappingKey(n, ResourcesRepository.Type.CAML, n)).toList()).join();
+        } catch (CompletionException e) {
+            log.warn("prefetchProductMatches> unable to preload mappings, will be retrieved individually: {}", e.getMessage());
+        }
+        var toInfer = new ArrayList<String>();
+        for (var name : names) {
+            var mapping = repository.getMapping(name, ResourcesRepository.Type.CAML, name);
+            if (mapping != null) {
+                productMatchesCache.put(name, gson.fromJson(mapping.getId(), ProductMatch[].class));
+            } else {
+                toInfer.add(name);
+            }
+        }
+
+        var maxRecords = config.getInt("calculator.caml.batch.maxRecords");
+        var inFlight = new Semaphore(config.getInt("calculator.caml.batch.concurrency"));
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (var i = 0; i < toInfer.size(); i += maxRecords) {
+            var batch = toInfer.subList(i, Math.min(i + maxRecords, toInfer.size()));
+            inFlight.acquireUninterruptibly();
+            futures.add(invoke(gson.toJson(Map.of("inputs", batch)))
+                    .thenAccept(body -> cache(batch, body))
+                    .exceptionally(e -> {
+                        log.warn("prefetchProductMatches> unable to infer {} product names, will be inferred when evaluated: {}", batch.size(), e.getMessage());
+                        return null;
+                    })
+                    .whenComplete((r, e) -> inFlight.release()));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        log.debug("prefetchProductMatches> exit> preloaded:{}, inferred:{}, requests:{}", names.size() - toInfer.size(), toInfer.size(), futures.size());
+    }
+
+    private void cache(List<String> names, String body) {
+        var matches = gson.fromJson(body, ProductMatch[][].class);
+        if (matches == null || matches.length != names.size()) {
+            throw new IllegalStateException(String.format("Expected matches of %s product names, but received %s", names.size(), matches == null ? 0 : matches.length));
+        }
+        for (var i = 0; i < matches.length; i++) {
+            var name = names.get(i);
+            productMatchesCache.put(name, matches[i]);
+            repository.saveMapping(name, ResourcesRepository.Type.CAML, name, new ResourcesRepository.Mapping(gson.toJson(matches[i]), 0));
+        }
+    }
+
+    private CompletableFuture<String> invoke(String body) {
+        var invokeEndpointRequest = InvokeEndpointRequest.builder().contentType("application/json").endpointName(this.endpointName).body(SdkBytes.fromUtf8String(body)).build();
+        return this.sagemakerClient.invokeEndpoint(invokeEndpointRequest).thenApply(r -> r.body().asUtf8String());
+    }
+
+    private String normalize(String productName) {
+        return productName.trim().replaceAll("\\s+", " ");
+    }
+
 }
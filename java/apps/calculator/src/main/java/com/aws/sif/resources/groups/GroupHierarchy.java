@@ -0,0 +1,156 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.resources.groups;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * A trie of the group hierarchy known to this container, keyed by the segments of each group id, allowing the
+ * existence of a group to be answered in O(depth) without a remote call.
+ * <p>
+ * Groups are known either individually (once verified as existing), or as whole subtrees loaded in bulk. A group
+ * within a loaded subtree that is not part of the trie is known not to exist. Both expire after the configured time
+ * to live so that groups created or deleted since are picked up.
+ */
+@Slf4j
+public class GroupHierarchy {
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Node root;
+
+    public GroupHierarchy(long ttlMillis) {
+        this(ttlMillis, System::currentTimeMillis);
+    }
+
+    GroupHierarchy(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.root = new Node();
+    }
+
+    /**
+     * Returns whether the group exists, or empty if not known.
+     */
+    public synchronized Optional<Boolean> exists(String groupId) {
+        var now = clock.getAsLong();
+        var node = root;
+        var withinLoaded = node.isLoaded(now);
+        for (var segment : segments(groupId)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return withinLoaded ? Optional.of(false) : Optional.empty();
+            }
+            withinLoaded |= node.isLoaded(now);
+        }
+        if (node.isVerified(now)) {
+            return Optional.of(true);
+        }
+        return withinLoaded ? Optional.of(false) : Optional.empty();
+    }
+
+    public synchronized void add(String groupId) {
+        node(groupId).verifiedAt = clock.getAsLong();
+    }
+
+    /**
+     * Replaces the subtree of the group with its descendants, such that any other group within it is known not to exist.
+     */
+    public synchronized void load(String groupId, Collection<String> descendants) {
+        log.debug("load> in> groupId:{}, descendants:{}", groupId, descendants.size());
+
+        var now = clock.getAsLong();
+        var subtree = node(groupId);
+        subtree.children.clear();
+        subtree.verifiedAt = now;
+        subtree.loadedAt = now;
+        for (var descendant : descendants) {
+            if (!isSameOrDescendant(descendant, groupId)) {
+                log.warn("load> ignoring group {} as not a descendant of {}", descendant, groupId);
+                continue;
+            }
+            node(descendant).verifiedAt = now;
+        }
+    }
+
+    /**
+     * Returns whether the subtree of the group has been loaded and is yet to expire.
+     */
+    public synchronized boolean isLoaded(String groupId) {
+        var now = clock.getAsLong();
+        var node = root;
+        if (node.isLoaded(now)) {
+            return true;
+        }
+        for (var segment : segments(groupId)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return false;
+            }
+            if (node.isLoaded(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the group is the same as, or a descendant of, the ancestor.
+     */
+    public static boolean isSameOrDescendant(String groupId, String ancestorId) {
+        var groupIdTokens = groupId.split("/");
+        var ancestorIdTokens = ancestorId.split("/");
+        if (groupIdTokens.length < ancestorIdTokens.length) {
+            return false;
+        }
+        for (var ti = 0; ti < ancestorIdTokens.length; ++ti) {
+            if (!ancestorIdTokens[ti].equals(groupIdTokens[ti])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Node node(String groupId) {
+        var node = root;
+        for (var segment : segments(groupId)) {
+            node = node.children.computeIfAbsent(segment, s -> new Node());
+        }
+        return node;
+    }
+
+    private static String[] segments(String groupId) {
+        return groupId.chars().allMatch(c -> c == '/') ? new String[0] : groupId.replaceFirst("^/+", "").split("/+");
+    }
+
+    private class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private long verifiedAt = Long.MIN_VALUE;
+        private long loadedAt = Long.MIN_VALUE;
+
+        private boolean isVerified(long now) {
+            return verifiedAt != Long.MIN_VALUE && now - verifiedAt < ttlMillis;
+        }
+
+        private boolean isLoaded(long now) {
+            return loadedAt != Long.MIN_VALUE && now - loadedAt < ttlMillis;
+        }
+    }
+}
@@ -16,6 +16,8 @@ package com.aws.sif.resources.groups;
 import com.aws.sif.Authorizer;
 import com.aws.sif.lambdaInvoker.LambdaInvocationException;
 import com.aws.sif.lambdaInvoker.LambdaInvoker;
+import com.aws.sif.resources.NegativeCache;
+import com.aws.sif.resources.NegativeCaches;
 import com.aws.sif.resources.ResourcesRepository;
 import com.typesafe.config.Config;
 import lombok.extern.slf4j.Slf4j;
@@ -27,21 +29,33 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Verifies groups exist. Groups known to exist, and the descendants of group contexts loaded in bulk via
+ * {@link #loadHierarchy(String, Authorizer)}, are held in a {@link GroupHierarchy} shared across executions, so that
+ * most checks are answered without a remote call.
+ */
 @Slf4j
 public class GroupsClient {
 
     private final LambdaInvoker<Group> groupInvoker;
+    private final LambdaInvoker<GroupsList> groupsListInvoker;
     private final Config config;
 	private final ResourcesRepository repository;
 	private final Set<String> groupExistsCache;
+	private final NegativeCache notFoundCache;
+	private final GroupHierarchy hierarchy;
 
 	@Inject
-    public GroupsClient(LambdaInvoker<Group> groupInvoker, Config config, ResourcesRepository repository) {
+    public GroupsClient(LambdaInvoker<Group> groupInvoker, LambdaInvoker<GroupsList> groupsListInvoker, Config config, ResourcesRepository repository, NegativeCaches negativeCaches) {
         this.groupInvoker = groupInvoker;
+        this.groupsListInvoker = groupsListInvoker;
         this.config = config;
 		this.repository = repository;
-        this.groupExistsCache = new HashSet<>();
+        this.groupExistsCache = ConcurrentHashMap.newKeySet();
+		this.notFoundCache = negativeCaches.cache("GroupsClient");
+		this.hierarchy = new GroupHierarchy(config.getLong("calculator.groups.hierarchy.ttlInMillis"));
     }
 
     public boolean groupExists(String pipelineId, String executionId, String groupId, String groupContextId, Authorizer authorizer) throws GroupNotFoundException {
@@ -53,22 +67,46 @@ public class GroupsClient {
         Validate.notEmpty(groupId);
         Validate.notEmpty(groupContextId);
 
+		// answered by the group hierarchy if known to exist, or within a loaded subtree yet not found
+		var known = hierarchy.exists(groupId);
+		if (known.isPresent()) {
+			if (!known.get()) {
+				throw new GroupNotFoundException(String.format("Group id %s not found.", groupId));
+			}
+			log.debug("groupExists> exit (hierarchy):");
+			return true;
+		}
+
 		// the group exists if it is in the local cache
 		var groupCacheKey = groupCacheKey(pipelineId, executionId, groupId);
 		if (!groupExistsCache.contains(groupCacheKey)) {
-			// not in local cache, is it in the database cache?
+			// not in local cache, but have we recently found that it does not exist? checked before the database cache
+			// so that repeated misses do not each cost a round trip
+			var notFound = notFoundCache.get(groupCacheKey);
+			if (notFound.isPresent()) {
+				throw new GroupNotFoundException(notFound.get());
+			}
+			// is it in the database cache?
 			var mapping = repository.getMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.GROUP, groupId);
 			if (mapping!=null) {
 				groupExistsCache.add(groupCacheKey);
+				hierarchy.add(groupId);
 			} else {
 				// not in db cache, so go fetch, then cache locally and in db if it exists
-				var group = invokeGetGroupById(groupId, groupContextId, authorizer);
+				Group group;
+				try {
+					group = invokeGetGroupById(groupId, groupContextId, authorizer);
+				} catch (GroupNotFoundException e) {
+					notFoundCache.put(groupCacheKey, e.getMessage());
+					throw e;
+				}
 				if (group!=null) {
 					// borrowing the mapping repository to store presence of a group
 					// the repository should be refactored if we start distributed caching of the actual resource calls
 					var newMapping = new ResourcesRepository.Mapping(groupId, 0);
 					repository.saveMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.GROUP, groupId, newMapping);
 					groupExistsCache.add(groupCacheKey);
+					hierarchy.add(groupId);
 				} else {
 					return false;
 				}
@@ -79,6 +117,42 @@ public class GroupsClient {
 		return true;
     }
 
+    /**
+     * Loads the group context and all its descendants into the group hierarchy, unless already loaded.
+     */
+    public void loadHierarchy(String groupContextId, Authorizer authorizer) {
+        log.debug("loadHierarchy> in> groupContextId:{}", groupContextId);
+
+        Validate.notEmpty(groupContextId);
+
+        if (hierarchy.isLoaded(groupContextId)) {
+            log.debug("loadHierarchy> early exit> already loaded");
+            return;
+        }
+
+        var functionName = config.getString("calculator.accessManagement.functionName");
+        var count = config.getString("calculator.groups.hierarchy.pageSize");
+        var descendants = new ArrayList<String>();
+        Optional<String> fromToken = Optional.empty();
+        do {
+            var queryString = new HashMap<>(Map.of("includeChildGroups", "true", "count", count));
+            fromToken.ifPresent(t -> queryString.put("fromToken", t));
+            var listResponse = this.groupsListInvoker.invokeFunction(functionName, groupContextId, authorizer, "GET", "/groups",
+                    Optional.of(queryString), Optional.empty(), Optional.empty(), GroupsList.class).getBody();
+            if (listResponse == null) {
+                break;
+            }
+            if (listResponse.getGroups() != null) {
+                Arrays.stream(listResponse.getGroups()).map(g -> g.getId().toLowerCase()).forEach(descendants::add);
+            }
+            fromToken = Optional.ofNullable(listResponse.getPagination()).map(GroupsList.Pagination::getLastEvaluatedToken);
+        } while (fromToken.isPresent());
+
+        hierarchy.load(groupContextId.toLowerCase(), descendants);
+
+        log.debug("loadHierarchy> exit> descendants:{}", descendants.size());
+    }
+
     private Group invokeGetGroupById(String groupId, String groupContextId, Authorizer authorizer) throws GroupNotFoundException {
         log.debug("invokeGetGroupById> in> groupId:{}, groupContextId:{}", groupId, groupContextId);
 
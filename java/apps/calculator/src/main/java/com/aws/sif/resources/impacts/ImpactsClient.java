@@ -15,15 +15,17 @@ package com.aws.sif.resources.impacts;
 
 import com.aws.sif.Authorizer;
 import com.aws.sif.lambdaInvoker.LambdaInvoker;
+import com.aws.sif.resources.NegativeCache;
+import com.aws.sif.resources.NegativeCaches;
 import com.aws.sif.resources.ResourcesRepository;
 import com.typesafe.config.Config;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Validate;
 
 import javax.inject.Inject;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class ImpactsClient {
@@ -32,6 +34,7 @@ public class ImpactsClient {
     private final LambdaInvoker<ActivitiesList> activitiesListInvoker;
     private final Config config;
     private final ResourcesRepository repository;
+    private final NegativeCache notFoundCache;
 
     private final Map<String, Activity> activitiesCache;
     private final Map<String, ResourcesRepository.Mapping> mappingCache;
@@ -39,14 +42,15 @@ public class ImpactsClient {
 
 
     @Inject
-    public ImpactsClient(LambdaInvoker<Activity> activityInvoker, LambdaInvoker<ActivitiesList> activitiesListInvoker, Config config, ResourcesRepository repository) {
+    public ImpactsClient(LambdaInvoker<Activity> activityInvoker, LambdaInvoker<ActivitiesList> activitiesListInvoker, Config config, ResourcesRepository repository, NegativeCaches negativeCaches) {
         this.activityInvoker = activityInvoker;
         this.activitiesListInvoker = activitiesListInvoker;
         this.config = config;
         this.repository = repository;
-        this.activitiesCache = new HashMap<>();
-        this.mappingCache = new HashMap<>();
-        this.activationDateVersionCache = new HashMap<>();
+        this.notFoundCache = negativeCaches.cache("ImpactsClient");
+        this.activitiesCache = new ConcurrentHashMap<>();
+        this.mappingCache = new ConcurrentHashMap<>();
+        this.activationDateVersionCache = new ConcurrentHashMap<>();
 
     }
 
@@ -82,13 +86,25 @@ public class ImpactsClient {
         // do we already have it cached locally?
         var mappingCacheKey = mappingCacheKey(pipelineId, executionId, groupContextId, name, tenantId);
         if (!mappingCache.containsKey(mappingCacheKey)) {
-            // not in cache, but do we have it already available in the database cache?
+            // not in cache, but have we recently found that it does not exist? checked before the database cache so
+            // that repeated misses (e.g. names built from row data) do not each cost a round trip
+            var notFound = notFoundCache.get(mappingCacheKey);
+            if (notFound.isPresent()) {
+                throw new ActivityNotFoundException(notFound.get());
+            }
+            // do we have it already available in the database cache?
             var mapping = repository.getMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.ACTIVITY, name);
             if (mapping!=null) {
                 mappingCache.put(mappingCacheKey, mapping);
             } else {
-                // not in db cache either so let's get it, then cache it for future use
-                var activity = invokeGetActivityByName(groupContextId, authorizer, name, tenantId);
+                // not in db cache either, so let's get it, then cache it for future use
+                Activity activity;
+                try {
+                    activity = invokeGetActivityByName(groupContextId, authorizer, name, tenantId);
+                } catch (ActivityNotFoundException e) {
+                    notFoundCache.put(mappingCacheKey, e.getMessage());
+                    throw e;
+                }
                 var newMapping = new ResourcesRepository.Mapping(activity.getId(), activity.getVersion());
                 repository.saveMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.ACTIVITY, name, newMapping);
                 mappingCache.put(mappingCacheKey, newMapping);
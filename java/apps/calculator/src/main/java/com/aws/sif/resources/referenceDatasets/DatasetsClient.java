@@ -15,6 +15,8 @@ package com.aws.sif.resources.referenceDatasets;
 
 import com.aws.sif.Authorizer;
 import com.aws.sif.lambdaInvoker.LambdaInvoker;
+import com.aws.sif.resources.NegativeCache;
+import com.aws.sif.resources.NegativeCaches;
 import com.aws.sif.resources.ResourcesRepository;
 import com.typesafe.config.Config;
 import lombok.Data;
@@ -25,18 +27,14 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.*;
-import org.apache.lucene.store.FSDirectory;
-import org.zeroturnaround.zip.ZipUtil;
+import org.apache.lucene.store.Directory;
 
 import javax.inject.Inject;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URL;
-import java.nio.channels.Channels;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class DatasetsClient {
@@ -49,19 +47,42 @@ public class DatasetsClient {
     private final Map<String, IndexSearcher> indexCache;
     private final Map<String, ResourcesRepository.Mapping> mappingCache;
     private final Map<String, Integer> activationDateVersionCache;
+    private final Map<Path, IndexSearcher> openIndexes;
+    private final IndexResidency indexResidency;
+    private final IndexDownloader indexDownloader;
+    private final IndexStore indexStore;
+    private final NegativeCache notFoundCache;
+    private final NegativeCache keyNotFoundCache;
+    private final Map<String, String> keyCache;
+    private final Map<Path, Map<String, IntervalTree>> intervalTrees;
 
     @Inject
     public DatasetsClient(LambdaInvoker<DatasetsList> datasetsListInvoker, LambdaInvoker<Dataset> datasetsInvoker, LambdaInvoker<DataDownload> dataDownloadInvoker,
-            Config config, ResourcesRepository repository) {
+            Config config, ResourcesRepository repository, NegativeCaches negativeCaches, IndexResidency indexResidency, IndexDownloader indexDownloader, IndexStore indexStore) {
         this.datasetsListInvoker = datasetsListInvoker;
         this.dataDownloadInvoker = dataDownloadInvoker;
         this.config = config;
         this.repository = repository;
-        this.indexCache = new HashMap<>();
-        this.mappingCache = new HashMap<>();
-        this.activationDateVersionCache = new HashMap<>();
+        this.indexCache = new ConcurrentHashMap<>();
+        this.mappingCache = new ConcurrentHashMap<>();
+        this.activationDateVersionCache = new ConcurrentHashMap<>();
         this.datasetsInvoker = datasetsInvoker;
-        this.referenceDatasetsCache = new HashMap<>();
+        this.referenceDatasetsCache = new ConcurrentHashMap<>();
+        this.openIndexes = new ConcurrentHashMap<>();
+        this.indexResidency = indexResidency;
+        this.indexDownloader = indexDownloader;
+        this.indexStore = indexStore;
+        this.indexStore.onEviction(this::onIndexEvicted);
+        this.notFoundCache = negativeCaches.cache("DatasetsClient");
+        this.keyNotFoundCache = negativeCaches.cache("DatasetsClient.keys");
+        this.intervalTrees = new ConcurrentHashMap<>();
+        var maxKeyCacheEntries = config.getInt("calculator.referenceDatasets.lookup.keyCache.maxEntries");
+        this.keyCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxKeyCacheEntries;
+            }
+        });
     }
 
     public GetValueResponse getValue(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String name, String value, String outputColumn, String keyColumn, Optional<String> tenantId, Optional<String> version, Optional<String> versionAsAt) throws ReferenceDatasetNotFoundException {
@@ -94,6 +115,117 @@ public class DatasetsClient {
         return response;
     }
 
+    /**
+     * Looks up the row whose key columns exactly (case-insensitively) match the provided values, the values being
+     * provided in the same order as the key columns.
+     */
+    public GetValueResponse getValue(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String name, List<String> values, String outputColumn, List<String> keyColumns, Optional<String> tenantId, Optional<String> version, Optional<String> versionAsAt) throws ReferenceDatasetNotFoundException {
+        log.debug("getValue> in> pipelineId:{}, executionId:{}, groupContextId:{}, name:{}, values:{}, columnName:{}, keyColumns:{}, tenantId:{}, version:{}, versionAsAt:{}",
+                pipelineId, executionId, groupContextId, name, values, outputColumn, keyColumns, tenantId, version, versionAsAt);
+
+        Validate.notEmpty(pipelineId);
+        Validate.notEmpty(executionId);
+        Validate.notEmpty(groupContextId);
+        Validate.notEmpty(name);
+        Validate.notEmpty(values);
+        Validate.notEmpty(outputColumn);
+        Validate.notEmpty(keyColumns);
+        Validate.isTrue(values.size() == keyColumns.size());
+
+        var mapping = getLatestByName(pipelineId, executionId, groupContextId, authorizer, name, tenantId);
+        var actualVersion = resolveVersion(pipelineId, executionId, groupContextId, authorizer, mapping, tenantId, version, versionAsAt);
+        var result = getByIdVersionCompositeKey(pipelineId, executionId, groupContextId, authorizer, mapping.getId(), values, outputColumn, keyColumns, actualVersion, tenantId);
+
+        var response = new GetValueResponse(result, actualVersion);
+        log.debug("getValue> exit:{}", response);
+        return response;
+    }
+
+    /**
+     * Looks up the first row whose [from, to) interval contains the value, being a number or a timestamp (as epoch
+     * milliseconds or an ISO-8601 date/timestamp). An empty from or to is open ended.
+     */
+    public GetValueResponse getRangeValue(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String name, String value, String outputColumn, String fromColumn, String toColumn, Optional<String> tenantId, Optional<String> version, Optional<String> versionAsAt) throws ReferenceDatasetNotFoundException {
+        log.debug("getRangeValue> in> pipelineId:{}, executionId:{}, groupContextId:{}, name:{}, value:{}, columnName:{}, fromColumn:{}, toColumn:{}, tenantId:{}, version:{}, versionAsAt:{}",
+                pipelineId, executionId, groupContextId, name, value, outputColumn, fromColumn, toColumn, tenantId, version, versionAsAt);
+
+        Validate.notEmpty(pipelineId);
+        Validate.notEmpty(executionId);
+        Validate.notEmpty(groupContextId);
+        Validate.notEmpty(name);
+        Validate.notEmpty(value);
+        Validate.notEmpty(outputColumn);
+        Validate.notEmpty(fromColumn);
+        Validate.notEmpty(toColumn);
+
+        double point;
+        try {
+            point = KeySearcher.rangeValue(value);
+        } catch (IllegalArgumentException e) {
+            throw new ArithmeticException(e.getMessage());
+        }
+
+        var mapping = getLatestByName(pipelineId, executionId, groupContextId, authorizer, name, tenantId);
+        var actualVersion = resolveVersion(pipelineId, executionId, groupContextId, authorizer, mapping, tenantId, version, versionAsAt);
+        var result = getByIdVersionRange(pipelineId, executionId, groupContextId, authorizer, mapping.getId(), value, point, outputColumn, fromColumn, toColumn, actualVersion, tenantId);
+
+        var response = new GetValueResponse(result, actualVersion);
+        log.debug("getRangeValue> exit:{}", response);
+        return response;
+    }
+
+    /**
+     * Looks up many values of the same key column at once, returning the output column value of each key found. Once
+     * looked up, subsequent {@link #getValue} calls for the same keys are served without searching the index again.
+     */
+    public Map<String, String> getValues(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String name, Collection<String> values, String outputColumn, String keyColumn, Optional<String> tenantId, Optional<String> version, Optional<String> versionAsAt) throws ReferenceDatasetNotFoundException {
+        log.debug("getValues> in> pipelineId:{}, executionId:{}, groupContextId:{}, name:{}, values:{}, columnName:{}, tenantId:{}, version:{}, versionAsAt:{}",
+                pipelineId, executionId, groupContextId, name, values.size(), outputColumn, tenantId, version, versionAsAt);
+
+        Validate.notEmpty(pipelineId);
+        Validate.notEmpty(executionId);
+        Validate.notEmpty(groupContextId);
+        Validate.notEmpty(name);
+        Validate.notEmpty(outputColumn);
+        Validate.notEmpty(keyColumn);
+
+        var mapping = getLatestByName(pipelineId, executionId, groupContextId, authorizer, name, tenantId);
+
+        var actualVersion = resolveVersion(pipelineId, executionId, groupContextId, authorizer, mapping, tenantId, version, versionAsAt);
+        var result = getByIdVersionKeys(pipelineId, executionId, groupContextId, authorizer, mapping.getId(), values, outputColumn, keyColumn, actualVersion, tenantId);
+
+        log.debug("getValues> exit> found:{}", result.size());
+        return result;
+    }
+
+    /**
+     * Resolves the reference dataset, and downloads and opens its index, without performing a lookup.
+     */
+    public void prefetch(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String name, Optional<String> tenantId, Optional<String> version, Optional<String> versionAsAt) throws ReferenceDatasetNotFoundException {
+        log.debug("prefetch> in> pipelineId:{}, executionId:{}, groupContextId:{}, name:{}, tenantId:{}, version:{}, versionAsAt:{}",
+                pipelineId, executionId, groupContextId, name, tenantId, version, versionAsAt);
+
+        Validate.notEmpty(pipelineId);
+        Validate.notEmpty(executionId);
+        Validate.notEmpty(groupContextId);
+        Validate.notEmpty(name);
+
+        var mapping = getLatestByName(pipelineId, executionId, groupContextId, authorizer, name, tenantId);
+
+        var actualVersion = resolveVersion(pipelineId, executionId, groupContextId, authorizer, mapping, tenantId, version, versionAsAt);
+        getDataset(pipelineId, executionId, groupContextId, authorizer, mapping.getId(), actualVersion, tenantId);
+        getSearcher(pipelineId, executionId, groupContextId, authorizer, mapping.getId(), actualVersion, tenantId);
+
+        log.debug("prefetch> exit:");
+    }
+
+    private int resolveVersion(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, ResourcesRepository.Mapping mapping, Optional<String> tenantId, Optional<String> version, Optional<String> versionAsAt) throws ReferenceDatasetNotFoundException {
+        if (versionAsAt.isPresent()) {
+            return getVersionAsAt(pipelineId, executionId, groupContextId, authorizer, mapping.getId(), versionAsAt.get(), tenantId);
+        }
+        return ("latest".equals(version.orElse("latest"))) ? mapping.getLatestVersion() : Integer.parseInt(version.get());
+    }
+
     private String referenceDatasetVersionCacheKey(String pipelineId, String executionId, String groupContextId, String id, int version, Optional<String> tenantId) {
         return String.format("%s:%s:%s:%s:%s:%s", pipelineId, executionId, groupContextId, id, version, tenantId.orElse(""));
     }
@@ -105,13 +237,25 @@ public class DatasetsClient {
         // do we already have it cached locally?
         var cacheKey = String.format("%s:%s:%s:%s:%s", pipelineId, executionId, groupContextId, name, tenantId.orElse(""));
         if (!mappingCache.containsKey(cacheKey)) {
-            // not in cache, but do we have it already available in the database?
+            // not in cache, but have we recently found that it does not exist? checked before the database so that
+            // repeated misses do not each cost a round trip
+            var notFound = notFoundCache.get(cacheKey);
+            if (notFound.isPresent()) {
+                throw new ReferenceDatasetNotFoundException(notFound.get());
+            }
+            // do we have it already available in the database?
             var mapping = repository.getMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.LOOKUP, name);
             if (mapping!=null) {
                 mappingCache.put(cacheKey, mapping);
             } else {
-                // not in db either so let's get it, then cache it for future use
-                var dataset = invokeGetDatasetByName(groupContextId, authorizer, name, tenantId);
+                // not in db either, so let's get it, then cache it for future use
+                Dataset dataset;
+                try {
+                    dataset = invokeGetDatasetByName(groupContextId, authorizer, name, tenantId);
+                } catch (ReferenceDatasetNotFoundException e) {
+                    notFoundCache.put(cacheKey, e.getMessage());
+                    throw e;
+                }
                 var newMapping = new ResourcesRepository.Mapping(dataset.getId(), dataset.getVersion());
                 repository.saveMapping(pipelineId, executionId, groupContextId, ResourcesRepository.Type.LOOKUP, name, newMapping);
                 mappingCache.put(cacheKey, newMapping);
@@ -134,47 +278,25 @@ public class DatasetsClient {
         Validate.notEmpty(outputColumn);
         Validate.notEmpty(keyColumn);
 
-        var referenceDatasetCacheKey = referenceDatasetVersionCacheKey(pipelineId, executionId, id, groupContextId, version, tenantId);
-        if (!referenceDatasetsCache.containsKey(referenceDatasetCacheKey)) {
-            var dataset = invokeGetDatasetByVersion(groupContextId, authorizer, id, version, tenantId);
-            referenceDatasetsCache.put(referenceDatasetCacheKey, dataset);
-        }
-        var dataset = referenceDatasetsCache.get(referenceDatasetCacheKey);
+        validateColumns(pipelineId, executionId, groupContextId, authorizer, id, outputColumn, keyColumn, version, tenantId);
 
-        var headerList = Arrays.asList(dataset.getDatasetHeaders());
-        String columnNotFoundErrorStr = String.format("Requested column '%s' or '%s' not found in dataset '%s' (version %s)", outputColumn, keyColumn, id, version);
-        if (!headerList.contains(keyColumn) || !headerList.contains(outputColumn)) {
-            throw new ArithmeticException(columnNotFoundErrorStr);
+        // data with a systematically bad key would otherwise repeat the same (unsuccessful) search for every row
+        var keyCacheKey = keyCacheKey(pipelineId, executionId, groupContextId, id, version, tenantId, keyColumn, value);
+        if (keyNotFoundCache.get(keyCacheKey).isPresent()) {
+            log.debug("getByIdVersionKey> exit> key known not to exist");
+            return null;
         }
-
-        // do we already have the index initialized for the dataset
-        var indexCacheKey = String.format("%s:%s:%s:%s:%d:%s", pipelineId, executionId, groupContextId, id, version, tenantId.orElse(""));
-        log.trace("getByIdVersionKey> datasetCacheKey:{}", indexCacheKey);
-
-        // check if index is already initialized in cache
-        if(!indexCache.containsKey(indexCacheKey)) {
-            // if not then, we have to initialize the index
-            // first we have to check if the index file was download previously
-            var localZippedIndexLocation = String.format("%s/%s/%s/%d/index.zip", config.getString("calculator.temp.location"), groupContextId.replaceAll("/","___"), id, version);
-            var localExtractedIndexLocation = String.format("%s/%s/%s/%d/index", config.getString("calculator.temp.location"), groupContextId.replaceAll("/","___"), id, version);
-            var localFile = new File(localZippedIndexLocation);
-            // check if the zipped index file has already been downloaded
-            if (!localFile.exists()) {
-                // does not exist locally therefore download
-                localFile.getParentFile().mkdirs();
-                var downloadUrl = getDownloadUrl(groupContextId, authorizer, id, version, tenantId);
-                download(downloadUrl.getUrl(), localZippedIndexLocation);
-            }
-            // at this point the index file should be available to initialize the index in memory and cache the searcher
-            var searcher = initializeIndex(localZippedIndexLocation, localExtractedIndexLocation);
-            // once initialized, lets add the searcher to indexCache. This is in memory so need to rebuild the index in memory
-            // once it's been initialized. This will help us track multiple indexes and utilize an initialized searcher rather than
-            // rebuilding the searcher everytime a lookup needs to happen.
-            this.indexCache.put(indexCacheKey, searcher);
+        // whereas the keys of the rows being processed may already have been looked up as a batch
+        var cached = keyCache.get(keyCacheKey + ":" + outputColumn);
+        if (cached != null) {
+            log.debug("getByIdVersionKey> exit> cached result: {}", cached);
+            return cached;
         }
 
-        // At this point there should be a lucene index initialized which we can use to perform the searches
-        IndexSearcher searcher = indexCache.get(indexCacheKey);
+        // At this point there should be a lucene index initialized which we can use to perform the searches. The index is
+        // acquired for the duration of the search to prevent its eviction, being reopened if evicted since being retrieved.
+        var localIndexLocation = Paths.get(indexLocation(groupContextId, id, version));
+        var searcher = acquireSearcher(pipelineId, executionId, groupContextId, authorizer, id, version, tenantId);
 
         List<Document> documents;
         try {
@@ -197,13 +319,19 @@ public class DatasetsClient {
         } catch (Exception e) {
             log.error("getByIdVersionKey> error> lucene exception:", e);
             throw new RuntimeException("failed to parse lucene query", e);
+        } finally {
+            indexStore.release(localIndexLocation);
         }
 
         if (documents.size() == 0) {
+            keyNotFoundCache.put(keyCacheKey, String.format("Key '%s' not found in column '%s'", value, keyColumn));
             return null;
         }
         // let's get the output column the document has fields on it, we first get the first doc and then get the field we need.
         String result = documents.get(0).get(outputColumn);
+        if (result != null) {
+            keyCache.put(keyCacheKey + ":" + outputColumn, result);
+        }
 
         log.debug("getByIdVersionKey> out> result: {}", result);
 
@@ -211,6 +339,275 @@ public class DatasetsClient {
         return result;
     }
 
+    private Map<String, String> getByIdVersionKeys(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, Collection<String> values, String outputColumn, String keyColumn, int version, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        log.debug("getByIdVersionKeys> in> pipelineId:{}, executionId:{}, groupContextId:{}, id:{}, values:{}, outputColumn:{}, keyColumn: {}, version:{}, tenantId:{}",
+                pipelineId, executionId, groupContextId, id, values.size(), outputColumn, keyColumn, version, tenantId);
+
+        validateColumns(pipelineId, executionId, groupContextId, authorizer, id, outputColumn, keyColumn, version, tenantId);
+
+        // only search for the keys not already known to exist, or not exist
+        var result = new HashMap<String, String>();
+        var pending = new LinkedHashSet<String>();
+        for (var value : values) {
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            var keyCacheKey = keyCacheKey(pipelineId, executionId, groupContextId, id, version, tenantId, keyColumn, value);
+            var cached = keyCache.get(keyCacheKey + ":" + outputColumn);
+            if (cached != null) {
+                result.put(value, cached);
+            } else if (keyNotFoundCache.get(keyCacheKey).isEmpty()) {
+                pending.add(value);
+            }
+        }
+        if (pending.isEmpty()) {
+            log.debug("getByIdVersionKeys> exit> all cached:{}", result.size());
+            return result;
+        }
+
+        var localIndexLocation = Paths.get(indexLocation(groupContextId, id, version));
+        var searcher = acquireSearcher(pipelineId, executionId, groupContextId, authorizer, id, version, tenantId);
+        Map<String, Document> documents;
+        try {
+            documents = KeySearcher.search(searcher, keyColumn, pending);
+        } catch (Exception e) {
+            log.error("getByIdVersionKeys> error> lucene exception:", e);
+            throw new RuntimeException("failed to search lucene index", e);
+        } finally {
+            indexStore.release(localIndexLocation);
+        }
+
+        for (var value : pending) {
+            var keyCacheKey = keyCacheKey(pipelineId, executionId, groupContextId, id, version, tenantId, keyColumn, value);
+            var document = documents.get(value);
+            if (document == null) {
+                keyNotFoundCache.put(keyCacheKey, String.format("Key '%s' not found in column '%s'", value, keyColumn));
+                continue;
+            }
+            var output = document.get(outputColumn);
+            if (output != null) {
+                keyCache.put(keyCacheKey + ":" + outputColumn, output);
+                result.put(value, output);
+            }
+        }
+
+        log.debug("getByIdVersionKeys> exit> searched:{}, found:{}", pending.size(), result.size());
+        return result;
+    }
+
+    private String getByIdVersionCompositeKey(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, List<String> values, String outputColumn, List<String> keyColumns, int version, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        log.debug("getByIdVersionCompositeKey> in> pipelineId:{}, executionId:{}, groupContextId:{}, id:{}, values:{}, outputColumn:{}, keyColumns: {}, version:{}, tenantId:{}",
+                pipelineId, executionId, groupContextId, id, values, outputColumn, keyColumns, version, tenantId);
+
+        for (var keyColumn : keyColumns) {
+            validateColumns(pipelineId, executionId, groupContextId, authorizer, id, outputColumn, keyColumn, version, tenantId);
+        }
+
+        var keyCacheKey = keyCacheKey(pipelineId, executionId, groupContextId, id, version, tenantId, String.join("\u001f", keyColumns), String.join("\u001f", values));
+        if (keyNotFoundCache.get(keyCacheKey).isPresent()) {
+            log.debug("getByIdVersionCompositeKey> exit> key known not to exist");
+            return null;
+        }
+        var cached = keyCache.get(keyCacheKey + ":" + outputColumn);
+        if (cached != null) {
+            log.debug("getByIdVersionCompositeKey> exit> cached result: {}", cached);
+            return cached;
+        }
+
+        var localIndexLocation = Paths.get(indexLocation(groupContextId, id, version));
+        var searcher = acquireSearcher(pipelineId, executionId, groupContextId, authorizer, id, version, tenantId);
+        Document document;
+        try {
+            document = KeySearcher.searchComposite(searcher, keyColumns, values);
+        } catch (Exception e) {
+            log.error("getByIdVersionCompositeKey> error> lucene exception:", e);
+            throw new RuntimeException("failed to search lucene index", e);
+        } finally {
+            indexStore.release(localIndexLocation);
+        }
+
+        if (document == null) {
+            keyNotFoundCache.put(keyCacheKey, String.format("Key '%s' not found in columns '%s'", values, keyColumns));
+            return null;
+        }
+        String result = document.get(outputColumn);
+        if (result != null) {
+            keyCache.put(keyCacheKey + ":" + outputColumn, result);
+        }
+
+        log.debug("getByIdVersionCompositeKey> out> result: {}", result);
+        return result;
+    }
+
+    private String getByIdVersionRange(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, String value, double point, String outputColumn, String fromColumn, String toColumn, int version, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        log.debug("getByIdVersionRange> in> pipelineId:{}, executionId:{}, groupContextId:{}, id:{}, value:{}, outputColumn:{}, fromColumn:{}, toColumn:{}, version:{}, tenantId:{}",
+                pipelineId, executionId, groupContextId, id, value, outputColumn, fromColumn, toColumn, version, tenantId);
+
+        validateColumns(pipelineId, executionId, groupContextId, authorizer, id, outputColumn, fromColumn, version, tenantId);
+        validateColumns(pipelineId, executionId, groupContextId, authorizer, id, outputColumn, toColumn, version, tenantId);
+
+        var keyCacheKey = keyCacheKey(pipelineId, executionId, groupContextId, id, version, tenantId, fromColumn + "\u001f" + toColumn, Double.toString(point));
+        if (keyNotFoundCache.get(keyCacheKey).isPresent()) {
+            log.debug("getByIdVersionRange> exit> value known not to be within any interval");
+            return null;
+        }
+        var cached = keyCache.get(keyCacheKey + ":" + outputColumn);
+        if (cached != null) {
+            log.debug("getByIdVersionRange> exit> cached result: {}", cached);
+            return cached;
+        }
+
+        var localIndexLocation = Paths.get(indexLocation(groupContextId, id, version));
+        var searcher = acquireSearcher(pipelineId, executionId, groupContextId, authorizer, id, version, tenantId);
+        Document document;
+        try {
+            var tree = intervalTrees.computeIfAbsent(localIndexLocation, l -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(fromColumn + "\u001f" + toColumn, c -> KeySearcher.intervalTree(searcher, fromColumn, toColumn));
+            var docId = tree.find(point);
+            document = (docId == -1) ? null : searcher.storedFields().document(docId);
+        } catch (Exception e) {
+            log.error("getByIdVersionRange> error> lucene exception:", e);
+            throw new RuntimeException("failed to search lucene index", e);
+        } finally {
+            indexStore.release(localIndexLocation);
+        }
+
+        if (document == null) {
+            keyNotFoundCache.put(keyCacheKey, String.format("Value '%s' not within any interval of columns '%s' and '%s'", value, fromColumn, toColumn));
+            return null;
+        }
+        String result = document.get(outputColumn);
+        if (result != null) {
+            keyCache.put(keyCacheKey + ":" + outputColumn, result);
+        }
+
+        log.debug("getByIdVersionRange> out> result: {}", result);
+        return result;
+    }
+
+    private void validateColumns(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, String outputColumn, String keyColumn, int version, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        var dataset = getDataset(pipelineId, executionId, groupContextId, authorizer, id, version, tenantId);
+
+        var headerList = Arrays.asList(dataset.getDatasetHeaders());
+        String columnNotFoundErrorStr = String.format("Requested column '%s' or '%s' not found in dataset '%s' (version %s)", outputColumn, keyColumn, id, version);
+        if (!headerList.contains(keyColumn) || !headerList.contains(outputColumn)) {
+            throw new ArithmeticException(columnNotFoundErrorStr);
+        }
+    }
+
+    private String keyCacheKey(String pipelineId, String executionId, String groupContextId, String id, int version, Optional<String> tenantId, String keyColumn, String value) {
+        return String.format("%s:%s:%s:%s:%d:%s:%s:%s", pipelineId, executionId, groupContextId, id, version, tenantId.orElse(""), keyColumn, value);
+    }
+
+    /**
+     * Returns the searcher of the dataset version's index having acquired it, preventing its eviction until released.
+     */
+    private IndexSearcher acquireSearcher(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, int version, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        var localIndexLocation = Paths.get(indexLocation(groupContextId, id, version));
+        IndexSearcher searcher;
+        do {
+            // the index is reopened if evicted since being retrieved
+            searcher = getSearcher(pipelineId, executionId, groupContextId, authorizer, id, version, tenantId);
+        } while (!indexStore.acquire(localIndexLocation, searcher));
+        return searcher;
+    }
+
+    private Dataset getDataset(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, int version, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        log.debug("getDataset> in> pipelineId:{}, executionId:{}, groupContextId:{}, id:{}, version:{}, tenantId:{}",
+                pipelineId, executionId, groupContextId, id, version, tenantId);
+
+        var referenceDatasetCacheKey = referenceDatasetVersionCacheKey(pipelineId, executionId, id, groupContextId, version, tenantId);
+        if (!referenceDatasetsCache.containsKey(referenceDatasetCacheKey)) {
+            var dataset = invokeGetDatasetByVersion(groupContextId, authorizer, id, version, tenantId);
+            referenceDatasetsCache.put(referenceDatasetCacheKey, dataset);
+        }
+        var dataset = referenceDatasetsCache.get(referenceDatasetCacheKey);
+
+        log.debug("getDataset> exit:{}", dataset);
+        return dataset;
+    }
+
+    private IndexSearcher getSearcher(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, int version, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        log.debug("getSearcher> in> pipelineId:{}, executionId:{}, groupContextId:{}, id:{}, version:{}, tenantId:{}",
+                pipelineId, executionId, groupContextId, id, version, tenantId);
+
+        // do we already have the index initialized for the dataset
+        var indexCacheKey = String.format("%s:%s:%s:%s:%d:%s", pipelineId, executionId, groupContextId, id, version, tenantId.orElse(""));
+        log.trace("getSearcher> datasetCacheKey:{}", indexCacheKey);
+
+        // check if index is already initialized in cache
+        if(!indexCache.containsKey(indexCacheKey)) {
+            // if not then, we have to initialize the index
+            // first we have to check if the index file was download previously
+            var localIndexPath = Paths.get(indexLocation(groupContextId, id, version));
+            // indexes may be initialized concurrently when prefetching, so ensure only one thread downloads and extracts a given index location
+            var lock = indexStore.lockFor(localIndexPath);
+            lock.lock();
+            try {
+                if (!indexCache.containsKey(indexCacheKey) && openIndexes.containsKey(localIndexPath)) {
+                    // a dataset version's index is immutable, therefore once opened it is shared by all executions
+                    this.indexCache.put(indexCacheKey, openIndexes.get(localIndexPath));
+                } else if (!indexCache.containsKey(indexCacheKey)) {
+                    // check if the index has already been downloaded and extracted (completely) by a previous execution
+                    if (!IndexDownloader.isComplete(localIndexPath)) {
+                        // does not exist locally therefore download, extracting as it downloads
+                        var downloadUrl = getDownloadUrl(groupContextId, authorizer, id, version, tenantId);
+                        download(downloadUrl.getUrl(), localIndexPath);
+                    }
+                    // at this point the index should be available to initialize the index and cache the searcher
+                    var searcher = initializeIndex(localIndexPath);
+                    // once initialized, lets add the searcher to indexCache. This is in memory so need to rebuild the index in memory
+                    // once it's been initialized. This will help us track multiple indexes and utilize an initialized searcher rather than
+                    // rebuilding the searcher everytime a lookup needs to happen.
+                    this.indexCache.put(indexCacheKey, searcher);
+                    this.openIndexes.put(localIndexPath, searcher);
+                    // which may result in other indexes being evicted from local storage to remain within quota
+                    registerIndex(localIndexPath, searcher);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        var searcher = indexCache.get(indexCacheKey);
+        log.debug("getSearcher> exit:");
+        return searcher;
+    }
+
+    private String indexLocation(String groupContextId, String id, int version) {
+        return String.format("%s/%s/%s/%d/index", config.getString("calculator.temp.location"), groupContextId.replaceAll("/","___"), id, version);
+    }
+
+    private void registerIndex(Path localIndexLocation, IndexSearcher searcher) {
+        try {
+            indexStore.register(localIndexLocation, searcher);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to register the lucene index", e);
+        }
+    }
+
+    private void onIndexEvicted(Path localIndexLocation, IndexSearcher searcher) {
+        log.debug("onIndexEvicted> in> localIndexLocation:{}", localIndexLocation);
+        openIndexes.remove(localIndexLocation, searcher);
+        intervalTrees.remove(localIndexLocation);
+        indexCache.values().removeIf(s -> s == searcher);
+    }
+
+    private int getVersionAsAt(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, String versionAsAt, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
+        log.debug("getVersionAsAt> in> pipelineId:{}, executionId:{}, groupContextId:{}, id:{}, versionAsAt:{}, tenantId:{}", pipelineId, executionId, groupContextId, id, versionAsAt, tenantId);
+
+        var activationDateVersionCacheKey = String.format("%s:%s:%s:%s:%s:%s", pipelineId, executionId, groupContextId, id, versionAsAt, tenantId.orElse(""));
+
+        if (!activationDateVersionCache.containsKey(activationDateVersionCacheKey)) {
+            var dataset = this.invokeGetDatasetByVersionAsAt(groupContextId, authorizer, id, versionAsAt, tenantId);
+            activationDateVersionCache.put(activationDateVersionCacheKey, dataset.getVersion());
+        }
+        var version = activationDateVersionCache.get(activationDateVersionCacheKey);
+
+        log.debug("getVersionAsAt> exit:{}", version);
+        return version;
+    }
+
     private String getByIdVersionAsAtKey(String pipelineId, String executionId, String groupContextId, Authorizer authorizer, String id, String value, String outputColumn, String keyColumn, String versionAsAt, Optional<String> tenantId) throws ReferenceDatasetNotFoundException {
         log.debug("getByIdVersionAsAtKey> in> pipelineId:{}, executionId:{}, groupContextId:{}, id:{}, value:{}, outputColumn:{}, keyColumn: {}, versionAsAt:{}, tenantId:{}", pipelineId, executionId, groupContextId, id, value, outputColumn, keyColumn, versionAsAt, tenantId);
 
@@ -222,13 +619,7 @@ public class DatasetsClient {
         Validate.notEmpty(keyColumn);
         Validate.notEmpty(versionAsAt);
 
-        var activationDateVersionCacheKey = String.format("%s:%s:%s:%s:%s:%s", pipelineId, executionId, groupContextId, id, versionAsAt, tenantId.orElse(""));
-
-        if (!activationDateVersionCache.containsKey(activationDateVersionCacheKey)) {
-            var dataset = this.invokeGetDatasetByVersionAsAt(groupContextId, authorizer, id, versionAsAt, tenantId);
-            activationDateVersionCache.put(activationDateVersionCacheKey, dataset.getVersion());
-        }
-        var version = activationDateVersionCache.get(activationDateVersionCacheKey);
+        var version = getVersionAsAt(pipelineId, executionId, groupContextId, authorizer, id, versionAsAt, tenantId);
         var result = this.getByIdVersionKey(pipelineId, executionId, groupContextId, authorizer, id, value, outputColumn, keyColumn, version, tenantId);
 
         log.debug("getByIdVersionAsAtKey> out> result: {}", result);
@@ -316,21 +707,12 @@ public class DatasetsClient {
 
     }
 
-    private IndexSearcher initializeIndex(String localIndexZipFileLocation, String tempIndexLocation) {
-        log.debug("initializeIndex> in> localIndexFileLocation:{}", localIndexZipFileLocation);
-
-        Validate.notEmpty(localIndexZipFileLocation);
-        Validate.notEmpty(tempIndexLocation);
+    private IndexSearcher initializeIndex(Path localIndexLocation) {
+        log.debug("initializeIndex> in> localIndexLocation:{}", localIndexLocation);
 
         try {
-            Path path = Paths.get(tempIndexLocation);
-            //first we have to unpack the zipped index file
-            ZipUtil.unpack(new File(localIndexZipFileLocation), new File(tempIndexLocation));
-            // let's delete the zip file, once we have unpacked it.
-            File file = new File(localIndexZipFileLocation);
-            file.delete();
-            // use the lucene directory reader to open the directory
-            FSDirectory directory = FSDirectory.open(path);
+            // open the directory within the tier (on heap, or memory mapped) decided by the residency policy
+            Directory directory = indexResidency.open(localIndexLocation);
             DirectoryReader reader = DirectoryReader.open(directory);
             // initialize the lucene searcher
             log.debug("initializeIndex> out> ");
@@ -343,16 +725,13 @@ public class DatasetsClient {
 
     }
 
-    private void download(String fileURL, String localFilename) throws ReferenceDatasetNotFoundException {
-        log.debug("download> in> fileURL:{}, localFilename:{}", fileURL, localFilename);
+    private void download(String fileURL, Path localIndexLocation) throws ReferenceDatasetNotFoundException {
+        log.debug("download> in> localIndexLocation:{}", localIndexLocation);
 
         Validate.notEmpty(fileURL);
-        Validate.notEmpty(localFilename);
 
-        try (var readableByteChannel = Channels.newChannel((new URL(fileURL)).openStream());
-             var fileOutputStream = new FileOutputStream(localFilename);
-             var fileChannel = fileOutputStream.getChannel()) {
-            fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+        try {
+            indexDownloader.downloadAndExtract(fileURL, localIndexLocation);
         } catch (IOException e) {
             throw new ReferenceDatasetNotFoundException("Unable to download reference dataset.", e);
         }
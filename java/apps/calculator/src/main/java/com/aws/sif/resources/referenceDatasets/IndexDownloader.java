@@ -0,0 +1,283 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.referenceDatasets;
+
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Downloads a zipped lookup index and extracts it as it is downloaded, without an intermediate zip file being written
+ * to disk. Large indexes are downloaded as multiple ranges in parallel, which are then decompressed in order.
+ * <p>
+ * The index is extracted to a <code>.partial</code> sibling directory, and only once fully extracted and verified (each
+ * entry's CRC by the zip decoder, and the total number of bytes received against the object's length) is it marked
+ * complete and moved into place. Therefore an interrupted or failed download never leaves a partial index in place,
+ * and is restarted from scratch upon the next attempt.
+ */
+@Slf4j
+public class IndexDownloader {
+
+    static final String COMPLETION_MARKER = ".complete";
+
+    private final long partSize;
+    private final int parallelism;
+    private final int numberOfRetries;
+    private final ExecutorService executor;
+
+    @Inject
+    public IndexDownloader(Config config) {
+        this.partSize = config.getBytes("calculator.referenceDatasets.index.download.partSize");
+        this.parallelism = config.getInt("calculator.referenceDatasets.index.download.parallelism");
+        this.numberOfRetries = config.getInt("calculator.referenceDatasets.index.download.numberOfRetries");
+
+        var count = new AtomicLong(0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            var thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("index-download-thread-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static boolean isComplete(Path target) {
+        return Files.exists(target.resolve(COMPLETION_MARKER));
+    }
+
+    /**
+     * Downloads and extracts the zipped index at the provided url to the target directory, unless already complete.
+     */
+    public void downloadAndExtract(String url, Path target) throws IOException {
+        log.debug("downloadAndExtract> in> target:{}", target);
+
+        if (isComplete(target)) {
+            log.debug("downloadAndExtract> exit> already complete");
+            return;
+        }
+
+        var partial = target.resolveSibling(target.getFileName() + ".partial");
+        IOException lastError = null;
+        for (var attempt = 0; attempt <= numberOfRetries; attempt++) {
+            // anything left from a previous (failed) attempt is discarded
+            deleteRecursively(partial);
+            Files.createDirectories(partial);
+            try (var in = new RangedInputStream(new URL(url))) {
+                extract(in, partial);
+                // the zip decoder does not necessarily read the trailing central directory
+                in.transferTo(OutputStream.nullOutputStream());
+                in.verifyLength();
+                lastError = null;
+                break;
+            } catch (IOException | CompletionException e) {
+                lastError = (e instanceof IOException) ? (IOException) e : new IOException(e.getCause());
+                log.warn("downloadAndExtract> attempt {} failed: {}", attempt + 1, lastError.getMessage());
+            }
+        }
+        if (lastError != null) {
+            deleteRecursively(partial);
+            throw lastError;
+        }
+
+        Files.createFile(partial.resolve(COMPLETION_MARKER));
+        // anything at the target is incomplete (as otherwise we would have exited early), therefore replaced
+        deleteRecursively(target);
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+
+        log.debug("downloadAndExtract> exit>");
+    }
+
+    private void extract(InputStream in, Path destination) throws IOException {
+        var zip = new ZipInputStream(in);
+        var root = destination.toAbsolutePath().normalize();
+        for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            var file = root.resolve(entry.getName()).normalize();
+            if (!file.startsWith(root)) {
+                throw new IOException(String.format("Zip entry '%s' is outside of the destination", entry.getName()));
+            }
+            if (entry.isDirectory()) {
+                Files.createDirectories(file);
+            } else {
+                Files.createDirectories(file.getParent());
+                // reading the entry to its end verifies its CRC, throwing a ZipException if mismatched
+                Files.copy(zip, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Presents the object at a (presigned) url as a single stream, having downloaded it as multiple ranges in
+     * parallel. At most <code>parallelism</code> parts are buffered at any one time. Falls back to a single request
+     * if the server does not support range requests.
+     */
+    private class RangedInputStream extends InputStream {
+        private final URL url;
+        private final Deque<CompletableFuture<byte[]>> parts = new ArrayDeque<>();
+        private long length = -1;
+        private long nextPartStart;
+        private long received;
+        private InputStream current;
+        private HttpURLConnection unranged;
+
+        RangedInputStream(URL url) throws IOException {
+            this.url = url;
+            var first = fetchFirst();
+            if (first != null) {
+                current = new ByteArrayInputStream(first);
+                received = first.length;
+                fillParts();
+            }
+        }
+
+        private byte[] fetchFirst() throws IOException {
+            var connection = connect(0, partSize - 1);
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+                // e.g. "bytes 0-8388607/123456789"
+                var contentRange = connection.getHeaderField("Content-Range");
+                length = Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1));
+                nextPartStart = Math.min(partSize, length);
+                try (var in = connection.getInputStream()) {
+                    return readPart(in, 0, nextPartStart - 1);
+                }
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Unexpected response code %d downloading index", connection.getResponseCode()));
+            }
+            length = connection.getContentLengthLong();
+            unranged = connection;
+            current = connection.getInputStream();
+            return null;
+        }
+
+        private void fillParts() {
+            while (parts.size() < parallelism && nextPartStart < length) {
+                var start = nextPartStart;
+                var end = Math.min(start + partSize, length) - 1;
+                parts.add(CompletableFuture.supplyAsync(() -> fetchPart(start, end), executor));
+                nextPartStart = end + 1;
+            }
+        }
+
+        private byte[] fetchPart(long start, long end) {
+            IOException lastError = null;
+            for (var attempt = 0; attempt <= numberOfRetries; attempt++) {
+                try {
+                    var connection = connect(start, end);
+                    if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                        throw new IOException(String.format("Unexpected response code %d downloading range %d-%d", connection.getResponseCode(), start, end));
+                    }
+                    try (var in = connection.getInputStream()) {
+                        return readPart(in, start, end);
+                    }
+                } catch (IOException e) {
+                    lastError = e;
+                    log.debug("fetchPart> range {}-{} attempt {} failed: {}", start, end, attempt + 1, e.getMessage());
+                }
+            }
+            throw new CompletionException(lastError);
+        }
+
+        private byte[] readPart(InputStream in, long start, long end) throws IOException {
+            var expected = (int) (end - start + 1);
+            var bytes = in.readNBytes(expected);
+            if (bytes.length != expected) {
+                throw new IOException(String.format("Expected %d bytes for range %d-%d but received %d", expected, start, end, bytes.length));
+            }
+            return bytes;
+        }
+
+        private HttpURLConnection connect(long start, long end) throws IOException {
+            var connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestProperty("Range", String.format("bytes=%d-%d", start, end));
+            return connection;
+        }
+
+        private boolean advance() {
+            if (unranged != null || parts.isEmpty()) {
+                return false;
+            }
+            var bytes = parts.poll().join();
+            received += bytes.length;
+            current = new ByteArrayInputStream(bytes);
+            fillParts();
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                var read = current.read(b, off, len);
+                if (read != -1) {
+                    if (unranged != null) {
+                        received += read;
+                    }
+                    return read;
+                }
+                if (!advance()) {
+                    return -1;
+                }
+            }
+        }
+
+        void verifyLength() throws IOException {
+            if (length >= 0 && received != length) {
+                throw new IOException(String.format("Expected %d bytes but received %d", length, received));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            parts.forEach(p -> p.cancel(true));
+            if (unranged != null) {
+                current.close();
+                unranged.disconnect();
+            }
+        }
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (var p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.referenceDatasets;
+
+import com.typesafe.config.Config;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Decides where each extracted lookup index resides, within the per-container byte budgets:
+ * <ul>
+ *     <li>{@link Tier#HEAP}: small indexes are copied fully on heap, avoiding any disk or page cache access.</li>
+ *     <li>{@link Tier#MMAP_PRELOAD}: larger indexes are memory mapped, with their pages loaded into the page cache
+ *     upon opening so that the first lookups do not incur page faults.</li>
+ *     <li>{@link Tier#MMAP}: once the above budgets are exhausted, indexes are memory mapped and paged in on demand.</li>
+ * </ul>
+ * The budget consumed by an index is returned once it is {@link #release(Path) released}.
+ */
+@Slf4j
+public class IndexResidency {
+
+    private final long heapMaxIndexBytes;
+    private final long heapBudgetBytes;
+    private final long preloadBudgetBytes;
+
+    private final Map<Path, Assignment> assignments = new HashMap<>();
+    private long heapBytes;
+    private long preloadBytes;
+
+    @Inject
+    public IndexResidency(Config config) {
+        this.heapMaxIndexBytes = config.getBytes("calculator.referenceDatasets.index.heap.maxIndexSize");
+        this.heapBudgetBytes = config.getBytes("calculator.referenceDatasets.index.heap.budget");
+        this.preloadBudgetBytes = config.getBytes("calculator.referenceDatasets.index.mmap.preloadBudget");
+    }
+
+    /**
+     * Opens the index extracted to the provided location within the tier it is assigned.
+     */
+    public Directory open(Path location) throws IOException {
+        log.debug("open> in> location:{}", location);
+
+        var size = sizeOf(location);
+        var tier = assign(location, size);
+
+        Directory directory;
+        switch (tier) {
+            case HEAP -> {
+                directory = new ByteBuffersDirectory();
+                try (var fs = FSDirectory.open(location)) {
+                    for (var file : fs.listAll()) {
+                        directory.copyFrom(fs, file, file, IOContext.READONCE);
+                    }
+                }
+            }
+            case MMAP_PRELOAD -> {
+                var mmap = new MMapDirectory(location);
+                mmap.setPreload(MMapDirectory.ALL_FILES);
+                directory = mmap;
+            }
+            default -> directory = new MMapDirectory(location);
+        }
+
+        log.debug("open> exit> tier:{}, size:{}", tier, size);
+        return directory;
+    }
+
+    synchronized Tier assign(Path location, long size) {
+        var existing = assignments.get(location);
+        if (existing != null) {
+            return existing.getTier();
+        }
+
+        Tier tier;
+        if (size <= heapMaxIndexBytes && heapBytes + size <= heapBudgetBytes) {
+            tier = Tier.HEAP;
+            heapBytes += size;
+        } else if (preloadBytes + size <= preloadBudgetBytes) {
+            tier = Tier.MMAP_PRELOAD;
+            preloadBytes += size;
+        } else {
+            tier = Tier.MMAP;
+        }
+        assignments.put(location, new Assignment(tier, size));
+        return tier;
+    }
+
+    /**
+     * Returns the budget consumed by the index at the provided location, to be called once its reader is closed.
+     */
+    public synchronized void release(Path location) {
+        var assignment = assignments.remove(location);
+        if (assignment == null) {
+            return;
+        }
+        switch (assignment.getTier()) {
+            case HEAP -> heapBytes -= assignment.getSize();
+            case MMAP_PRELOAD -> preloadBytes -= assignment.getSize();
+            default -> {
+            }
+        }
+        log.debug("release> location:{}, tier:{}", location, assignment.getTier());
+    }
+
+    public synchronized Tier tierOf(Path location) {
+        var assignment = assignments.get(location);
+        return (assignment == null) ? null : assignment.getTier();
+    }
+
+    public synchronized long getHeapBytes() {
+        return heapBytes;
+    }
+
+    public synchronized long getPreloadBytes() {
+        return preloadBytes;
+    }
+
+    static long sizeOf(Path location) throws IOException {
+        try (Stream<Path> files = Files.walk(location)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> {
+                try {
+                    return Files.size(f);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public enum Tier {
+        HEAP, MMAP_PRELOAD, MMAP
+    }
+
+    @Value
+    private static class Assignment {
+        Tier tier;
+        long size;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.referenceDatasets;
+
+import com.aws.sif.metrics.EmbeddedMetrics;
+import com.typesafe.config.Config;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Tracks the lookup indexes extracted to local storage, their size, when last accessed, and how many lookups are
+ * currently reading from each. Once the total size exceeds the configured quota, the least recently used indexes not
+ * currently being read are closed, released from the {@link IndexResidency residency} budgets, and deleted, with the
+ * registered eviction listeners notified so that any in-memory references (e.g. searcher caches) are dropped.
+ */
+@Slf4j
+public class IndexStore {
+
+    private final Config config;
+    private final long quotaBytes;
+    private final IndexResidency residency;
+    private final Map<Path, Entry> entries = new HashMap<>();
+    private final List<BiConsumer<Path, IndexSearcher>> evictionListeners = new ArrayList<>();
+    private final Map<Path, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    private long totalBytes;
+    // metrics, reset each time they are published
+    private long evictions;
+
+    @Inject
+    public IndexStore(Config config, IndexResidency residency) {
+        this.config = config;
+        this.quotaBytes = config.getBytes("calculator.referenceDatasets.index.store.quota");
+        this.residency = residency;
+    }
+
+    /**
+     * The lock to be held whilst downloading or opening the index at the provided location. Indexes are only evicted
+     * if their lock can be acquired, so an index is never deleted whilst being (re)opened.
+     */
+    public ReentrantLock lockFor(Path location) {
+        return locks.computeIfAbsent(location, l -> new ReentrantLock());
+    }
+
+    public synchronized void onEviction(BiConsumer<Path, IndexSearcher> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Registers a newly opened index, evicting other indexes as required to remain within the quota.
+     */
+    public void register(Path location, IndexSearcher searcher) throws IOException {
+        log.debug("register> in> location:{}", location);
+
+        var size = IndexResidency.sizeOf(location);
+        List<Entry> evicted;
+        synchronized (this) {
+            var previous = entries.put(location, new Entry(location, searcher, size));
+            if (previous != null) {
+                totalBytes -= previous.size;
+            }
+            totalBytes += size;
+            evicted = selectEvictions(location);
+        }
+        evicted.forEach(this::evict);
+
+        log.debug("register> exit> size:{}, totalBytes:{}, evicted:{}", size, totalBytes, evicted.size());
+    }
+
+    /**
+     * Marks the index as being read, returning false if the provided searcher is no longer the open searcher of
+     * the index (i.e. it has since been evicted) in which case the index must be reopened. Every successful acquire
+     * must be followed by a {@link #release(Path)}.
+     */
+    public synchronized boolean acquire(Path location, IndexSearcher searcher) {
+        var entry = entries.get(location);
+        if (entry == null || entry.searcher != searcher) {
+            return false;
+        }
+        entry.readers++;
+        entry.lastAccess = System.nanoTime();
+        return true;
+    }
+
+    public synchronized void release(Path location) {
+        var entry = entries.get(location);
+        if (entry != null) {
+            entry.readers--;
+        }
+    }
+
+    private List<Entry> selectEvictions(Path exclude) {
+        var evicted = new ArrayList<Entry>();
+        if (totalBytes <= quotaBytes) {
+            return evicted;
+        }
+        var candidates = entries.values().stream()
+                .filter(e -> e.readers == 0 && !e.location.equals(exclude))
+                .sorted(Comparator.comparingLong(e -> e.lastAccess))
+                .toList();
+        for (var candidate : candidates) {
+            if (totalBytes <= quotaBytes) {
+                break;
+            }
+            // skip those being opened by another thread, which is never blocked on as that thread may itself be evicting
+            if (!lockFor(candidate.location).tryLock()) {
+                continue;
+            }
+            entries.remove(candidate.location);
+            totalBytes -= candidate.size;
+            evictions++;
+            evicted.add(candidate);
+        }
+        if (totalBytes > quotaBytes) {
+            log.warn("selectEvictions> indexes in use ({} bytes) exceed the quota of {} bytes", totalBytes, quotaBytes);
+        }
+        return evicted;
+    }
+
+    private void evict(Entry entry) {
+        log.debug("evict> in> location:{}, size:{}", entry.location, entry.size);
+
+        // the lock of the entry was acquired when selected for eviction
+        var lock = lockFor(entry.location);
+        try {
+            List<BiConsumer<Path, IndexSearcher>> listeners;
+            synchronized (this) {
+                listeners = List.copyOf(evictionListeners);
+            }
+            listeners.forEach(l -> l.accept(entry.location, entry.searcher));
+
+            try {
+                var reader = (DirectoryReader) entry.searcher.getIndexReader();
+                reader.close();
+                reader.directory().close();
+            } catch (IOException e) {
+                log.warn("evict> failed closing index {}: {}", entry.location, e.getMessage());
+            }
+            residency.release(entry.location);
+            try {
+                IndexDownloader.deleteRecursively(entry.location);
+            } catch (IOException e) {
+                log.warn("evict> failed deleting index {}: {}", entry.location, e.getMessage());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        log.debug("evict> exit>");
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized Set<Path> getLocations() {
+        return Set.copyOf(entries.keySet());
+    }
+
+    public void publishMetrics() {
+        var values = new LinkedHashMap<String, Number>();
+        synchronized (this) {
+            values.put("IndexStoreBytes", totalBytes);
+            values.put("IndexStoreQuotaBytes", quotaBytes);
+            values.put("IndexStoreEntries", entries.size());
+            values.put("IndexStoreEvictions", evictions);
+            evictions = 0;
+        }
+        values.put("IndexHeapBytes", residency.getHeapBytes());
+        values.put("IndexPreloadBytes", residency.getPreloadBytes());
+        EmbeddedMetrics.publish(config.getString("calculator.metrics.namespace"), "Store", "referenceDatasetIndexes", values, Set.of());
+    }
+
+    private static class Entry {
+        private final Path location;
+        private final IndexSearcher searcher;
+        private final long size;
+        private long lastAccess = System.nanoTime();
+        private int readers;
+
+        Entry(Path location, IndexSearcher searcher, long size) {
+            this.location = location;
+            this.searcher = searcher;
+            this.size = size;
+        }
+    }
+}
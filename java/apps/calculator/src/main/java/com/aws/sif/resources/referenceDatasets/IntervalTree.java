@@ -0,0 +1,83 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.resources.referenceDatasets;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable (augmented) interval tree of [from, to) intervals, each identifying a document of an index. The intervals
+ * are sorted by their from, with the implicit balanced tree over the sorted intervals tracking the maximum to of each
+ * subtree, allowing subtrees that cannot contain a value to be skipped.
+ */
+public class IntervalTree {
+
+    private final double[] from;
+    private final double[] to;
+    private final int[] docIds;
+    private final double[] maxTo;
+
+    public IntervalTree(double[] from, double[] to, int[] docIds) {
+        var order = IntStream.range(0, from.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> from[i]).thenComparingInt(i -> docIds[i]))
+                .mapToInt(Integer::intValue).toArray();
+        this.from = Arrays.stream(order).mapToDouble(i -> from[i]).toArray();
+        this.to = Arrays.stream(order).mapToDouble(i -> to[i]).toArray();
+        this.docIds = Arrays.stream(order).map(i -> docIds[i]).toArray();
+        this.maxTo = new double[from.length];
+        build(0, from.length);
+    }
+
+    private double build(int lo, int hi) {
+        if (lo >= hi) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        var mid = (lo + hi) >>> 1;
+        maxTo[mid] = Math.max(to[mid], Math.max(build(lo, mid), build(mid + 1, hi)));
+        return maxTo[mid];
+    }
+
+    /**
+     * Returns the lowest document id (i.e. the first in index order) of the intervals containing the value, or -1 if
+     * none do.
+     */
+    public int find(double value) {
+        return find(value, 0, from.length, -1);
+    }
+
+    private int find(double value, int lo, int hi, int found) {
+        if (lo >= hi) {
+            return found;
+        }
+        var mid = (lo + hi) >>> 1;
+        // no interval within this subtree ends after the value
+        if (maxTo[mid] <= value) {
+            return found;
+        }
+        found = find(value, lo, mid, found);
+        // all intervals from here on start after the value
+        if (from[mid] > value) {
+            return found;
+        }
+        if (to[mid] > value && (found == -1 || docIds[mid] < found)) {
+            found = docIds[mid];
+        }
+        return find(value, mid + 1, hi, found);
+    }
+
+    public int size() {
+        return from.length;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.resources.referenceDatasets;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+public class KeySearcher {
+
+    /**
+     * Resolves many keys of the same key column together, returning the first document (in index order) matched by each
+     * key. Keys are matched the same way as a single lookup by {@link DatasetsClient}, being an exact phrase match of the
+     * analyzed key. Keys which analyze to a single term, the common case for ids and codes, are resolved by seeking each
+     * term in the key column's terms of each segment and taking its first live posting, so that no more than one
+     * document is visited per key however common the term. Multi term keys are each a top 1 phrase search. Keys not
+     * found are absent from the returned map.
+     */
+    public static Map<String, Document> search(IndexSearcher searcher, String keyColumn, Collection<String> values) {
+        Map<String, Document> documents = new HashMap<>();
+        try (Analyzer analyzer = new StandardAnalyzer()) {
+            var storedFields = searcher.storedFields();
+
+            // analyze each key into the terms it is indexed as, ignoring those that could never match anything
+            Map<String, List<String>> keyTerms = new LinkedHashMap<>();
+            for (var value : values) {
+                var terms = analyze(analyzer, keyColumn, value);
+                if (!terms.isEmpty()) {
+                    keyTerms.put(value, terms);
+                }
+            }
+
+            // keys which analyze to a single term are resolved from the postings of their term, keys sharing a term
+            // (e.g. differing only by case) being resolved together
+            Map<String, List<String>> termKeys = new LinkedHashMap<>();
+            keyTerms.forEach((key, terms) -> {
+                if (terms.size() == 1) {
+                    termKeys.computeIfAbsent(terms.get(0), t -> new ArrayList<>()).add(key);
+                }
+            });
+            resolveTerms(searcher, storedFields, keyColumn, termKeys, documents);
+
+            // whereas multi term keys are each searched for as a phrase, only the first match being required. Searching
+            // them together would visit every match of every phrase until all were resolved.
+            for (var entry : keyTerms.entrySet()) {
+                if (entry.getValue().size() == 1) {
+                    continue;
+                }
+                var docs = searcher.search(new PhraseQuery(keyColumn, entry.getValue().toArray(new String[0])), 1, Sort.INDEXORDER);
+                if (docs.scoreDocs.length > 0) {
+                    documents.put(entry.getKey(), storedFields.document(docs.scoreDocs[0].doc));
+                }
+            }
+
+        } catch (Exception e) {
+            throw new RuntimeException("searching failed, no results found", e);
+        }
+
+        return documents;
+    }
+
+    /**
+     * Returns the first document (in index order) whose key columns exactly (case-insensitively) match the provided
+     * values. All key columns are searched as one boolean query, with the matches being filtered to those whose values
+     * are exactly equal.
+     */
+    public static Document searchComposite(IndexSearcher searcher, List<String> keyColumns, List<String> values) {
+        try (Analyzer analyzer = new StandardAnalyzer()) {
+            var columns = new TreeMap<String, String>();
+            for (int i = 0; i < keyColumns.size(); i++) {
+                columns.put(keyColumns.get(i), values.get(i));
+            }
+            var query = new BooleanQuery.Builder();
+            for (var column : columns.entrySet()) {
+                var terms = analyze(analyzer, column.getKey(), column.getValue());
+                if (terms.isEmpty()) {
+                    // values without any terms cannot be searched for
+                    return null;
+                }
+                query.add(terms.size() == 1 ? new TermQuery(new Term(column.getKey(), terms.get(0))) : new PhraseQuery(column.getKey(), terms.toArray(new String[0])),
+                        BooleanClause.Occur.FILTER);
+            }
+            var docIds = collect(searcher, query.build());
+            var storedFields = searcher.storedFields();
+            for (var docId : docIds) {
+                var document = storedFields.document(docId, columns.keySet());
+                var matches = columns.entrySet().stream()
+                        .allMatch(c -> document.get(c.getKey()) != null && document.get(c.getKey()).toLowerCase(Locale.ROOT).equals(c.getValue().toLowerCase(Locale.ROOT)));
+                if (matches) {
+                    return storedFields.document(docId);
+                }
+            }
+            return null;
+
+        } catch (Exception e) {
+            throw new RuntimeException("searching failed, no results found", e);
+        }
+    }
+
+    /**
+     * Builds an interval tree of the [from, to) intervals of all documents from their stored values, empty values being
+     * open ended. Documents whose values are not numbers or timestamps are excluded.
+     */
+    public static IntervalTree intervalTree(IndexSearcher searcher, String fromColumn, String toColumn) {
+        var reader = searcher.getIndexReader();
+        var from = new double[reader.numDocs()];
+        var to = new double[reader.numDocs()];
+        var docIds = new int[reader.numDocs()];
+        var count = 0;
+        try {
+            var storedFields = searcher.storedFields();
+            for (var leaf : reader.leaves()) {
+                var liveDocs = leaf.reader().getLiveDocs();
+                for (var doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                    if (liveDocs != null && !liveDocs.get(doc)) {
+                        continue;
+                    }
+                    var docId = leaf.docBase + doc;
+                    var document = storedFields.document(docId, Set.of(fromColumn, toColumn));
+                    try {
+                        from[count] = rangeValue(document.get(fromColumn), Double.NEGATIVE_INFINITY);
+                        to[count] = rangeValue(document.get(toColumn), Double.POSITIVE_INFINITY);
+                    } catch (IllegalArgumentException e) {
+                        continue;
+                    }
+                    docIds[count++] = docId;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("failed reading lucene index", e);
+        }
+        return new IntervalTree(Arrays.copyOf(from, count), Arrays.copyOf(to, count), Arrays.copyOf(docIds, count));
+    }
+
+    /**
+     * Converts a value to the number intervals are compared as, timestamps being converted to epoch milliseconds (the
+     * same as the AS_TIMESTAMP function) and dates without a time as of the start of the day UTC.
+     */
+    public static double rangeValue(String value) {
+        try {
+            var number = Double.parseDouble(value);
+            if (!Double.isNaN(number)) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            // not a number, therefore possibly a timestamp
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // no offset specified, therefore possibly a local timestamp
+        }
+        try {
+            return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // no time specified, therefore possibly a date
+        }
+        try {
+            return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("Value '%s' is not a number or ISO-8601 date/timestamp", value), e);
+        }
+    }
+
+    private static double rangeValue(String value, double whenEmpty) {
+        return (value == null || value.isEmpty()) ? whenEmpty : rangeValue(value);
+    }
+
+    /**
+     * Resolves the keys of each term to the term's first live document in index order, segments being visited in
+     * order until all terms are resolved.
+     */
+    private static void resolveTerms(IndexSearcher searcher, StoredFields storedFields, String keyColumn, Map<String, List<String>> termKeys, Map<String, Document> documents) throws IOException {
+        var remaining = new LinkedHashMap<>(termKeys);
+        for (var leaf : searcher.getIndexReader().leaves()) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            var terms = leaf.reader().terms(keyColumn);
+            if (terms == null) {
+                continue;
+            }
+            var termsEnum = terms.iterator();
+            var liveDocs = leaf.reader().getLiveDocs();
+            for (var it = remaining.entrySet().iterator(); it.hasNext(); ) {
+                var entry = it.next();
+                if (!termsEnum.seekExact(new BytesRef(entry.getKey()))) {
+                    continue;
+                }
+                var postings = termsEnum.postings(null, PostingsEnum.NONE);
+                for (var doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        var document = storedFields.document(leaf.docBase + doc);
+                        entry.getValue().forEach(key -> documents.put(key, document));
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of all documents matching the query, in index order.
+     */
+    private static List<Integer> collect(IndexSearcher searcher, Query query) throws IOException {
+        var docIds = new ArrayList<Integer>();
+        searcher.search(query, new SimpleCollector() {
+            private int docBase;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) {
+                docBase = context.docBase;
+            }
+
+            @Override
+            public void collect(int doc) {
+                docIds.add(docBase + doc);
+            }
+
+            @Override
+            public ScoreMode scoreMode() {
+                return ScoreMode.COMPLETE_NO_SCORES;
+            }
+        });
+        // equivalent to Sort.INDEXORDER
+        Collections.sort(docIds);
+        return docIds;
+    }
+
+    private static List<String> analyze(Analyzer analyzer, String field, String value) throws IOException {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, value)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        }
+        return terms;
+    }
+
+}
@@ -19,6 +19,7 @@ import com.aws.sif.lambdaInvoker.LambdaInvocationException;
 import com.aws.sif.lambdaInvoker.LambdaInvoker;
 import com.aws.sif.resources.groups.GroupNotFoundException;
 import com.typesafe.config.Config;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Validate;
 
@@ -26,33 +27,96 @@ import javax.inject.Inject;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
 
+/**
+ * Retrieves users (and therefore the groups they belong to). Users are cached per group context for a limited time,
+ * shared across requests, so that the many chunks of an execution (all run as the same user) retrieve the user once.
+ * Concurrent requests for the same user share a single retrieval. The least recently used users are evicted once
+ * <code>calculator.users.cache.maxEntries</code> are cached.
+ */
 @Slf4j
 public class UsersClient {
 
     private final LambdaInvoker<User> userInvoker;
     private final Config config;
-
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<UserKey, CachedUser> users;
 
     @Inject
     public UsersClient(LambdaInvoker<User> userInvoker, Config config) {
+        this(userInvoker, config, System::currentTimeMillis);
+    }
+
+    UsersClient(LambdaInvoker<User> userInvoker, Config config, LongSupplier clock) {
         this.userInvoker = userInvoker;
         this.config = config;
+        this.ttlMillis = config.getLong("calculator.users.cache.ttlInMillis");
+        this.clock = clock;
+        var maxEntries = config.getInt("calculator.users.cache.maxEntries");
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UserKey, CachedUser> eldest) {
+                return size() > maxEntries;
+            }
+        };
     }
 
     public User getUser(String userId, String groupContextId, Authorizer authorizer ) throws UserNotFoundException {
         log.debug("getUser> in> userId:{}, groupContextId:{}",
                 userId, groupContextId);
 
-        var user = invokeGetUserById(groupContextId, authorizer, userId);
+        var key = new UserKey(userId, groupContextId);
+        var now = clock.getAsLong();
+        var loading = new CompletableFuture<User>();
+        CachedUser cached;
+        synchronized (users) {
+            cached = users.compute(key, (k, existing) ->
+                    (existing == null || now >= existing.getExpiresAt()) ? new CachedUser(loading, now + ttlMillis) : existing);
+        }
+
+        if (cached.getUser() == loading) {
+            try {
+                loading.complete(invokeGetUserById(groupContextId, authorizer, userId));
+            } catch (UserNotFoundException | RuntimeException e) {
+                // failures are not cached
+                synchronized (users) {
+                    users.remove(key, cached);
+                }
+                loading.completeExceptionally(e);
+            }
+        }
+
+        User user;
+        try {
+            user = cached.getUser().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UserNotFoundException) {
+                throw (UserNotFoundException) e.getCause();
+            }
+            throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+        }
 
         log.debug("getUser> exit:{}", user);
         return user;
     }
 
+    /**
+     * Removes the user from the cache (for all group contexts), such that they are retrieved again upon next use.
+     */
+    public void invalidate(String userId) {
+        log.debug("invalidate> in> userId:{}", userId);
+        synchronized (users) {
+            users.keySet().removeIf(k -> k.getUserId().equals(userId));
+        }
+    }
+
     public User invokeGetUserById(String groupContextId, Authorizer authorizer, String id) throws UserNotFoundException {
         log.debug("invokeGetUserById> in> groupContextId:{}, id:{}", groupContextId, id);
 
@@ -78,6 +142,18 @@ public class UsersClient {
 		}
     }
 
+    @Value
+    private static class UserKey {
+        String userId;
+        String groupContextId;
+    }
+
+    @Value
+    private static class CachedUser {
+        CompletableFuture<User> user;
+        long expiresAt;
+    }
+
     private String encodeValue(String value) {
         try {
             return URLEncoder.encode(value, StandardCharsets.UTF_8.toString());
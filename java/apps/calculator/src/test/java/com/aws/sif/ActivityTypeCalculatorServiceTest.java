@@ -17,6 +17,7 @@ import com.aws.sif.audits.Auditor;
 import com.aws.sif.execution.*;
 import com.aws.sif.execution.output.ActivityTypeOutputWriter;
 import com.aws.sif.execution.output.OutputWriter;
+import com.aws.sif.lambdaInvoker.LambdaInvocationException;
 import com.aws.sif.resources.users.User;
 import com.aws.sif.resources.users.UserNotFoundException;
 import com.aws.sif.resources.users.UsersClient;
@@ -37,16 +38,29 @@ import uk.org.webcompere.systemstubs.environment.EnvironmentVariables;
 import uk.org.webcompere.systemstubs.jupiter.SystemStub;
 import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.StringReader;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -75,6 +89,8 @@ class ActivityTypeCalculatorServiceTest {
 
     @Mock
     private UsersClient usersClient;
+    @Mock
+    private ResourcePrefetcher prefetcher;
     private ActivityTypeCalculatorService underTest;
     private final String GROUP_CONTEXT_ID = "/test";
     private final Authorizer AUTHORIZER = new Authorizer("someone@somewhere.com", GROUP_CONTEXT_ID, Set.of(GROUP_CONTEXT_ID));
@@ -87,10 +103,12 @@ class ActivityTypeCalculatorServiceTest {
                 .set("TENANT_ID", "abc123")
                 .set("ENVIRONMENT", "dev");
 
-        underTest = new ActivityTypeCalculatorService(calculator, s3Utils, auditor, config, activityTypeOutputWriter, usersClient, new Gson());
+        underTest = new ActivityTypeCalculatorService(calculator, s3Utils, auditor, config, activityTypeOutputWriter, usersClient, prefetcher, new Gson());
 
         when(config.getString("calculator.upload.s3.bucket")).thenReturn("myBucket");
         when(config.getString("calculator.upload.s3.groups.key")).thenReturn("pipelines/<pipelineId>/executions/<executionId>/groups/<chunkNo>.txt");
+        when(auditor.drain()).thenReturn(CompletableFuture.completedFuture(null));
+        when(s3Utils.uploadAsync(any(S3Location.class), any(String.class))).thenAnswer(i -> CompletableFuture.completedFuture(new S3Upload(i.getArgument(0), 0, 0, false)));
     }
 
     @Test
@@ -171,6 +189,7 @@ class ActivityTypeCalculatorServiceTest {
 
         // mocks
         mockGetUser("someone@somewhere.com", GROUP_CONTEXT_ID);
+        when(prefetcher.prefetch(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
 
         var output0Formula = request.getTransforms().get(0).getFormula();
         var output1Formula = request.getTransforms().get(1).getFormula();
@@ -397,6 +416,169 @@ class ActivityTypeCalculatorServiceTest {
         assertEquals(row3Step0Result.asString(), row3Json.get("time"));
     }
 
+    @Test
+    public void multipleChunks() throws UserNotFoundException, InterruptedException, IOException {
+        // request...
+        var location = new S3SourceLocation();
+        location.setBucket("myBucket");
+        location.setKey("input.jsonl");
+        var request = TransformRequest.builder()
+                .pipelineId("pipe1")
+                .pipelineType(PipelineType.activities)
+                .executionId("run1")
+                .groupContextId(GROUP_CONTEXT_ID)
+                .parameters(List.of(new TransformParameter("time", "string")))
+                .transforms(List.of(
+                        new Transform(0, ":time",
+                                List.of(new TransformOutput(0, "time", "timestamp", false, null,
+                                        null)))))
+                .sourceDataLocation(location)
+                .chunks(List.of(
+                        new SourceChunk(0, new long[]{0, 99}, 1),
+                        new SourceChunk(1, new long[]{100, 199}, 1)))
+                .username("someone@somewhere.com")
+                .build();
+
+        // mocks
+        var events = new ArrayList<String>();
+        mockGetUser("someone@somewhere.com", GROUP_CONTEXT_ID);
+        when(prefetcher.prefetch(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(s3Utils.stream(any())).thenAnswer(i -> {
+            S3SourceLocation chunk = i.getArgument(0);
+            events.add("open " + chunk.getStartByte() + "-" + chunk.getEndByte());
+            return new BufferedReader(new StringReader("{\"time\":\"2022-12-06 12:07\"}"));
+        });
+        when(calculator.evaluateExpression(any())).thenAnswer(i -> {
+            events.add("evaluate");
+            return EvaluateResponse.builder().result(new NumberTypeValue(1670353620000L)).evaluated(Map.of()).build();
+        });
+
+        // test
+        var actual = (ChunksTransformResponse) underTest.process(request);
+
+        // verify
+        assertEquals(2, actual.getChunks().size());
+        assertNull(actual.getChunks().get(0).getErrorLocation());
+        assertNull(actual.getChunks().get(1).getErrorLocation());
+        // the second chunk is opened before the first is evaluated
+        assertEquals(List.of("open 0-99", "open 100-199", "evaluate", "evaluate"), events);
+        // the user and resources are resolved once for all chunks
+        verify(usersClient, times(1)).getUser(any(), any(), any());
+        verify(prefetcher, times(1)).prefetch(any(), any(), any());
+        verify(activityTypeOutputWriter).init("pipe1", "run1", 0, Map.of());
+        verify(activityTypeOutputWriter).init("pipe1", "run1", 1, Map.of());
+        // each chunk has its own outputs and groups
+        verify(activityTypeOutputWriter, times(2)).submit();
+        verify(s3Utils).uploadAsync(eq(new S3Location("myBucket", "pipelines/pipe1/executions/run1/groups/0.txt")), any(String.class));
+        verify(s3Utils).uploadAsync(eq(new S3Location("myBucket", "pipelines/pipe1/executions/run1/groups/1.txt")), any(String.class));
+    }
+
+    @Test
+    public void multipleChunksWithoutLocation() throws UserNotFoundException, InterruptedException, IOException {
+        // request...
+        var request = TransformRequest.builder()
+                .pipelineId("pipe1")
+                .pipelineType(PipelineType.activities)
+                .executionId("run1")
+                .groupContextId(GROUP_CONTEXT_ID)
+                .parameters(List.of(new TransformParameter("time", "string")))
+                .transforms(List.of(
+                        new Transform(0, ":time",
+                                List.of(new TransformOutput(0, "time", "timestamp", false, null,
+                                        null)))))
+                .chunks(List.of(new SourceChunk(0, new long[]{0, 99}, 1)))
+                .username("someone@somewhere.com")
+                .build();
+
+        // mocks
+        mockGetUser("someone@somewhere.com", GROUP_CONTEXT_ID);
+
+        // test
+        var actual = (InlineTransformResponse) underTest.process(request);
+
+        // verify
+        assertTrue(actual.getErrors().contains("No sourceDataLocation provided for chunks."));
+        assertTrue(actual.isNoActivitiesProcessed());
+        verifyNoInteractions(prefetcher);
+        verify(s3Utils, never()).stream(any());
+        verify(activityTypeOutputWriter, never()).submit();
+    }
+
+    @Test
+    public void outputFailureStopsChunk() throws UserNotFoundException, InterruptedException, IOException {
+        // request...
+        var location = new S3SourceLocation();
+        location.setBucket("myBucket");
+        location.setKey("input.jsonl");
+        var request = TransformRequest.builder()
+                .pipelineId("pipe1")
+                .pipelineType(PipelineType.activities)
+                .executionId("run1")
+                .groupContextId(GROUP_CONTEXT_ID)
+                .parameters(List.of(new TransformParameter("time", "string")))
+                .transforms(List.of(
+                        new Transform(0, ":time",
+                                List.of(new TransformOutput(0, "time", "timestamp", false, null,
+                                        null)))))
+                .sourceDataLocation(location)
+                .chunks(List.of(new SourceChunk(0, new long[]{0, 99}, 1)))
+                .username("someone@somewhere.com")
+                .build();
+
+        // mocks, the request failing before its groups are uploaded
+        reset(config, s3Utils);
+        mockGetUser("someone@somewhere.com", GROUP_CONTEXT_ID);
+        when(prefetcher.prefetch(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(s3Utils.stream(any())).thenReturn(new BufferedReader(new StringReader(
+                "{\"time\":\"2022-12-06 12:07\"}\n{\"time\":\"2022-12-06 12:08\"}\n{\"time\":\"2022-12-06 12:09\"}")));
+        when(calculator.evaluateExpression(any())).thenReturn(EvaluateResponse.builder().result(new NumberTypeValue(1670353620000L)).evaluated(Map.of()).build());
+        when(activityTypeOutputWriter.addRecord(any())).thenThrow(new IOException("Failed uploading"));
+
+        // test
+        assertThrows(IOException.class, () -> underTest.process(request));
+
+        // verify the remaining rows are not evaluated, and the output is abandoned rather than submitted
+        verify(calculator, times(1)).evaluateExpression(any());
+        verify(activityTypeOutputWriter, times(1)).addRecord(any());
+        verify(activityTypeOutputWriter, never()).submit();
+        verify(activityTypeOutputWriter).discard();
+    }
+
+    @Test
+    public void forbiddenInvalidatesUser() throws UserNotFoundException, InterruptedException, IOException {
+        // request...
+        var location = new S3SourceLocation();
+        location.setBucket("myBucket");
+        location.setKey("input.jsonl");
+        var request = TransformRequest.builder()
+                .pipelineId("pipe1")
+                .pipelineType(PipelineType.activities)
+                .executionId("run1")
+                .groupContextId(GROUP_CONTEXT_ID)
+                .parameters(List.of(new TransformParameter("time", "string")))
+                .transforms(List.of(
+                        new Transform(0, ":time",
+                                List.of(new TransformOutput(0, "time", "timestamp", false, null,
+                                        null)))))
+                .sourceDataLocation(location)
+                .chunks(List.of(new SourceChunk(0, new long[]{0, 99}, 1)))
+                .username("someone@somewhere.com")
+                .build();
+
+        // mocks
+        mockGetUser("someone@somewhere.com", GROUP_CONTEXT_ID);
+        when(prefetcher.prefetch(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(s3Utils.stream(any())).thenReturn(new BufferedReader(new StringReader("{\"time\":\"2022-12-06 12:07\"}")));
+        when(calculator.evaluateExpression(any())).thenThrow(new CompletionException(new LambdaInvocationException("forbidden", 403)));
+        when(config.getString("calculator.upload.s3.errors.key")).thenReturn("pipelines/<pipelineId>/executions/<executionId>/errors/<chunkNo>.txt");
+
+        // test
+        underTest.process(request);
+
+        // verify the user (and therefore their groups) is retrieved afresh next time
+        verify(usersClient).invalidate("someone@somewhere.com");
+    }
+
     private void mockGetUser(String username, String groupContextId) throws UserNotFoundException {
         var user = new User(username, "active", Map.of(GROUP_CONTEXT_ID, "reader"), null, GROUP_CONTEXT_ID,
                 "someoneelse@somewhere.com", DateTime.now(), null, null);
@@ -442,6 +624,7 @@ class ActivityTypeCalculatorServiceTest {
 
         // mocks
         mockGetUser("someone@somewhere.com", GROUP_CONTEXT_ID);
+        when(prefetcher.prefetch(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
 
         var output0Formula = request.getTransforms().get(0).getFormula();
         var output1Formula = request.getTransforms().get(1).getFormula();
@@ -625,6 +808,7 @@ class ActivityTypeCalculatorServiceTest {
 
         // mocks
         mockGetUser("someone@somewhere.com", GROUP_CONTEXT_ID);
+        when(prefetcher.prefetch(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
 
         var output0Formula = request.getTransforms().get(0).getFormula();
         var output1Formula = request.getTransforms().get(1).getFormula();
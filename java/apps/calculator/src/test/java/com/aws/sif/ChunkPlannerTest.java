@@ -0,0 +1,129 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkPlannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ChunkPlanner underTest;
+
+    @BeforeEach
+    public void initEach() {
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.chunks.plan.chunkSize=100MB",
+                "calculator.chunks.plan.samples=16",
+                "calculator.chunks.plan.sampleSize=1KiB",
+                "calculator.chunks.plan.alignmentWindow=4KiB",
+                "calculator.chunks.cost.perRow=1.0",
+                "calculator.chunks.cost.perKiB=0.5"));
+        underTest = new ChunkPlanner(null, config);
+    }
+
+    @Test
+    void chunksAreBalancedByCostAndEndOnLineBreaks() throws Exception {
+        // the first half of the object is many short rows, the second half few long rows
+        var data = new StringBuilder();
+        for (var i = 0; i < 2000; i++) {
+            data.append(String.format("{\"row\":\"%08d\"}\n", i));
+        }
+        for (var i = 0; i < 40; i++) {
+            data.append(String.format("{\"row\":\"%08d\",\"notes\":\"%s\"}\n", i, "x".repeat(i * 45)));
+        }
+        var bytes = data.toString().getBytes(StandardCharsets.UTF_8);
+        var file = Files.write(tempDir.resolve("source.jsonl"), bytes);
+
+        var chunks = underTest.plan(new LocalFileRangeReader(file), SourceDataCompression.none, bytes.length / 4 + 1);
+
+        assertEquals(4, chunks.size());
+        var start = 0L;
+        var costs = new double[chunks.size()];
+        for (var i = 0; i < chunks.size(); i++) {
+            var range = chunks.get(i).getRange();
+            assertEquals(i, chunks.get(i).getSequence());
+            assertEquals(start, range[0]);
+            assertEquals('\n', bytes[(int) range[1]]);
+            var rows = 0;
+            for (var b = range[0]; b <= range[1]; b++) {
+                rows += bytes[(int) b] == '\n' ? 1 : 0;
+            }
+            costs[i] = rows + (range[1] - range[0] + 1) / 1024d * 0.5;
+            start = range[1] + 1;
+        }
+        assertEquals(bytes.length, start);
+
+        // split by size the first two chunks would be over 10 times the cost of the last two
+        var mean = (costs[0] + costs[1] + costs[2] + costs[3]) / 4;
+        for (var cost : costs) {
+            assertEquals(mean, cost, mean * 0.25);
+        }
+    }
+
+    @Test
+    void smallOrCompressedObjectsAreSingleChunks() throws Exception {
+        var file = Files.write(tempDir.resolve("source.jsonl"), "{\"a\":\"1\"}\n".repeat(100).getBytes(StandardCharsets.UTF_8));
+
+        var small = underTest.plan(new LocalFileRangeReader(file), SourceDataCompression.none, 1000);
+        assertEquals(1, small.size());
+        assertArrayEquals(new long[]{0, 999}, small.get(0).getRange());
+
+        var compressed = underTest.plan(new LocalFileRangeReader(file), SourceDataCompression.gzip, 100);
+        assertEquals(1, compressed.size());
+        assertArrayEquals(new long[]{0, 999}, compressed.get(0).getRange());
+
+        var empty = Files.write(tempDir.resolve("empty.jsonl"), new byte[0]);
+        var emptyChunks = underTest.plan(new LocalFileRangeReader(empty), SourceDataCompression.none, 100);
+        assertEquals(1, emptyChunks.size());
+        assertArrayEquals(new long[]{0, -1}, emptyChunks.get(0).getRange());
+    }
+
+    @Test
+    void objectsWithoutSampledRowsAreSplitBySize() throws Exception {
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.chunks.plan.chunkSize=100MB",
+                "calculator.chunks.plan.samples=16",
+                "calculator.chunks.plan.sampleSize=1KiB",
+                "calculator.chunks.plan.alignmentWindow=4KiB",
+                "calculator.chunks.cost.perRow=1.0",
+                "calculator.chunks.cost.perKiB=0"));
+        var planner = new ChunkPlanner(null, config);
+        // a single row, so no line breaks are sampled and there is no cost per KiB
+        var bytes = ("x".repeat(64 * 1024) + "\n").getBytes(StandardCharsets.UTF_8);
+        var file = Files.write(tempDir.resolve("source.jsonl"), bytes);
+
+        var chunks = planner.plan(new LocalFileRangeReader(file), SourceDataCompression.none, bytes.length / 4 + 1);
+
+        assertEquals(4, chunks.size());
+        var start = 0L;
+        for (var chunk : chunks) {
+            var range = chunk.getRange();
+            assertEquals(start, range[0]);
+            assertEquals(bytes.length / 4d, range[1] - range[0] + 1, bytes.length * 0.05);
+            start = range[1] + 1;
+        }
+        assertEquals(bytes.length, start);
+    }
+}
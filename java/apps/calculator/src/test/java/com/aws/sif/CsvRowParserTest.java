@@ -0,0 +1,76 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvRowParserTest {
+
+    private static final List<TransformParameter> PARAMETERS = List.of(
+            new TransformParameter("reading date", "string"),
+            new TransformParameter("kwh", "number"));
+
+    @Test
+    void onlyReferencedColumnsAreParsed() {
+        var underTest = new CsvRowParser(PARAMETERS, List.of("meter"));
+        var csv = String.join("\n",
+                "meter,notes,reading date,kwh",
+                "m1,\"a, b\",2023-01-01,12.50",
+                "m2,\"line 1\nline 2\",,\"\"\"3\"\"\"",
+                "m3,x");
+
+        var rows = new ArrayList<SourceRow>();
+        underTest.rows(new StringReader(csv), null).forEachRemaining(rows::add);
+
+        assertEquals(3, rows.size());
+        assertEquals(Map.of("meter", "m1", "reading date", "2023-01-01", "kwh", "12.50"), rows.get(0).getFields());
+        // empty and quoted values are left to be marshalled the same as for json lines
+        assertEquals(Map.of("meter", "m2", "reading date", "", "kwh", "\"3\""), rows.get(1).getFields());
+        // missing fields are absent
+        assertEquals(Map.of("meter", "m3"), rows.get(2).getFields());
+
+        var all = new HashMap<String, String>();
+        all.put("meter", "m2");
+        all.put("notes", "line 1\nline 2");
+        all.put("reading date", "");
+        all.put("kwh", "\"3\"");
+        assertEquals(all, rows.get(1).getAllFields().get());
+    }
+
+    @Test
+    void providedHeaders() {
+        var underTest = new CsvRowParser(PARAMETERS, List.of("meter"));
+        var rows = underTest.rows(new StringReader("m1,2023-01-01,1\n"), List.of("meter", "reading date", "kwh"));
+
+        assertEquals(Map.of("meter", "m1", "reading date", "2023-01-01", "kwh", "1"), rows.next().getFields());
+        assertFalse(rows.hasNext());
+    }
+
+    @Test
+    void allColumnsInOrderWithoutUniqueKey() {
+        var underTest = new CsvRowParser(PARAMETERS, null);
+        var rows = underTest.rows(new StringReader("z,kwh,a\n1,2,3"), null);
+
+        // the row identifier is built from all values in order
+        assertEquals(List.of("1", "2", "3"), new ArrayList<>(rows.next().getFields().values()));
+    }
+}
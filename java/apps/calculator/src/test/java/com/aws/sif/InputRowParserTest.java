@@ -0,0 +1,79 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InputRowParserTest {
+
+    private static final List<TransformParameter> PARAMETERS = List.of(
+            new TransformParameter("reading date", "string"),
+            new TransformParameter("kwh", "number"),
+            new TransformParameter("estimated", "boolean"));
+
+    @Test
+    void onlyReferencedFieldsAreParsed() {
+        var underTest = new InputRowParser(PARAMETERS, List.of("meter"));
+        var line = "{\"meter\":\"m1\",\"reading date\":\"2023-01-01\",\"notes\":{\"a\":[1,2,{\"b\":null}]},\"kwh\":12.50,\"estimated\":false,\"other\":\"x\"}";
+
+        var expected = new HashMap<String, String>();
+        expected.put("meter", "m1");
+        expected.put("reading date", "2023-01-01");
+        expected.put("kwh", "12.50");
+        expected.put("estimated", "false");
+        assertEquals(expected, underTest.parse(line));
+    }
+
+    @Test
+    void sameValuesAsGson() {
+        var underTest = new InputRowParser(PARAMETERS, List.of("meter"));
+        var line = "{\"meter\":\"m1\",\"reading date\":null,\"kwh\":1e3,\"estimated\":true}";
+        Map<String, String> gson = new Gson().fromJson(line, new TypeToken<Map<String, String>>() {
+        }.getType());
+
+        assertEquals(gson, underTest.parse(line));
+        // missing fields are absent rather than null
+        assertFalse(underTest.parse("{\"meter\":\"m1\"}").containsKey("kwh"));
+    }
+
+    @Test
+    void allFieldsInOrderWithoutUniqueKey() {
+        var underTest = new InputRowParser(PARAMETERS, null);
+        var row = underTest.parse("{\"z\":\"1\",\"kwh\":2,\"a\":\"3\"}");
+
+        // the row identifier is built from all values in order
+        assertEquals(List.of("1", "2", "3"), new ArrayList<>(row.values()));
+    }
+
+    @Test
+    void invalidLines() {
+        var underTest = new InputRowParser(PARAMETERS, List.of("meter"));
+
+        assertNull(underTest.parse(""));
+        assertThrows(JsonSyntaxException.class, () -> underTest.parse("{\"kwh\":1,\"kwh\":2}"));
+        assertThrows(JsonSyntaxException.class, () -> underTest.parse("{\"kwh\":[1]}"));
+        assertThrows(JsonSyntaxException.class, () -> underTest.parse("[\"kwh\"]"));
+        assertThrows(JsonSyntaxException.class, () -> underTest.parse("{\"kwh\":1"));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads byte ranges of a local file, standing in for an S3 object. The ranges read are recorded.
+ */
+public class LocalFileRangeReader implements ObjectRangeReader {
+
+    private final Path path;
+    final List<long[]> ranges = Collections.synchronizedList(new ArrayList<>());
+
+    public LocalFileRangeReader(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public CompletableFuture<Long> size() {
+        try {
+            return CompletableFuture.completedFuture(Files.size(path));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> read(long start, long end) {
+        ranges.add(new long[]{start, end});
+        return CompletableFuture.supplyAsync(() -> {
+            try (var channel = FileChannel.open(path)) {
+                var buffer = ByteBuffer.allocate((int) (end - start + 1));
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) != -1) {
+                }
+                return buffer.array();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
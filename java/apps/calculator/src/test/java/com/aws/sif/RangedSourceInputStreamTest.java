@@ -0,0 +1,177 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import de.siegmar.fastcsv.reader.CsvReader;
+import io.airlift.compress.zstd.ZstdOutputStream;
+import lombok.Value;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RangedSourceInputStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void everyLineBelongsToTheChunkItStartsIn() throws Exception {
+        var lines = new ArrayList<String>();
+        for (var i = 0; i < 50; i++) {
+            lines.add(String.format("{\"row\":\"%d\",\"name\":\"%s\"}", i, "é".repeat(i % 7)));
+        }
+        var file = write(String.join("\n", lines) + "\n");
+        var size = Files.size(file);
+
+        // every chunk size, so that chunk boundaries fall at, immediately after, and within lines (and characters)
+        for (var chunkSize = 2; chunkSize <= size; chunkSize += 1 + chunkSize / 4) {
+            var read = new ArrayList<String>();
+            for (long start = 0; start < size; start += chunkSize) {
+                read.addAll(readLines(file, start, Math.min(start + chunkSize, size) - 1, 7));
+            }
+            assertEquals(lines, read, "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void lastLineWithoutLineBreak() throws Exception {
+        var file = write("{\"a\":\"1\"}\n{\"b\":\"2\"}");
+
+        assertEquals(List.of("{\"a\":\"1\"}"), readLines(file, 0L, 3L, 4));
+        assertEquals(List.of("{\"b\":\"2\"}"), readLines(file, 4L, 18L, 4));
+        // the whole object
+        assertEquals(List.of("{\"a\":\"1\"}", "{\"b\":\"2\"}"), readLines(file, null, null, 4));
+    }
+
+    @Test
+    void partsAreBounded() throws Exception {
+        var file = write("0123456789\n".repeat(100));
+        var reader = new LocalFileRangeReader(file);
+
+        try (var underTest = new RangedSourceInputStream(reader, 0L, 549L, 10, 3)) {
+            // no more than the parallelism are requested ahead of the reader
+            assertEquals(3, reader.ranges.size());
+            underTest.readNBytes(550);
+            assertEquals(55, reader.ranges.size());
+            assertEquals(-1, underTest.read());
+        }
+        // only ranges within the chunk were read, as it ends on a line break
+        assertTrue(reader.ranges.stream().allMatch(r -> r[1] <= 549));
+    }
+
+    @Test
+    void everyCsvRecordBelongsToTheChunkItStartsIn() throws Exception {
+        var records = new ArrayList<String>();
+        for (var i = 0; i < 40; i++) {
+            // quoted fields containing line breaks, delimiters and quotes
+            var notes = (i % 3 == 0) ? String.format("\"multi\nline %d, \"\"quoted\"\"\"", i) : "plain " + i;
+            records.add(String.format("%d,%s,%d", i, notes, i * 10));
+        }
+        var file = write("id,notes,value\n" + String.join("\n", records) + "\n");
+        var size = Files.size(file);
+        var expected = readCsv(file, null, null, 16).getRecords();
+
+        assertEquals(List.of("id", "notes", "value"), readCsv(file, null, null, 16).headers);
+        assertEquals(40, expected.size());
+        for (var chunkSize = 2; chunkSize <= size; chunkSize += 1 + chunkSize / 4) {
+            var read = new ArrayList<List<String>>();
+            for (long start = 0; start < size; start += chunkSize) {
+                read.addAll(readCsv(file, start, Math.min(start + chunkSize, size) - 1, 7).getRecords());
+            }
+            assertEquals(expected, read, "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void compressedChunksSpanWholeBlocks() throws Exception {
+        assertEquals(SourceDataCompression.gzip, SourceDataCompression.fromKey("input/data.jsonl.gz"));
+        assertEquals(SourceDataCompression.zstd, SourceDataCompression.fromKey("input/data.jsonl.zst"));
+        assertEquals(SourceDataCompression.none, SourceDataCompression.fromKey("input/data.jsonl"));
+
+        for (var compression : List.of(SourceDataCompression.gzip, SourceDataCompression.zstd)) {
+            // each block holds whole lines, with each chunk spanning whole blocks
+            var file = tempDir.resolve("source.jsonl." + compression);
+            var lines = new ArrayList<String>();
+            var blockEnds = new ArrayList<Long>();
+            var written = 0L;
+            try (var out = Files.newOutputStream(file)) {
+                for (var block = 0; block < 5; block++) {
+                    var blockLines = new ArrayList<String>();
+                    for (var i = 0; i < 20; i++) {
+                        blockLines.add(String.format("{\"block\":\"%d\",\"row\":\"%d\"}", block, i));
+                    }
+                    lines.addAll(blockLines);
+                    var compressed = new ByteArrayOutputStream();
+                    try (var blockOut = compression == SourceDataCompression.gzip ? new GZIPOutputStream(compressed) : new ZstdOutputStream(compressed)) {
+                        blockOut.write((String.join("\n", blockLines) + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.write(compressed.toByteArray());
+                    written += compressed.size();
+                    blockEnds.add(written - 1);
+                }
+            }
+
+            var read = new ArrayList<String>();
+            long start = 0;
+            for (var chunkEnd : List.of(blockEnds.get(1), blockEnds.get(2), blockEnds.get(4))) {
+                var in = compression.decompress(RangedSourceInputStream.blocks(new LocalFileRangeReader(file), start, chunkEnd, 16, 2));
+                try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                    reader.lines().forEach(read::add);
+                }
+                start = chunkEnd + 1;
+            }
+            assertEquals(lines, read, compression.toString());
+        }
+    }
+
+    private CsvRecords readCsv(Path file, Long start, Long end, int partSize) throws IOException {
+        try (var in = RangedSourceInputStream.csv(new LocalFileRangeReader(file), start, end, partSize, 2)) {
+            var records = new ArrayList<List<String>>();
+            CsvReader.builder().build(new InputStreamReader(in, StandardCharsets.UTF_8)).forEach(r -> records.add(r.getFields()));
+            return new CsvRecords(in.getHeaders(), records);
+        }
+    }
+
+    @Value
+    private static class CsvRecords {
+        List<String> headers;
+        List<List<String>> records;
+    }
+
+    private List<String> readLines(Path file, Long start, Long end, int partSize) throws IOException {
+        var in = new RangedSourceInputStream(new LocalFileRangeReader(file), start, end, partSize, 2);
+        try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        var file = tempDir.resolve("source.jsonl");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class S3UtilsTest {
+
+    private static final S3Location LOCATION = new S3Location("myBucket", "pipelines/pipe1/executions/run1/output/0.csv");
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private S3AsyncClient s3;
+
+    private S3Utils underTest;
+
+    @BeforeEach
+    public void initEach() {
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.download.s3.maxBufferedEvents=16",
+                "calculator.download.s3.mode=select",
+                "calculator.download.s3.range.partSize=8MiB",
+                "calculator.download.s3.range.parallelism=4",
+                "calculator.upload.s3.multipart.threshold=10",
+                "calculator.upload.s3.multipart.partSize=8",
+                "calculator.upload.s3.multipart.parallelism=2",
+                "calculator.upload.s3.stream.partSize=8",
+                "calculator.upload.s3.stream.maxPartsInFlight=1"));
+        underTest = new S3Utils(s3, config);
+    }
+
+    @Test
+    void smallFilesArePut() throws Exception {
+        var file = Files.writeString(tempDir.resolve("small.csv"), "a,b\n1,2\n");
+        when(s3.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        var upload = underTest.uploadAsync(LOCATION, file, Map.of("pipelineId", "pipe1")).join();
+
+        assertEquals(LOCATION, upload.getLocation());
+        assertEquals(8, upload.getBytes());
+        assertFalse(upload.isMultipart());
+        verify(s3, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void largeFilesAreUploadedAsParts() throws Exception {
+        var file = Files.writeString(tempDir.resolve("large.csv"), "0123456789abcdefghij");
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("u1").build()));
+        when(s3.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenAnswer(i -> {
+            UploadPartRequest part = i.getArgument(0);
+            return CompletableFuture.supplyAsync(() -> UploadPartResponse.builder().eTag("e" + part.partNumber()).build());
+        });
+        when(s3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+
+        var upload = underTest.uploadAsync(LOCATION, file, Map.of()).join();
+
+        assertEquals(20, upload.getBytes());
+        assertTrue(upload.isMultipart());
+        var parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3, times(3)).uploadPart(parts.capture(), any(AsyncRequestBody.class));
+        assertEquals(List.of(8L, 8L, 4L), parts.getAllValues().stream()
+                .sorted(Comparator.comparing(UploadPartRequest::partNumber))
+                .map(UploadPartRequest::contentLength).toList());
+        var complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3).completeMultipartUpload(complete.capture());
+        assertEquals("u1", complete.getValue().uploadId());
+        assertEquals(3, complete.getValue().multipartUpload().parts().size());
+        for (var i = 0; i < 3; i++) {
+            assertEquals(i + 1, complete.getValue().multipartUpload().parts().get(i).partNumber());
+            assertEquals("e" + (i + 1), complete.getValue().multipartUpload().parts().get(i).eTag());
+        }
+        verify(s3, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void failedPartsAbortTheUpload() throws Exception {
+        var file = Files.writeString(tempDir.resolve("large.csv"), "0123456789abcdefghij");
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("u1").build()));
+        when(s3.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenReturn(CompletableFuture.failedFuture(new RuntimeException("slow down")));
+        when(s3.abortMultipartUpload(any(AbortMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+
+        var e = assertThrows(CompletionException.class, () -> underTest.uploadAsync(LOCATION, file, Map.of()).join());
+
+        assertEquals("Failed uploading to bucket 'myBucket' key 'pipelines/pipe1/executions/run1/output/0.csv', error: slow down", e.getCause().getMessage());
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void smallStreamsArePut() throws Exception {
+        when(s3.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        var stream = underTest.openUploadStream(LOCATION, Map.of("pipelineId", "pipe1"));
+        stream.write("a,b\n".getBytes(StandardCharsets.UTF_8));
+        var upload = stream.complete().join();
+
+        assertEquals(4, upload.getBytes());
+        assertFalse(upload.isMultipart());
+        var put = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3).putObject(put.capture(), any(AsyncRequestBody.class));
+        assertEquals("pipe1", put.getValue().metadata().get("pipelineId"));
+        verify(s3, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void streamedPartsAreUploadedWhilstWriting() throws Exception {
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("u1").build()));
+        when(s3.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenAnswer(i -> {
+            UploadPartRequest part = i.getArgument(0);
+            return CompletableFuture.supplyAsync(() -> UploadPartResponse.builder().eTag("e" + part.partNumber()).build());
+        });
+        when(s3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+
+        var stream = underTest.openUploadStream(LOCATION, Map.of());
+        for (var line : List.of("0123", "456789abcd", "efghij")) {
+            stream.write(line.getBytes(StandardCharsets.UTF_8));
+        }
+        // the full parts are uploaded before the output is complete
+        verify(s3, times(2)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+
+        var upload = stream.complete().join();
+
+        assertEquals(20, upload.getBytes());
+        assertTrue(upload.isMultipart());
+        var parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3, times(3)).uploadPart(parts.capture(), any(AsyncRequestBody.class));
+        assertEquals(List.of(8L, 8L, 4L), parts.getAllValues().stream().map(UploadPartRequest::contentLength).toList());
+        var complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3).completeMultipartUpload(complete.capture());
+        assertEquals(3, complete.getValue().multipartUpload().parts().size());
+        verify(s3, never()).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+        verify(s3, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void failedStreamedPartsAbortTheUpload() throws Exception {
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("u1").build()));
+        when(s3.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenReturn(CompletableFuture.failedFuture(new RuntimeException("slow down")));
+        when(s3.abortMultipartUpload(any(AbortMultipartUploadRequest.class))).thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+
+        var stream = underTest.openUploadStream(LOCATION, Map.of());
+        stream.write("01234567".getBytes(StandardCharsets.UTF_8));
+
+        var e = assertThrows(IOException.class, () -> stream.write("89abcdef".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("Failed uploading to bucket 'myBucket' key 'pipelines/pipe1/executions/run1/output/0.csv', error: slow down", e.getMessage());
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        assertThrows(CompletionException.class, () -> stream.complete().join());
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.s3.model.SelectObjectContentEventStream;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelectRecordsInputStreamTest {
+
+    @Test
+    void linesSplitAcrossEvents() {
+        var subscription = new RecordingSubscription();
+        var underTest = new SelectRecordsInputStream(4);
+        underTest.onSubscribe(subscription);
+
+        var data = "{\"a\":\"1\"}\n{\"b\":\"café\"}\n{\"c\":\"3\"}\n".getBytes(StandardCharsets.UTF_8);
+        // split within the second line, within the multibyte character, and at the end of the third line
+        var split = new int[]{0, 14, 19, data.length - 1, data.length};
+        for (var i = 1; i < split.length; i++) {
+            underTest.onNext(records(Arrays.copyOfRange(data, split[i - 1], split[i])));
+        }
+        underTest.onNext(SelectObjectContentEventStream.statsBuilder().build());
+        underTest.onNext(SelectObjectContentEventStream.endBuilder().build());
+        underTest.onComplete();
+
+        assertEquals(List.of("{\"a\":\"1\"}", "{\"b\":\"café\"}", "{\"c\":\"3\"}"), readLines(underTest));
+    }
+
+    @Test
+    void bufferedEventsAreBounded() throws Exception {
+        var subscription = new RecordingSubscription();
+        var underTest = new SelectRecordsInputStream(2);
+        underTest.onSubscribe(subscription);
+        assertEquals(2, subscription.requested);
+
+        underTest.onNext(records("ab".getBytes(StandardCharsets.UTF_8)));
+        underTest.onNext(SelectObjectContentEventStream.progressBuilder().build());
+        // unbuffered events are replaced
+        assertEquals(3, subscription.requested);
+
+        underTest.onNext(records("cd".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(3, subscription.requested);
+
+        // only once buffered records are taken by the reader are more requested
+        assertEquals('a', underTest.read());
+        assertEquals(4, subscription.requested);
+        assertEquals('b', underTest.read());
+        assertEquals(4, subscription.requested);
+
+        underTest.close();
+        assertTrue(subscription.cancelled);
+        assertEquals(-1, underTest.read());
+    }
+
+    @Test
+    void failuresAreRaisedToReader() {
+        var underTest = new SelectRecordsInputStream(2);
+        underTest.onSubscribe(new RecordingSubscription());
+        underTest.onNext(records("{\"a\":\"1\"}\n{\"b\"".getBytes(StandardCharsets.UTF_8)));
+        underTest.exceptionOccurred(new RuntimeException("connection reset"));
+
+        var reader = new BufferedReader(new InputStreamReader(underTest, StandardCharsets.UTF_8));
+        var lines = reader.lines().iterator();
+        assertEquals("{\"a\":\"1\"}", lines.next());
+        var e = assertThrows(UncheckedIOException.class, lines::next);
+        assertEquals("Failed streaming S3 Select records, error: connection reset", e.getCause().getMessage());
+    }
+
+    private SelectObjectContentEventStream records(byte[] payload) {
+        return SelectObjectContentEventStream.recordsBuilder().payload(SdkBytes.fromByteArray(payload)).build();
+    }
+
+    private List<String> readLines(SelectRecordsInputStream in) {
+        // a small buffer so that decoding also spans reads
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 3).lines().collect(Collectors.toList());
+    }
+
+    private static class RecordingSubscription implements Subscription {
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.audits;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.awssdk.services.kinesis.model.KinesisException;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsRequest;
+import software.amazon.awssdk.services.kinesis.model.PutRecordsResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DataStreamProducerTest {
+
+    @Mock
+    private KinesisAsyncClient kinesis;
+
+    private DataStreamProducer underTest;
+
+    @BeforeEach
+    public void initEach() {
+        // a buffer large enough, and timeout long enough, that messages are only sent when drained
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.audits.kinesis.dataStreamName=audits",
+                "calculator.audits.kinesis.baseBackOffInMillis=1",
+                "calculator.audits.kinesis.bufferFullWaitTimeoutInMillis=100",
+                "calculator.audits.kinesis.bufferTimeoutBetweenFlushes=10",
+                "calculator.audits.kinesis.bufferTimeoutInMillis=300000",
+                "calculator.audits.kinesis.drainTimeoutInMillis=5000",
+                "calculator.audits.kinesis.maxBackOffInMillis=10",
+                "calculator.audits.kinesis.maxBufferSize=100",
+                "calculator.audits.kinesis.maxOperationTimeoutInMillis=5000",
+                "calculator.audits.kinesis.maxPutRecordBatchBytes=1024",
+                "calculator.audits.kinesis.numberOfRetries=3"));
+        underTest = new DataStreamProducer(kinesis, config);
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception {
+        underTest.destroy();
+    }
+
+    @Test
+    void drainWaitsForAllMessagesToBeAcknowledged() throws Exception {
+        when(kinesis.putRecords(any(PutRecordsRequest.class))).thenReturn(CompletableFuture.completedFuture(PutRecordsResponse.builder().failedRecordCount(0).build()));
+
+        // nothing to drain
+        assertTrue(underTest.drain().get(1, TimeUnit.SECONDS));
+
+        var results = new CompletableFuture<?>[20];
+        for (var i = 0; i < results.length; i++) {
+            results[i] = underTest.addAuditMessage(message(i), 0);
+        }
+        assertFalse(results[0].isDone());
+
+        assertTrue(underTest.drain().get(5, TimeUnit.SECONDS));
+        for (var result : results) {
+            assertTrue(result.isDone() && !result.isCompletedExceptionally());
+        }
+        assertEquals(0, underTest.getOutstandingRecordsCount());
+        // more messages than fit within a single batch
+        verify(kinesis, atLeast(2)).putRecords(any(PutRecordsRequest.class));
+    }
+
+    @Test
+    void drainCompletesWhenMessagesCannotBeSent() throws Exception {
+        when(kinesis.putRecords(any(PutRecordsRequest.class))).thenReturn(CompletableFuture.failedFuture(KinesisException.builder().message("denied").statusCode(400).build()));
+
+        var result = underTest.addAuditMessage(message(0), 0);
+
+        assertFalse(underTest.drain().get(5, TimeUnit.SECONDS));
+        assertTrue(result.isCompletedExceptionally());
+        assertTrue(underTest.isFlushFailed());
+    }
+
+    private AuditMessage message(int i) {
+        return AuditMessage.builder().pipelineId("pipe1").executionId("run1").auditId("audit" + i).build();
+    }
+}
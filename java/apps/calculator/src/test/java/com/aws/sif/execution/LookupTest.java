@@ -27,6 +27,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -159,6 +160,106 @@ public class LookupTest extends CalculatorBaseTest {
     }
 
 
+    @Test
+    void evaluateCompositeLookupFunction() throws ReferenceDatasetNotFoundException {
+
+        // input...
+        var expression = "lookup(['US',lowercase('WA')],'mySource',['country','state'],'myOutputColumn',version=22)";
+        var expected = EvaluateResponse.builder().result(new NumberTypeValue(0.3))
+                .evaluated(Map.of(
+                        "lowercase('WA')", "wa",
+                        expression, "0.3"))
+                .referenceDatasets(List.of(
+                        Map.of(
+                                "value", "US,wa",
+                                "name", "mySource",
+                                "keyColumn",  "country,state",
+                                "outputColumn", "myOutputColumn",
+                                "group", GROUP_CONTEXT_ID,
+                                "version", "22"
+                        )
+                ))
+                .build();
+
+        // set up mocks...
+        when(executionVisitorProvider.get()).then(invocation-> new ExecutionVisitorImpl(calculationsClient, datasetsClient, groupsClient, impactsClient, camlClient, gson));
+        when(datasetsClient.getValue(PIPELINE_ID, EXECUTION_ID, GROUP_CONTEXT_ID, AUTHORIZER,"mySource", List.of("US", "wa"), "myOutputColumn", List.of("country", "state"), Optional.empty(),Optional.of("22"), Optional.empty()))
+                .thenReturn(new DatasetsClient.GetValueResponse("0.3",22));
+
+        // execute...
+        var evaluateExpressionRequest = CalculatorImpl.EvaluateExpressionRequest.builder()
+                .pipelineId(PIPELINE_ID)
+                .executionId(EXECUTION_ID)
+                .groupContextId(GROUP_CONTEXT_ID)
+                .expression(expression)
+                .authorizer(AUTHORIZER)
+                .build();
+        var actual = underTest.evaluateExpression(evaluateExpressionRequest);
+
+        // verify...
+        assertEquals(0.3, ((NumberTypeValue) actual.getResult()).getValue().doubleValue(), 0.001);
+        assertEquals(expected.getEvaluated(), actual.getEvaluated());
+        assertEquals(expected.getReferenceDatasets(), actual.getReferenceDatasets());
+    }
+
+    @Test
+    void evaluateCompositeLookupFunctionMismatchedKeys() {
+        var expression = "lookup(['US','WA'],'mySource',['country'],'myOutputColumn')";
+        when(executionVisitorProvider.get()).then(invocation-> new ExecutionVisitorImpl(calculationsClient, datasetsClient, groupsClient, impactsClient, camlClient, gson));
+
+        var evaluateExpressionRequest = CalculatorImpl.EvaluateExpressionRequest.builder()
+                .pipelineId(PIPELINE_ID)
+                .executionId(EXECUTION_ID)
+                .groupContextId(GROUP_CONTEXT_ID)
+                .expression(expression)
+                .authorizer(AUTHORIZER)
+                .build();
+        var e = assertThrows(ArithmeticException.class, () -> underTest.evaluateExpression(evaluateExpressionRequest));
+        assertEquals("The number of values (2) must match the number of key columns (1).", e.getMessage());
+    }
+
+    @Test
+    void evaluateLookupRangeFunction() throws ReferenceDatasetNotFoundException {
+
+        // input...
+        var expression = "lookup_range('2021-06-15','myFactors','validFrom','validTo','myOutputColumn',group='/a')";
+        var expected = EvaluateResponse.builder().result(new NumberTypeValue(0.4))
+                .evaluated(Map.of(
+                        expression, "0.4"))
+                .referenceDatasets(List.of(
+                        Map.of(
+                                "value", "2021-06-15",
+                                "name", "myFactors",
+                                "fromColumn", "validFrom",
+                                "toColumn", "validTo",
+                                "outputColumn", "myOutputColumn",
+                                "group", "/a",
+                                "version", "3"
+                        )
+                ))
+                .build();
+
+        // set up mocks...
+        when(executionVisitorProvider.get()).then(invocation-> new ExecutionVisitorImpl(calculationsClient, datasetsClient, groupsClient, impactsClient, camlClient, gson));
+        when(datasetsClient.getRangeValue(PIPELINE_ID, EXECUTION_ID, "/a", AUTHORIZER,"myFactors", "2021-06-15", "myOutputColumn", "validFrom", "validTo", Optional.empty(), Optional.empty(), Optional.empty()))
+                .thenReturn(new DatasetsClient.GetValueResponse("0.4",3));
+
+        // execute...
+        var evaluateExpressionRequest = CalculatorImpl.EvaluateExpressionRequest.builder()
+                .pipelineId(PIPELINE_ID)
+                .executionId(EXECUTION_ID)
+                .groupContextId(GROUP_CONTEXT_ID)
+                .expression(expression)
+                .authorizer(AUTHORIZER)
+                .build();
+        var actual = underTest.evaluateExpression(evaluateExpressionRequest);
+
+        // verify...
+        assertEquals(0.4, ((NumberTypeValue) actual.getResult()).getValue().doubleValue(), 0.001);
+        assertEquals(expected.getEvaluated(), actual.getEvaluated());
+        assertEquals(expected.getReferenceDatasets(), actual.getReferenceDatasets());
+    }
+
     @Test
     void evaluateLookupFunctionWithExpressions() throws ReferenceDatasetNotFoundException {
 
@@ -0,0 +1,103 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.execution;
+
+import com.aws.sif.resources.ResourcesRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResourceReferenceCollectorTest {
+
+    @Test
+    void collectsLiteralReferences() {
+        var formula = "IMPACT('electricity','co2e','co2',group='/a/b') * LOOKUP(:zipcode,'zipcodes','zip','state',version=2) + #myFunction(:one,tenant='t1')";
+
+        var actual = ResourceReferenceCollector.collect(formula);
+
+        assertEquals(Set.of(
+                new ResourceReference(ResourcesRepository.Type.ACTIVITY, "electricity", Optional.of("/a/b"), Optional.empty(), Optional.empty(), Optional.empty()),
+                new ResourceReference(ResourcesRepository.Type.LOOKUP, "zipcodes", Optional.empty(), Optional.empty(), Optional.of("2"), Optional.empty()),
+                new ResourceReference(ResourcesRepository.Type.FUNCTION, "myFunction", Optional.empty(), Optional.of("t1"), Optional.empty(), Optional.empty())
+        ), actual);
+    }
+
+    @Test
+    void collectsNestedReferences() {
+        var formula = "LOOKUP(LOOKUP(:zip,'zipcodes','zip','state'),'states','state','region')";
+
+        var actual = ResourceReferenceCollector.collect(formula);
+
+        assertEquals(Set.of(
+                new ResourceReference(ResourcesRepository.Type.LOOKUP, "states", Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()),
+                new ResourceReference(ResourcesRepository.Type.LOOKUP, "zipcodes", Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty())
+        ), actual);
+    }
+
+    @Test
+    void ignoresNonLiteralReferences() {
+        var formula = "IMPACT(:activity,'co2e','co2') + LOOKUP(:zip,'zipcodes','zip','state',group=:group) + IMPACT('electricity','co2e','co2',version=1,versionAsAt='2023-01-01')";
+
+        var actual = ResourceReferenceCollector.collect(formula);
+
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    void collectsLookupKeys() {
+        var formula = "LOOKUP(:zip,'zipcodes','zip','state',version=2) + LOOKUP((:zip),'zipcodes','zip','city') + LOOKUP('90210','zipcodes','zip','state') + LOOKUP(:zip,'zipcodes',:column,'state') + LOOKUP(:zip,:name,'zip','state')";
+
+        var actual = ResourceReferenceCollector.collectLookupKeys(formula);
+
+        var reference = new ResourceReference(ResourcesRepository.Type.LOOKUP, "zipcodes", Optional.empty(), Optional.empty(), Optional.of("2"), Optional.empty());
+        var latest = new ResourceReference(ResourcesRepository.Type.LOOKUP, "zipcodes", Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+        assertEquals(Set.of(
+                new LookupKeyReference(reference, "zip", "zip", "state"),
+                new LookupKeyReference(latest, "zip", "zip", "city")
+        ), actual);
+    }
+
+    @Test
+    void collectsCamlTokens() {
+        var formula = "GET_VALUE(CAML(:product),'$[0].title') + GET_VALUE(CAML((:description)),'$[0].title') + GET_VALUE(CAML('literal'),'$[0].title') + GET_VALUE(CAML(CONCAT(:a,:b)),'$[0].title')";
+
+        var actual = ResourceReferenceCollector.collectCamlTokens(formula);
+
+        assertEquals(Set.of("product", "description"), actual);
+    }
+
+    @Test
+    void collectsAllReferencesOfFormulas() {
+        var formulas = List.of("IMPACT('electricity','co2e','co2') * LOOKUP(:zip,'zipcodes','zip','city')", "GET_VALUE(CAML(:product),'$[0].title')", "ASSIGN_TO_GROUP('/a/b')");
+
+        var actual = ResourceReferenceCollector.collectAll(formulas);
+
+        assertEquals(2, actual.getReferences().size());
+        assertEquals(1, actual.getLookupKeys().size());
+        assertEquals(Set.of("product"), actual.getCamlTokens());
+        assertTrue(actual.isAssignsToGroups());
+    }
+
+    @Test
+    void ignoresInvalidFormulas() {
+        var actual = ResourceReferenceCollector.collect("IMPACT('electricity','co2e'");
+
+        assertTrue(actual.isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.lambdaInvoker;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void queuesCallersOverTheLimit() {
+        var underTest = new AdaptiveConcurrencyLimiter("fn", 2, 1, 10, 0.5);
+
+        var first = underTest.acquire();
+        var second = underTest.acquire();
+        var third = underTest.acquire();
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+        assertFalse(underTest.tryAcquire());
+
+        underTest.release(AdaptiveConcurrencyLimiter.Outcome.FAILED, System.nanoTime(), 10);
+
+        assertTrue(third.isDone());
+        assertEquals(2, underTest.snapshotAndReset().getInFlight());
+    }
+
+    @Test
+    void cancelledPermitsAreReturnedWithoutAdjustingTheLimit() {
+        var underTest = new AdaptiveConcurrencyLimiter("fn", 1, 1, 10, 0.5);
+
+        assertTrue(underTest.tryAcquire());
+        assertFalse(underTest.tryAcquire());
+        underTest.release(AdaptiveConcurrencyLimiter.Outcome.CANCELLED, System.nanoTime(), 0);
+
+        var metrics = underTest.snapshotAndReset();
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(1, metrics.getLimit());
+        assertEquals(0, metrics.getP95LatencyMillis());
+    }
+
+    @Test
+    void increasesAdditivelyOnSuccess() {
+        var underTest = new AdaptiveConcurrencyLimiter("fn", 2, 1, 10, 0.5);
+
+        for (var i = 0; i < 4; i++) {
+            underTest.acquire();
+            underTest.release(AdaptiveConcurrencyLimiter.Outcome.SUCCESS, System.nanoTime(), 10);
+        }
+
+        var metrics = underTest.snapshotAndReset();
+        assertTrue(metrics.getLimit() > 3 && metrics.getLimit() < 4, "limit was " + metrics.getLimit());
+        assertEquals(10, metrics.getP95LatencyMillis());
+    }
+
+    @Test
+    void decreasesOncePerBurstOfThrottles() {
+        var underTest = new AdaptiveConcurrencyLimiter("fn", 8, 1, 10, 0.5);
+
+        // all started before the first throttle is observed
+        var start = System.nanoTime();
+        for (var i = 0; i < 4; i++) {
+            underTest.acquire();
+        }
+        for (var i = 0; i < 4; i++) {
+            underTest.release(AdaptiveConcurrencyLimiter.Outcome.THROTTLED, start, 10);
+        }
+        assertEquals(4, underTest.snapshotAndReset().getLimit());
+
+        // a subsequent throttle of an invocation started after the decrease is acted upon
+        underTest.acquire();
+        underTest.release(AdaptiveConcurrencyLimiter.Outcome.THROTTLED, System.nanoTime(), 10);
+        var metrics = underTest.snapshotAndReset();
+        assertEquals(2, metrics.getLimit());
+        assertEquals(1, metrics.getThrottles());
+    }
+
+    @Test
+    void neverDecreasesBelowMinimum() {
+        var underTest = new AdaptiveConcurrencyLimiter("fn", 2, 1, 10, 0.5);
+
+        for (var i = 0; i < 3; i++) {
+            underTest.acquire();
+            underTest.release(AdaptiveConcurrencyLimiter.Outcome.THROTTLED, System.nanoTime(), 10);
+        }
+
+        assertEquals(1, underTest.snapshotAndReset().getLimit());
+    }
+}
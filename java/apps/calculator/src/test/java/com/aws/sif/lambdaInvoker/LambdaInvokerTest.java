@@ -0,0 +1,143 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.lambdaInvoker;
+
+import com.aws.sif.Authorizer;
+import com.aws.sif.resources.groups.Group;
+import com.google.gson.Gson;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+import software.amazon.awssdk.services.lambda.model.TooManyRequestsException;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LambdaInvokerTest {
+
+    private static final String GROUP_CONTEXT_ID = "/test";
+    private static final Authorizer AUTHORIZER = new Authorizer("someone@somewhere.com", GROUP_CONTEXT_ID, Set.of(GROUP_CONTEXT_ID));
+
+    @Mock
+    private LambdaAsyncClient lambdaClient;
+
+    private LambdaInvocationLimiters limiters;
+    private LambdaInvoker<Group> underTest;
+
+    @BeforeEach
+    public void initEach() {
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.lambda.limiter { initialLimit=2, minLimit=1, maxLimit=10, backoffRatio=0.5 }",
+                "calculator.lambda.retry { numberOfRetries=2, baseBackOffInMillis=1, maxBackOffInMillis=5 }",
+                "calculator.lambda.hedge { enabled=false, minSamples=20, minDelayInMillis=25 }",
+                "calculator.tokens { ttlInMillis=60000, maxEntries=10 }",
+                "calculator.metrics.namespace=test"));
+        limiters = new LambdaInvocationLimiters(config);
+        underTest = new LambdaInvoker<>(lambdaClient, limiters, new TokenService(config));
+    }
+
+    @Test
+    void coalescesConcurrentGets() {
+        var pending = new CompletableFuture<InvokeResponse>();
+        when(lambdaClient.invoke(any(InvokeRequest.class))).thenReturn(pending);
+
+        var first = underTest.invokeFunctionAsync("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class);
+        var second = underTest.invokeFunctionAsync("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class);
+        pending.complete(response(200, "{\"id\":\"/test\"}"));
+
+        verify(lambdaClient, times(1)).invoke(any(InvokeRequest.class));
+        assertEquals("/test", first.join().getBody().getId());
+        assertSame(first.join(), second.join());
+    }
+
+    @Test
+    void doesNotCoalesceAcrossAuthorizerGroupContexts() {
+        when(lambdaClient.invoke(any(InvokeRequest.class))).thenReturn(new CompletableFuture<>());
+        var other = new Authorizer("someone@somewhere.com", "/other", Set.of(GROUP_CONTEXT_ID));
+
+        underTest.invokeFunctionAsync("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class);
+        underTest.invokeFunctionAsync("fn", GROUP_CONTEXT_ID, other, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class);
+
+        // the callers' tokens differ, so each is invoked on its own behalf
+        verify(lambdaClient, times(2)).invoke(any(InvokeRequest.class));
+    }
+
+    @Test
+    void doesNotCoalesceOnceComplete() {
+        when(lambdaClient.invoke(any(InvokeRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(response(200, "{\"id\":\"/test\"}")))
+                .thenReturn(CompletableFuture.completedFuture(response(200, "{\"id\":\"/test\"}")));
+
+        underTest.invokeFunction("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class);
+        underTest.invokeFunction("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class);
+
+        verify(lambdaClient, times(2)).invoke(any(InvokeRequest.class));
+    }
+
+    @Test
+    void failedResponsesAreWrapped() {
+        when(lambdaClient.invoke(any(InvokeRequest.class))).thenReturn(CompletableFuture.completedFuture(response(404, "{}")));
+
+        var e = assertThrows(CompletionException.class, () ->
+                underTest.invokeFunction("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Fmissing", Optional.empty(), Optional.empty(), Optional.empty(), Group.class));
+        assertInstanceOf(LambdaInvocationException.class, e.getCause());
+        assertEquals(404, ((LambdaInvocationException) e.getCause()).getStatusCode());
+    }
+
+    @Test
+    void retriesThrottledInvocations() {
+        when(lambdaClient.invoke(any(InvokeRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(TooManyRequestsException.builder().statusCode(429).message("Rate Exceeded.").build()))
+                .thenReturn(CompletableFuture.completedFuture(response(200, "{\"id\":\"/test\"}")));
+
+        var actual = underTest.invokeFunction("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class);
+
+        assertEquals("/test", actual.getBody().getId());
+        verify(lambdaClient, times(2)).invoke(any(InvokeRequest.class));
+        var metrics = limiters.snapshotAndReset().get(0);
+        assertEquals(1, metrics.getThrottles());
+        assertEquals(1, metrics.getRetries());
+        assertEquals(0, metrics.getInFlight());
+    }
+
+    @Test
+    void failsOnceRetriesExhausted() {
+        when(lambdaClient.invoke(any(InvokeRequest.class)))
+                .thenAnswer(i -> CompletableFuture.failedFuture(TooManyRequestsException.builder().statusCode(429).message("Rate Exceeded.").build()));
+
+        var e = assertThrows(CompletionException.class, () ->
+                underTest.invokeFunction("fn", GROUP_CONTEXT_ID, AUTHORIZER, "GET", "/groups/%2Ftest", Optional.empty(), Optional.empty(), Optional.empty(), Group.class));
+        assertEquals(429, ((LambdaInvocationException) e.getCause()).getStatusCode());
+        verify(lambdaClient, times(3)).invoke(any(InvokeRequest.class));
+    }
+
+    private InvokeResponse response(int statusCode, String body) {
+        var payload = String.format("{\"statusCode\":%d,\"body\":%s}", statusCode, new Gson().toJson(body));
+        return InvokeResponse.builder().statusCode(200).payload(SdkBytes.fromUtf8String(payload)).build();
+    }
+}
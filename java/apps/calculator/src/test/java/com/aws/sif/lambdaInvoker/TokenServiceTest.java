@@ -0,0 +1,80 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.lambdaInvoker;
+
+import com.aws.sif.Authorizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenServiceTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    void tokensAreCachedPerUserGroupsTargetAndTenant() {
+        var underTest = new TokenService(100, 10, now::get);
+        var alice = new Authorizer("alice@example.com", "/a", Set.of("/a"));
+        var bob = new Authorizer("bob@example.com", "/a", Set.of("/a"));
+
+        var jwt = underTest.jwt(alice, "/a", Optional.empty());
+        // a new authorizer for the same user and groups reuses the token
+        assertSame(jwt, underTest.jwt(new Authorizer("alice@example.com", "/a", Set.of("/a")), "/a", Optional.empty()));
+
+        assertNotEquals(jwt, underTest.jwt(bob, "/a", Optional.empty()));
+        assertNotEquals(jwt, underTest.jwt(alice, "/a/b", Optional.empty()));
+        assertNotEquals(jwt, underTest.jwt(alice, "/a", Optional.of("t1")));
+        assertNotEquals(jwt, underTest.jwt(new Authorizer("alice@example.com", "/a", Set.of("/a", "/b")), "/a", Optional.empty()));
+
+        now.addAndGet(100);
+        assertNotSame(jwt, underTest.jwt(alice, "/a", Optional.empty()));
+    }
+
+    @Test
+    void leastRecentlyUsedTokensAreEvicted() {
+        var underTest = new TokenService(100, 2, now::get);
+        var alice = new Authorizer("alice@example.com", "/a", Set.of("/a"));
+
+        var first = underTest.jwt(alice, "/a", Optional.empty());
+        underTest.jwt(alice, "/b", Optional.empty());
+        assertSame(first, underTest.jwt(alice, "/a", Optional.empty()));
+        underTest.jwt(alice, "/c", Optional.empty());
+
+        assertSame(first, underTest.jwt(alice, "/a", Optional.empty()));
+    }
+
+    @Test
+    void claims() {
+        var underTest = new TokenService(100, 10, now::get);
+        var authorizer = new Authorizer("alice@example.com", "/a", Set.of("/a"));
+
+        assertEquals(Map.of("claims", Map.of(
+                "email", "Calculator (alice@example.com)",
+                "cognito:groups", "/a|||reader",
+                "groupContextId", "/a/b")), underTest.requestContextAuthorizer(authorizer, "/a/b", Optional.empty()));
+        assertEquals(Map.of("claims", Map.of(
+                "email", "Calculator (alice@example.com)",
+                "cognito:groups", "/a|||reader",
+                "groupContextId", "/a",
+                "tenantId", "t1")), underTest.requestContextAuthorizer(authorizer, "/a/b", Optional.of("t1")));
+
+        // header, claims and signature
+        assertEquals(3, underTest.jwt(authorizer, "/a/b", Optional.empty()).split("\\.").length);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal in-memory stand-in for DynamoDB supporting the item and batch operations used by the calculator, keyed
+ * by the table's <code>pk</code> and <code>sk</code> attributes. Batch operations can be configured to leave
+ * items unprocessed so that retries can be exercised.
+ */
+public class InMemoryDynamoDbAsyncClient implements DynamoDbAsyncClient {
+
+    private final Map<String, Map<List<String>, Map<String, AttributeValue>>> tables = new ConcurrentHashMap<>();
+
+    /** the maximum number of keys/items processed per batch request, the remainder being returned as unprocessed */
+    private int batchCapacity = Integer.MAX_VALUE;
+
+    public final AtomicInteger getItemCount = new AtomicInteger();
+    public final AtomicInteger batchGetItemCount = new AtomicInteger();
+    public final AtomicInteger batchWriteItemCount = new AtomicInteger();
+
+    public void setBatchCapacity(int batchCapacity) {
+        this.batchCapacity = batchCapacity;
+    }
+
+    public int size(String tableName) {
+        return table(tableName).size();
+    }
+
+    @Override
+    public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+        getItemCount.incrementAndGet();
+        var item = table(request.tableName()).get(key(request.key()));
+        var response = GetItemResponse.builder();
+        if (item != null) {
+            response.item(item);
+        }
+        return CompletableFuture.completedFuture(response.build());
+    }
+
+    @Override
+    public CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+        table(request.tableName()).put(key(request.item()), request.item());
+        return CompletableFuture.completedFuture(PutItemResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<BatchGetItemResponse> batchGetItem(BatchGetItemRequest request) {
+        batchGetItemCount.incrementAndGet();
+        var responses = new HashMap<String, List<Map<String, AttributeValue>>>();
+        var unprocessed = new HashMap<String, KeysAndAttributes>();
+        var processed = 0;
+        for (var entry : request.requestItems().entrySet()) {
+            var table = table(entry.getKey());
+            var found = new ArrayList<Map<String, AttributeValue>>();
+            var remaining = new ArrayList<Map<String, AttributeValue>>();
+            for (var key : entry.getValue().keys()) {
+                if (processed++ < batchCapacity) {
+                    Optional.ofNullable(table.get(key(key))).ifPresent(found::add);
+                } else {
+                    remaining.add(key);
+                }
+            }
+            responses.put(entry.getKey(), found);
+            if (!remaining.isEmpty()) {
+                unprocessed.put(entry.getKey(), KeysAndAttributes.builder().keys(remaining).build());
+            }
+        }
+        return CompletableFuture.completedFuture(BatchGetItemResponse.builder().responses(responses).unprocessedKeys(unprocessed).build());
+    }
+
+    @Override
+    public CompletableFuture<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest request) {
+        batchWriteItemCount.incrementAndGet();
+        var unprocessed = new HashMap<String, List<WriteRequest>>();
+        var processed = 0;
+        for (var entry : request.requestItems().entrySet()) {
+            var table = table(entry.getKey());
+            var remaining = new ArrayList<WriteRequest>();
+            for (var write : entry.getValue()) {
+                if (processed++ >= batchCapacity) {
+                    remaining.add(write);
+                } else if (write.putRequest() != null) {
+                    table.put(key(write.putRequest().item()), write.putRequest().item());
+                } else if (write.deleteRequest() != null) {
+                    table.remove(key(write.deleteRequest().key()));
+                }
+            }
+            if (!remaining.isEmpty()) {
+                unprocessed.put(entry.getKey(), remaining);
+            }
+        }
+        return CompletableFuture.completedFuture(BatchWriteItemResponse.builder().unprocessedItems(unprocessed).build());
+    }
+
+    private Map<List<String>, Map<String, AttributeValue>> table(String tableName) {
+        return tables.computeIfAbsent(tableName, t -> new ConcurrentHashMap<>());
+    }
+
+    private List<String> key(Map<String, AttributeValue> item) {
+        return List.of(item.get("pk").s(), item.get("sk").s());
+    }
+
+    @Override
+    public String serviceName() {
+        return "dynamodb";
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NegativeCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    void missesExpireAfterTtl() {
+        var underTest = new NegativeCache("test", 100, 10, now::get);
+
+        underTest.put("a", "Activity with name 'a' not found.");
+        assertEquals(Optional.of("Activity with name 'a' not found."), underTest.get("a"));
+
+        now.addAndGet(100);
+        assertEquals(Optional.empty(), underTest.get("a"));
+
+        var metrics = underTest.snapshotAndReset();
+        assertEquals(1, metrics.getHits());
+        assertEquals(1, metrics.getStores());
+        assertEquals(0, metrics.getEntries());
+    }
+
+    @Test
+    void oldestEntriesEvictedOnceFull() {
+        var underTest = new NegativeCache("test", 100, 2, now::get);
+
+        underTest.put("a", "a");
+        underTest.put("b", "b");
+        underTest.put("c", "c");
+
+        assertEquals(Optional.empty(), underTest.get("a"));
+        assertEquals(Optional.of("b"), underTest.get("b"));
+        assertEquals(Optional.of("c"), underTest.get("c"));
+        assertEquals(2, underTest.snapshotAndReset().getEntries());
+    }
+}
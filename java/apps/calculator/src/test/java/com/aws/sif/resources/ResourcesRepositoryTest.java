@@ -0,0 +1,117 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourcesRepositoryTest {
+
+    private static final String TABLE_NAME = "mappings";
+
+    private InMemoryDynamoDbAsyncClient ddb;
+    private ResourcesRepository underTest;
+
+    @BeforeEach
+    public void initEach() {
+        ddb = new InMemoryDynamoDbAsyncClient();
+        underTest = newRepository();
+    }
+
+    @Test
+    void preloadedMappingsAreServedLocally() {
+        var writer = newRepository();
+        writer.saveMapping("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "electricity", new ResourcesRepository.Mapping("id1", 2));
+        writer.flush().join();
+
+        underTest.preloadMappings(List.of(
+                ResourcesRepository.MappingKey.of("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "electricity"),
+                ResourcesRepository.MappingKey.of("p1", "e1", "/a", ResourcesRepository.Type.LOOKUP, "zip codes"))).join();
+
+        assertEquals(new ResourcesRepository.Mapping("id1", 2), underTest.getMapping("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "electricity"));
+        assertNull(underTest.getMapping("p1", "e1", "/a", ResourcesRepository.Type.LOOKUP, "zip codes"));
+        assertEquals(1, ddb.batchGetItemCount.get());
+        assertEquals(0, ddb.getItemCount.get());
+    }
+
+    @Test
+    void unprocessedKeysAreRetried() {
+        var writer = newRepository();
+        var keys = IntStream.range(0, 150).mapToObj(i -> {
+            writer.saveMapping("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "activity" + i, new ResourcesRepository.Mapping("id" + i, 1));
+            return ResourcesRepository.MappingKey.of("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "activity" + i);
+        }).collect(Collectors.toList());
+        writer.flush().join();
+
+        ddb.setBatchCapacity(40);
+        underTest.preloadMappings(keys).join();
+
+        // 2 batches (100 + 50 keys), each only partially processed per request
+        assertEquals(5, ddb.batchGetItemCount.get());
+        for (var i = 0; i < 150; i++) {
+            assertEquals("id" + i, underTest.getMapping("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "activity" + i).getId());
+        }
+        assertEquals(0, ddb.getItemCount.get());
+    }
+
+    @Test
+    void mappingsAreWrittenBehindInBatches() {
+        ddb.setBatchCapacity(10);
+        for (var i = 0; i < 30; i++) {
+            underTest.saveMapping("p1", "e1", "/a", ResourcesRepository.Type.LOOKUP, "dataset" + i, new ResourcesRepository.Mapping("id" + i, 1));
+        }
+        // saved mappings are immediately available without being read back
+        assertEquals("id29", underTest.getMapping("p1", "e1", "/a", ResourcesRepository.Type.LOOKUP, "dataset29").getId());
+
+        underTest.flush().join();
+
+        assertEquals(30, ddb.size(TABLE_NAME));
+        // a full batch of 25 (3 requests given the unprocessed items) followed by the remaining 5 upon flush
+        assertEquals(4, ddb.batchWriteItemCount.get());
+        assertEquals(0, ddb.getItemCount.get());
+    }
+
+    @Test
+    void unknownMappingsFallBackToIndividualReads() {
+        assertNull(underTest.getMapping("p1", "e1", "/a", ResourcesRepository.Type.FUNCTION, "missing"));
+        assertEquals(1, ddb.getItemCount.get());
+    }
+
+    @Test
+    void leastRecentlyUsedMappingsAreEvicted() {
+        for (var i = 0; i < 201; i++) {
+            underTest.saveMapping("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "activity" + i, new ResourcesRepository.Mapping("id" + i, 1));
+        }
+        underTest.flush().join();
+
+        // the oldest was evicted so is read back from the table, whereas the most recent is still served locally
+        assertEquals("id200", underTest.getMapping("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "activity200").getId());
+        assertEquals(0, ddb.getItemCount.get());
+        assertEquals("id0", underTest.getMapping("p1", "e1", "/a", ResourcesRepository.Type.ACTIVITY, "activity0").getId());
+        assertEquals(1, ddb.getItemCount.get());
+    }
+
+    private ResourcesRepository newRepository() {
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.resourceMappingTableName=" + TABLE_NAME,
+                "calculator.resourceMapping { numberOfRetries=5, baseBackOffInMillis=1, maxBackOffInMillis=5, maxEntries=200 }"));
+        return new ResourcesRepository(ddb, config);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.caml;
+
+import com.aws.sif.resources.InMemoryDynamoDbAsyncClient;
+import com.aws.sif.resources.ResourcesRepository;
+import com.google.gson.Gson;
+import com.typesafe.config.ConfigFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares inferring the distinct product names of a file one at a time (as when evaluated row by row) against
+ * prefetching them in batches, using a local fake endpoint with a fixed per request and per record latency.
+ * <p>
+ * Note: intentionally not named CamlBatchingBenchmarkTest so that automated unit tests will not run these, as these
+ * are benchmarks to be run manually during development.
+ */
+@Slf4j
+public class CamlBatchingBenchmark {
+
+    private static final int PRODUCT_NAMES = 500;
+    private static final long LATENCY_MILLIS = 20;
+    private static final long PER_RECORD_LATENCY_MILLIS = 1;
+
+    @Test
+    void individualVersusBatched() throws Exception {
+        var names = FakeSageMakerRuntimeAsyncClient.productNames(PRODUCT_NAMES);
+
+        var endpoint = new FakeSageMakerRuntimeAsyncClient(LATENCY_MILLIS, PER_RECORD_LATENCY_MILLIS);
+        var client = newClient(endpoint, 32, 4);
+        var start = System.nanoTime();
+        for (var name : names) {
+            client.getProductMatches(name);
+        }
+        log.info("individual: {}ms, requests: {}", (System.nanoTime() - start) / 1_000_000, endpoint.invocations.get());
+
+        for (var maxRecords : new int[]{8, 32, 64}) {
+            for (var concurrency : new int[]{1, 4, 8}) {
+                endpoint = new FakeSageMakerRuntimeAsyncClient(LATENCY_MILLIS, PER_RECORD_LATENCY_MILLIS);
+                client = newClient(endpoint, maxRecords, concurrency);
+                start = System.nanoTime();
+                client.prefetchProductMatches(names);
+                for (var name : names) {
+                    client.getProductMatches(name);
+                }
+                log.info("batched (maxRecords:{}, concurrency:{}): {}ms, requests: {}", maxRecords, concurrency,
+                        (System.nanoTime() - start) / 1_000_000, endpoint.invocations.get());
+            }
+        }
+    }
+
+    private CamlClient newClient(FakeSageMakerRuntimeAsyncClient endpoint, int maxRecords, int concurrency) {
+        var config = ConfigFactory.parseString(String.format(String.join("\n",
+                "calculator.resourceMappingTableName=mappings",
+                "calculator.resourceMapping { numberOfRetries=2, baseBackOffInMillis=1, maxBackOffInMillis=5, maxEntries=1000 }",
+                "calculator.caml.inferenceEndpointName=benchmark",
+                "calculator.caml.batch { maxRecords=%s, concurrency=%s }"), maxRecords, concurrency));
+        return new CamlClient(endpoint, config, new Gson(), new ResourcesRepository(new InMemoryDynamoDbAsyncClient(), config));
+    }
+}
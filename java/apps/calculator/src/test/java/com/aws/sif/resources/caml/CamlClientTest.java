@@ -0,0 +1,128 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.caml;
+
+import com.aws.sif.resources.InMemoryDynamoDbAsyncClient;
+import com.aws.sif.resources.ResourcesRepository;
+import com.google.gson.Gson;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CamlClientTest {
+
+    private static final String TABLE_NAME = "mappings";
+
+    private InMemoryDynamoDbAsyncClient ddb;
+    private FakeSageMakerRuntimeAsyncClient endpoint;
+
+    @BeforeEach
+    public void initEach() {
+        ddb = new InMemoryDynamoDbAsyncClient();
+        endpoint = new FakeSageMakerRuntimeAsyncClient(5, 0);
+    }
+
+    @Test
+    void prefetchInfersDistinctNamesInBatches() throws Exception {
+        var underTest = newClient("endpoint");
+        var names = new ArrayList<>(FakeSageMakerRuntimeAsyncClient.productNames(25));
+        // duplicates once normalized
+        names.add("  product   0 ");
+        names.add("product 1");
+
+        underTest.prefetchProductMatches(names);
+
+        assertEquals(3, endpoint.invocations.get());
+        assertEquals(25, endpoint.records.get());
+        assertTrue(endpoint.maxConcurrent.get() <= 2);
+
+        // served from cache when evaluated
+        assertArrayEquals(FakeSageMakerRuntimeAsyncClient.matches("product 0"), underTest.getProductMatches(" product  0"));
+        assertArrayEquals(FakeSageMakerRuntimeAsyncClient.matches("product 24"), underTest.getProductMatches("product 24"));
+        assertEquals(3, endpoint.invocations.get());
+    }
+
+    @Test
+    void prefetchUsesPreviouslyInferredMappings() throws Exception {
+        var writer = newRepository();
+        newClient("endpoint", writer).prefetchProductMatches(List.of("product 0", "product 1"));
+        writer.flush().join();
+        assertEquals(1, endpoint.invocations.get());
+
+        var underTest = newClient("endpoint");
+        underTest.prefetchProductMatches(List.of("product 0", "product 1", "product 2"));
+
+        assertEquals(2, endpoint.invocations.get());
+        assertEquals(3, endpoint.records.get());
+        assertArrayEquals(FakeSageMakerRuntimeAsyncClient.matches("product 1"), underTest.getProductMatches("product 1"));
+        assertEquals(0, ddb.getItemCount.get());
+    }
+
+    @Test
+    void failedBatchesAreInferredIndividually() throws Exception {
+        var underTest = newClient("endpoint");
+        endpoint.setFailMultiRecord(true);
+
+        underTest.prefetchProductMatches(List.of("product 0", "product 1"));
+        assertArrayEquals(FakeSageMakerRuntimeAsyncClient.matches("product 1"), underTest.getProductMatches("product 1"));
+
+        // one failed batch, then a single record request
+        assertEquals(2, endpoint.invocations.get());
+        assertEquals(1, endpoint.records.get());
+    }
+
+    @Test
+    void namesAreEscaped() throws Exception {
+        var underTest = newClient("endpoint");
+        var name = "12\" \\ pipe";
+
+        assertArrayEquals(FakeSageMakerRuntimeAsyncClient.matches(name), underTest.getProductMatches(name));
+        assertEquals(1, endpoint.invocations.get());
+    }
+
+    @Test
+    void prefetchIgnoredWhenNotEnabled() {
+        var underTest = newClient("");
+
+        underTest.prefetchProductMatches(List.of("product 0"));
+
+        assertEquals(0, endpoint.invocations.get());
+        assertThrows(CamlNotEnabledException.class, () -> underTest.getProductMatches("product 0"));
+    }
+
+    private CamlClient newClient(String endpointName) {
+        return newClient(endpointName, newRepository());
+    }
+
+    private CamlClient newClient(String endpointName, ResourcesRepository repository) {
+        return new CamlClient(endpoint, config(endpointName), new Gson(), repository);
+    }
+
+    private ResourcesRepository newRepository() {
+        return new ResourcesRepository(ddb, config(""));
+    }
+
+    private Config config(String endpointName) {
+        return ConfigFactory.parseString(String.join("\n",
+                "calculator.resourceMappingTableName=" + TABLE_NAME,
+                "calculator.resourceMapping { numberOfRetries=2, baseBackOffInMillis=1, maxBackOffInMillis=5, maxEntries=1000 }",
+                "calculator.caml.inferenceEndpointName=\"" + endpointName + "\"",
+                "calculator.caml.batch { maxRecords=10, concurrency=2 }"));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.caml;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.sagemakerruntime.SageMakerRuntimeAsyncClient;
+import software.amazon.awssdk.services.sagemakerruntime.model.InvokeEndpointRequest;
+import software.amazon.awssdk.services.sagemakerruntime.model.InvokeEndpointResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local stand-in for a CaML inference endpoint, supporting both single (<code>{"inputs":"name"}</code>) and
+ * multi-record (<code>{"inputs":["name1","name2"]}</code>) requests. The matches returned are derived from the product
+ * name, and each request may be delayed by a fixed latency plus a per-record cost so that batching can be exercised
+ * and benchmarked offline. Multi-record requests may be configured to fail.
+ */
+public class FakeSageMakerRuntimeAsyncClient implements SageMakerRuntimeAsyncClient {
+
+    private final Gson gson = new Gson();
+    private final long latencyMillis;
+    private final long perRecordLatencyMillis;
+
+    private volatile boolean failMultiRecord;
+
+    public final AtomicInteger invocations = new AtomicInteger();
+    public final AtomicInteger records = new AtomicInteger();
+    public final AtomicInteger maxConcurrent = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    public FakeSageMakerRuntimeAsyncClient(long latencyMillis, long perRecordLatencyMillis) {
+        this.latencyMillis = latencyMillis;
+        this.perRecordLatencyMillis = perRecordLatencyMillis;
+    }
+
+    public void setFailMultiRecord(boolean failMultiRecord) {
+        this.failMultiRecord = failMultiRecord;
+    }
+
+    public static ProductMatch[] matches(String productName) {
+        return new ProductMatch[]{
+                new ProductMatch(productName, "n-" + productName.length(), "b-" + productName.length(), 0.9, (double) productName.length())};
+    }
+
+    @Override
+    public CompletableFuture<InvokeEndpointResponse> invokeEndpoint(InvokeEndpointRequest request) {
+        invocations.incrementAndGet();
+        var inputs = JsonParser.parseString(request.body().asUtf8String()).getAsJsonObject();
+
+        Object body;
+        int count;
+        if (inputs.get("inputs").isJsonArray()) {
+            if (failMultiRecord) {
+                return CompletableFuture.failedFuture(new IllegalStateException("multi-record requests not supported"));
+            }
+            var names = inputs.getAsJsonArray("inputs");
+            var result = new ArrayList<ProductMatch[]>();
+            names.forEach(n -> result.add(matches(n.getAsString())));
+            body = result;
+            count = names.size();
+        } else {
+            body = matches(inputs.get("inputs").getAsString());
+            count = 1;
+        }
+        records.addAndGet(count);
+
+        maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+        var response = InvokeEndpointResponse.builder().contentType("application/json").body(SdkBytes.fromUtf8String(gson.toJson(body))).build();
+        var delay = latencyMillis + perRecordLatencyMillis * count;
+        return CompletableFuture.supplyAsync(() -> response, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                .whenComplete((r, e) -> concurrent.decrementAndGet());
+    }
+
+    @Override
+    public String serviceName() {
+        return "runtime.sagemaker";
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public static List<String> productNames(int count) {
+        var names = new ArrayList<String>();
+        for (var i = 0; i < count; i++) {
+            names.add("product " + i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.groups;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupHierarchyTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    void loadedSubtreesAnswerExistence() {
+        var underTest = new GroupHierarchy(100, now::get);
+        underTest.load("/a", List.of("/a/b", "/a/b/c", "/a/d", "/x/y"));
+
+        assertEquals(Optional.of(true), underTest.exists("/a"));
+        assertEquals(Optional.of(true), underTest.exists("/a/b/c"));
+        assertEquals(Optional.of(true), underTest.exists("/a/d"));
+        assertEquals(Optional.of(false), underTest.exists("/a/e"));
+        assertEquals(Optional.of(false), underTest.exists("/a/b/c/d"));
+        // outside of the loaded subtree, and ignored as not a descendant when loaded
+        assertEquals(Optional.empty(), underTest.exists("/x/y"));
+        assertEquals(Optional.empty(), underTest.exists("/"));
+
+        assertTrue(underTest.isLoaded("/a"));
+        assertTrue(underTest.isLoaded("/a/b"));
+        assertFalse(underTest.isLoaded("/x"));
+
+        now.addAndGet(100);
+        assertEquals(Optional.empty(), underTest.exists("/a/b/c"));
+        assertEquals(Optional.empty(), underTest.exists("/a/e"));
+        assertFalse(underTest.isLoaded("/a"));
+    }
+
+    @Test
+    void reloadingReplacesSubtree() {
+        var underTest = new GroupHierarchy(100, now::get);
+        underTest.load("/a", List.of("/a/b", "/a/c"));
+        underTest.add("/z");
+
+        now.addAndGet(50);
+        underTest.load("/a", List.of("/a/c"));
+
+        assertEquals(Optional.of(false), underTest.exists("/a/b"));
+        assertEquals(Optional.of(true), underTest.exists("/a/c"));
+        assertEquals(Optional.of(true), underTest.exists("/z"));
+    }
+
+    @Test
+    void individuallyAddedGroups() {
+        var underTest = new GroupHierarchy(100, now::get);
+        underTest.add("/a/b");
+
+        assertEquals(Optional.of(true), underTest.exists("/a/b"));
+        // intermediate groups are not known to exist
+        assertEquals(Optional.empty(), underTest.exists("/a"));
+        assertEquals(Optional.empty(), underTest.exists("/a/c"));
+        assertFalse(underTest.isLoaded("/a"));
+    }
+
+    @Test
+    void sameOrDescendant() {
+        assertTrue(GroupHierarchy.isSameOrDescendant("/test", "/test"));
+        assertTrue(GroupHierarchy.isSameOrDescendant("/test/subgroup", "/test"));
+        assertTrue(GroupHierarchy.isSameOrDescendant("/test", "/"));
+        assertFalse(GroupHierarchy.isSameOrDescendant("/", "/test"));
+        assertFalse(GroupHierarchy.isSameOrDescendant("/not_test", "/test"));
+        assertFalse(GroupHierarchy.isSameOrDescendant("/testing", "/test"));
+    }
+}
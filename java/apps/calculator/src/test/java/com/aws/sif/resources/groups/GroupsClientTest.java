@@ -0,0 +1,115 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.groups;
+
+import com.aws.sif.Authorizer;
+import com.aws.sif.lambdaInvoker.LambdaInvocationException;
+import com.aws.sif.lambdaInvoker.LambdaInvoker;
+import com.aws.sif.lambdaInvoker.LambdaResponse;
+import com.aws.sif.resources.NegativeCaches;
+import com.aws.sif.resources.ResourcesRepository;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupsClientTest {
+
+    private static final String GROUP_CONTEXT_ID = "/test";
+    private static final Authorizer AUTHORIZER = new Authorizer("someone@somewhere.com", GROUP_CONTEXT_ID, Set.of(GROUP_CONTEXT_ID));
+
+    @Mock
+    private LambdaInvoker<Group> groupInvoker;
+    @Mock
+    private LambdaInvoker<GroupsList> groupsListInvoker;
+    @Mock
+    private ResourcesRepository repository;
+
+    private GroupsClient underTest;
+
+    @BeforeEach
+    public void initEach() {
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.accessManagement.functionName=accessManagement",
+                "calculator.groups.hierarchy { ttlInMillis=60000, pageSize=2 }",
+                "calculator.negativeCache { ttlInMillis=60000, maxEntries=100 }"));
+        underTest = new GroupsClient(groupInvoker, groupsListInvoker, config, repository, new NegativeCaches(config));
+    }
+
+    @Test
+    void loadedHierarchyAnswersWithoutRemoteCalls() throws Exception {
+        when(groupsListInvoker.invokeFunction(eq("accessManagement"), eq(GROUP_CONTEXT_ID), eq(AUTHORIZER), eq("GET"), eq("/groups"),
+                eq(Optional.of(Map.of("includeChildGroups", "true", "count", "2"))), any(), any(), eq(GroupsList.class)))
+                .thenReturn(page(new String[]{"/test/a", "/test/b"}, "token1"));
+        when(groupsListInvoker.invokeFunction(eq("accessManagement"), eq(GROUP_CONTEXT_ID), eq(AUTHORIZER), eq("GET"), eq("/groups"),
+                eq(Optional.of(Map.of("includeChildGroups", "true", "count", "2", "fromToken", "token1"))), any(), any(), eq(GroupsList.class)))
+                .thenReturn(page(new String[]{"/test/a/C"}, null));
+
+        underTest.loadHierarchy(GROUP_CONTEXT_ID, AUTHORIZER);
+        // already loaded
+        underTest.loadHierarchy(GROUP_CONTEXT_ID, AUTHORIZER);
+
+        assertTrue(underTest.groupExists("p1", "e1", "/test/a/c", "/test/a/c", AUTHORIZER));
+        assertTrue(underTest.groupExists("p2", "e2", "/test", "/test", AUTHORIZER));
+        assertThrows(GroupNotFoundException.class, () -> underTest.groupExists("p1", "e1", "/test/d", "/test/d", AUTHORIZER));
+
+        verify(groupsListInvoker, times(2)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+        verifyNoInteractions(groupInvoker, repository);
+    }
+
+    @Test
+    void groupsOutsideLoadedHierarchyAreVerifiedIndividually() throws Exception {
+        when(groupInvoker.invokeFunction(eq("accessManagement"), eq("/other"), eq(AUTHORIZER), eq("GET"), eq("/groups/%2Fother"), any(), any(), any(), eq(Group.class)))
+                .thenReturn(new LambdaResponse<>(200, new Group("/other", "other", null, "active", null, null, null, null, null, null)));
+
+        assertTrue(underTest.groupExists("p1", "e1", "/other", "/other", AUTHORIZER));
+        // subsequently known to exist, regardless of execution
+        assertTrue(underTest.groupExists("p2", "e2", "/other", "/other", AUTHORIZER));
+
+        verify(groupInvoker, times(1)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void recentlyNotFoundGroupsAreNotLookedUpAgain() throws Exception {
+        when(groupInvoker.invokeFunction(eq("accessManagement"), eq("/missing"), eq(AUTHORIZER), eq("GET"), eq("/groups/%2Fmissing"), any(), any(), any(), eq(Group.class)))
+                .thenThrow(new CompletionException(new LambdaInvocationException("not found", 404)));
+
+        for (var i = 0; i < 3; i++) {
+            assertThrows(GroupNotFoundException.class, () -> underTest.groupExists("p1", "e1", "/missing", "/missing", AUTHORIZER));
+        }
+
+        // only the first miss reaches the database cache and the function
+        verify(repository, times(1)).getMapping(any(), any(), any(), any(), any());
+        verify(groupInvoker, times(1)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private LambdaResponse<GroupsList> page(String[] ids, String lastEvaluatedToken) {
+        var groups = new Group[ids.length];
+        for (var i = 0; i < ids.length; i++) {
+            groups[i] = new Group(ids[i], ids[i], null, "active", null, null, null, null, null, null);
+        }
+        return new LambdaResponse<>(200, new GroupsList(groups, new GroupsList.Pagination(lastEvaluatedToken)));
+    }
+}
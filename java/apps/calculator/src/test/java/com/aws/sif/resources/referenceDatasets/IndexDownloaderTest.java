@@ -0,0 +1,173 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.referenceDatasets;
+
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexDownloaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private byte[] served;
+    private boolean supportsRanges;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final Map<String, byte[]> files = new LinkedHashMap<>();
+
+    @BeforeEach
+    public void initEach() throws Exception {
+        var random = new Random(42);
+        for (var name : new String[]{"_0.cfs", "_0.si", "segments_1"}) {
+            var content = new byte[10_000];
+            random.nextBytes(content);
+            files.put(name, content);
+        }
+        served = zip(files);
+        supportsRanges = true;
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/index.zip", exchange -> {
+            requests.incrementAndGet();
+            var range = exchange.getRequestHeaders().getFirst("Range");
+            if (supportsRanges && range != null) {
+                var bounds = range.substring("bytes=".length()).split("-");
+                var start = Integer.parseInt(bounds[0]);
+                var end = Math.min(Integer.parseInt(bounds[1]), served.length - 1);
+                exchange.getResponseHeaders().add("Content-Range", String.format("bytes %d-%d/%d", start, end, served.length));
+                exchange.sendResponseHeaders(206, end - start + 1);
+                exchange.getResponseBody().write(served, start, end - start + 1);
+            } else {
+                exchange.sendResponseHeaders(200, served.length);
+                exchange.getResponseBody().write(served);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        server.stop(0);
+    }
+
+    private IndexDownloader newDownloader(String partSize) {
+        return new IndexDownloader(ConfigFactory.parseString(String.format(
+                "calculator.referenceDatasets.index.download { partSize=%s, parallelism=3, numberOfRetries=1 }", partSize)));
+    }
+
+    private String url() {
+        return String.format("http://localhost:%d/index.zip", server.getAddress().getPort());
+    }
+
+    @Test
+    void extractsRangesDownloadedInParallel() throws Exception {
+        var target = tempDir.resolve("index");
+
+        newDownloader("4KiB").downloadAndExtract(url(), target);
+
+        assertExtracted(target);
+        // 30KB+ of (incompressible) content in 4KB parts
+        assertTrue(requests.get() >= 8, "requests: " + requests.get());
+        assertFalse(Files.exists(tempDir.resolve("index.partial")));
+    }
+
+    @Test
+    void extractsWhenRangesNotSupported() throws Exception {
+        supportsRanges = false;
+        var target = tempDir.resolve("index");
+
+        newDownloader("4KiB").downloadAndExtract(url(), target);
+
+        assertExtracted(target);
+    }
+
+    @Test
+    void skipsCompleteIndexes() throws Exception {
+        var target = tempDir.resolve("index");
+        var underTest = newDownloader("64KiB");
+        underTest.downloadAndExtract(url(), target);
+        var afterFirst = requests.get();
+
+        underTest.downloadAndExtract(url(), target);
+
+        assertEquals(afterFirst, requests.get());
+    }
+
+    @Test
+    void replacesIncompleteExtractions() throws Exception {
+        var target = tempDir.resolve("index");
+        // left behind by a container that failed part way through
+        Files.createDirectories(target);
+        Files.write(target.resolve("stale"), new byte[]{1});
+        Files.createDirectories(tempDir.resolve("index.partial"));
+        Files.write(tempDir.resolve("index.partial").resolve("_0.cfs"), new byte[]{1});
+
+        newDownloader("4KiB").downloadAndExtract(url(), target);
+
+        assertExtracted(target);
+        assertFalse(Files.exists(target.resolve("stale")));
+    }
+
+    @Test
+    void rejectsCorruptDownloads() {
+        // random content deflates to uncompressed blocks, therefore the corruption is detected by the entry CRC rather than the inflater
+        served[100] ^= 0xff;
+        var target = tempDir.resolve("index");
+
+        assertThrows(IOException.class, () -> newDownloader("4KiB").downloadAndExtract(url(), target));
+
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(tempDir.resolve("index.partial")));
+    }
+
+    private void assertExtracted(Path target) throws IOException {
+        assertTrue(IndexDownloader.isComplete(target));
+        for (var file : files.entrySet()) {
+            assertTrue(Arrays.equals(file.getValue(), Files.readAllBytes(target.resolve(file.getKey()))), file.getKey());
+        }
+    }
+
+    private static byte[] zip(Map<String, byte[]> files) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            for (var file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.referenceDatasets;
+
+import com.typesafe.config.ConfigFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the time to open an index and perform its first lookup, and the steady state lookup latency, for each
+ * residency tier.
+ * <p>
+ * Note: intentionally not named IndexResidencyBenchmarkTest so that automated unit tests will not run these, as these
+ * are benchmarks to be run manually during development. Results are only indicative for the host they are run on, and
+ * the page cache should be dropped between runs for the first lookup timings to be representative of a cold container.
+ */
+@Slf4j
+public class IndexResidencyBenchmark {
+
+    private static final int ROWS = 200_000;
+    private static final int LOOKUPS = 20_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void lookupLatencyPerTier() throws Exception {
+        var location = tempDir.resolve("index");
+        IndexResidencyTest.writeIndex(location, ROWS);
+        log.info("index size: {} bytes", IndexResidency.sizeOf(location));
+
+        benchmark("HEAP", location, "1GiB", "1GiB", "0B");
+        benchmark("MMAP_PRELOAD", location, "0B", "0B", "1GiB");
+        benchmark("MMAP", location, "0B", "0B", "0B");
+    }
+
+    private void benchmark(String label, Path location, String maxIndexSize, String heapBudget, String preloadBudget) throws Exception {
+        var residency = new IndexResidency(ConfigFactory.parseString(String.format(
+                "calculator.referenceDatasets.index { heap.maxIndexSize=%s, heap.budget=%s, mmap.preloadBudget=%s }",
+                maxIndexSize, heapBudget, preloadBudget)));
+        var random = new Random(42);
+        var parser = new QueryParser("key", new StandardAnalyzer());
+
+        var start = System.nanoTime();
+        try (var directory = residency.open(location); var reader = DirectoryReader.open(directory)) {
+            var searcher = new IndexSearcher(reader);
+            lookup(searcher, parser, random);
+            var firstLookup = System.nanoTime() - start;
+
+            var latencies = new long[LOOKUPS];
+            for (var i = 0; i < LOOKUPS; i++) {
+                var lookupStart = System.nanoTime();
+                lookup(searcher, parser, random);
+                latencies[i] = System.nanoTime() - lookupStart;
+            }
+            Arrays.sort(latencies);
+            log.info("{} ({}): open + first lookup: {}ms, steady state p50: {}us, p99: {}us", label, residency.tierOf(location),
+                    firstLookup / 1_000_000, latencies[LOOKUPS / 2] / 1_000, latencies[(int) (LOOKUPS * 0.99)] / 1_000);
+        }
+    }
+
+    private void lookup(IndexSearcher searcher, QueryParser parser, Random random) throws Exception {
+        var query = parser.parse(String.format("\"key%d\"", random.nextInt(ROWS)));
+        var docs = searcher.search(query, 1, Sort.INDEXORDER);
+        searcher.doc(docs.scoreDocs[0].doc);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.referenceDatasets;
+
+import com.typesafe.config.ConfigFactory;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexResidencyTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IndexResidency newResidency(String maxIndexSize, String heapBudget, String preloadBudget) {
+        return new IndexResidency(ConfigFactory.parseString(String.format(
+                "calculator.referenceDatasets.index { heap.maxIndexSize=%s, heap.budget=%s, mmap.preloadBudget=%s }",
+                maxIndexSize, heapBudget, preloadBudget)));
+    }
+
+    @Test
+    void assignsTiersWithinBudgets() {
+        var underTest = newResidency("100B", "150B", "500B");
+
+        assertEquals(IndexResidency.Tier.HEAP, underTest.assign(tempDir.resolve("a"), 100));
+        // too large for the heap
+        assertEquals(IndexResidency.Tier.MMAP_PRELOAD, underTest.assign(tempDir.resolve("b"), 400));
+        // small enough for the heap, but exceeds the remaining heap budget
+        assertEquals(IndexResidency.Tier.MMAP_PRELOAD, underTest.assign(tempDir.resolve("c"), 100));
+        // all budgets exhausted
+        assertEquals(IndexResidency.Tier.MMAP, underTest.assign(tempDir.resolve("d"), 100));
+        // assignments are stable
+        assertEquals(IndexResidency.Tier.HEAP, underTest.assign(tempDir.resolve("a"), 100));
+
+        underTest.release(tempDir.resolve("a"));
+        assertEquals(0, underTest.getHeapBytes());
+        assertEquals(IndexResidency.Tier.HEAP, underTest.assign(tempDir.resolve("e"), 50));
+    }
+
+    @Test
+    void opensIndexWithinAssignedTier() throws Exception {
+        var location = tempDir.resolve("index");
+        writeIndex(location, 10);
+
+        var onHeap = newResidency("1MiB", "1MiB", "1MiB");
+        try (var directory = onHeap.open(location)) {
+            assertInstanceOf(ByteBuffersDirectory.class, directory);
+            assertEquals("value5", search(directory, "key5"));
+        }
+
+        var mapped = newResidency("1B", "1B", "1B");
+        try (var directory = mapped.open(location)) {
+            assertInstanceOf(MMapDirectory.class, directory);
+            assertEquals(IndexResidency.Tier.MMAP, mapped.tierOf(location));
+            assertEquals("value5", search(directory, "key5"));
+        }
+    }
+
+    static void writeIndex(Path location, int rows) throws Exception {
+        try (var directory = FSDirectory.open(location);
+             var writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (var i = 0; i < rows; i++) {
+                var doc = new Document();
+                doc.add(new TextField("key", "key" + i, Field.Store.YES));
+                doc.add(new TextField("value", "value" + i, Field.Store.YES));
+                writer.addDocument(doc);
+            }
+        }
+    }
+
+    static String search(org.apache.lucene.store.Directory directory, String key) throws Exception {
+        try (var reader = DirectoryReader.open(directory)) {
+            var searcher = new IndexSearcher(reader);
+            var query = new QueryParser("key", new StandardAnalyzer()).parse(String.format("\"%s\"", key));
+            var docs = searcher.search(query, 1);
+            return docs.scoreDocs.length == 0 ? null : searcher.doc(docs.scoreDocs[0].doc).get("value");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.referenceDatasets;
+
+import com.typesafe.config.ConfigFactory;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private IndexResidency residency;
+    private final List<Path> evicted = new ArrayList<>();
+
+    @BeforeEach
+    public void initEach() {
+        residency = new IndexResidency(ConfigFactory.parseString(
+                "calculator.referenceDatasets.index { heap.maxIndexSize=1MiB, heap.budget=1MiB, mmap.preloadBudget=0B }"));
+    }
+
+    private IndexStore newStore(long quota) {
+        var store = new IndexStore(ConfigFactory.parseString(String.format(
+                "calculator.referenceDatasets.index.store.quota=%d%ncalculator.metrics.namespace=test", quota)), residency);
+        store.onEviction((location, searcher) -> evicted.add(location));
+        return store;
+    }
+
+    private IndexSearcher open(Path location) throws Exception {
+        IndexResidencyTest.writeIndex(location, 100);
+        return new IndexSearcher(DirectoryReader.open(residency.open(location)));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverQuota() throws Exception {
+        var a = tempDir.resolve("a");
+        var searcherA = open(a);
+        var size = IndexResidency.sizeOf(a);
+        var underTest = newStore(size * 2);
+
+        underTest.register(a, searcherA);
+        var b = tempDir.resolve("b");
+        var searcherB = open(b);
+        underTest.register(b, searcherB);
+
+        // a is used more recently than b
+        assertTrue(underTest.acquire(a, searcherA));
+        underTest.release(a);
+
+        var c = tempDir.resolve("c");
+        underTest.register(c, open(c));
+
+        assertEquals(List.of(b), evicted);
+        assertEquals(Set.of(a, c), underTest.getLocations());
+        assertEquals(size * 2, underTest.getTotalBytes());
+        assertFalse(Files.exists(b));
+        assertNull(residency.tierOf(b));
+        // the evicted searcher may no longer be acquired, requiring the index to be reopened
+        assertFalse(underTest.acquire(b, searcherB));
+    }
+
+    @Test
+    void neverEvictsIndexesBeingRead() throws Exception {
+        var a = tempDir.resolve("a");
+        var searcherA = open(a);
+        var underTest = newStore(IndexResidency.sizeOf(a));
+        underTest.register(a, searcherA);
+        assertTrue(underTest.acquire(a, searcherA));
+
+        var b = tempDir.resolve("b");
+        underTest.register(b, open(b));
+
+        // over quota, but the only candidate is being read
+        assertTrue(evicted.isEmpty());
+        assertEquals(Set.of(a, b), underTest.getLocations());
+
+        underTest.release(a);
+        var c = tempDir.resolve("c");
+        underTest.register(c, open(c));
+        assertEquals(List.of(a, b), evicted);
+    }
+}
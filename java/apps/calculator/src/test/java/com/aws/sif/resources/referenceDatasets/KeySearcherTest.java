@@ -0,0 +1,223 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+
+package com.aws.sif.resources.referenceDatasets;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeySearcherTest {
+
+    private static final String[][] ROWS = {
+            {"E84A904909dF528", "Western Sahara", "Liu-Hoover"},
+            {"AAC4f9aBF86EAeF", "Algeria", "Orr-Armstrong"},
+            {"ad2eb3C8C24DB87", "OR", "Farmer, Edwards and Andrade"},
+            {"D76BB12E5eE165B", "Algeria", "Bauer-Weiss"},
+            {"2F31EddF2Db9aAE", "Western Sahara", "Love-Palmer"},
+    };
+
+    private IndexSearcher searcher;
+
+    @BeforeEach
+    public void initEach() throws Exception {
+        var directory = new ByteBuffersDirectory();
+        try (var writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (var i = 0; i < ROWS.length; i++) {
+                var doc = new Document();
+                doc.add(new TextField("id", ROWS[i][0], Field.Store.YES));
+                doc.add(new TextField("country", ROWS[i][1], Field.Store.YES));
+                doc.add(new TextField("name", ROWS[i][2], Field.Store.YES));
+                doc.add(new TextField("row", Integer.toString(i), Field.Store.YES));
+                writer.addDocument(doc);
+            }
+        }
+        searcher = new IndexSearcher(DirectoryReader.open(directory));
+    }
+
+    @Test
+    void resolvesFirstMatchOfEachKey() {
+        var keys = List.of("E84A904909dF528", "d76bb12e5ee165b", "Algeria", "Western Sahara", "OR", "edwards", "Bauer-Weiss", "missing", "-");
+
+        var byId = KeySearcher.search(searcher, "id", keys);
+        assertEquals(Set.of("E84A904909dF528", "d76bb12e5ee165b"), byId.keySet());
+        assertEquals("3", byId.get("d76bb12e5ee165b").get("row"));
+
+        var byCountry = KeySearcher.search(searcher, "country", keys);
+        assertEquals(Set.of("Algeria", "Western Sahara", "OR"), byCountry.keySet());
+        assertEquals("1", byCountry.get("Algeria").get("row"));
+        assertEquals("0", byCountry.get("Western Sahara").get("row"));
+        assertEquals("2", byCountry.get("OR").get("row"));
+    }
+
+    @Test
+    void visitsOneDocumentPerKeyHoweverCommon() throws Exception {
+        var directory = new ByteBuffersDirectory();
+        try (var writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (var i = 0; i < 10000; i++) {
+                var doc = new Document();
+                doc.add(new TextField("country", i % 2 == 0 ? "Algeria" : "Western Sahara", Field.Store.YES));
+                doc.add(new TextField("row", Integer.toString(i), Field.Store.YES));
+                writer.addDocument(doc);
+                if (i % 1000 == 999) {
+                    // spread across segments
+                    writer.commit();
+                }
+            }
+            writer.deleteDocuments(new Term("row", "0"));
+        }
+        var loaded = new AtomicInteger();
+        var counting = new IndexSearcher(DirectoryReader.open(directory)) {
+            @Override
+            public StoredFields storedFields() throws IOException {
+                var storedFields = super.storedFields();
+                return new StoredFields() {
+                    @Override
+                    public void document(int docID, StoredFieldVisitor visitor) throws IOException {
+                        loaded.incrementAndGet();
+                        storedFields.document(docID, visitor);
+                    }
+                };
+            }
+        };
+
+        var actual = KeySearcher.search(counting, "country", List.of("algeria", "ALGERIA", "sahara", "missing"));
+
+        assertEquals(Set.of("algeria", "ALGERIA", "sahara"), actual.keySet());
+        // the first live document of each term, the deleted first row being skipped
+        assertEquals("2", actual.get("algeria").get("row"));
+        assertEquals("2", actual.get("ALGERIA").get("row"));
+        assertEquals("1", actual.get("sahara").get("row"));
+        assertEquals(2, loaded.get());
+    }
+
+    @Test
+    void matchesSingleKeySearch() throws Exception {
+        var keys = new ArrayList<String>();
+        for (var row : ROWS) {
+            keys.addAll(List.of(row[2].split("[ ,-]+")));
+            keys.add(row[2]);
+        }
+        keys.addAll(List.of("edwards and", "and edwards", "missing"));
+
+        var actual = KeySearcher.search(searcher, "name", keys);
+
+        for (var key : keys) {
+            // the same query as performed by a single lookup
+            var query = new QueryParser("name", new StandardAnalyzer()).parse(String.format("\"%s\"", key));
+            var docs = searcher.search(query, 1, Sort.INDEXORDER);
+            var expected = docs.scoreDocs.length == 0 ? null : searcher.doc(docs.scoreDocs[0].doc).get("row");
+            assertEquals(expected, actual.containsKey(key) ? actual.get(key).get("row") : null, key);
+        }
+    }
+
+    @Test
+    void searchesCompositeKeys() throws Exception {
+        assertEquals("3", KeySearcher.searchComposite(searcher, List.of("country", "name"), List.of("algeria", "Bauer-Weiss")).get("row"));
+        assertEquals("1", KeySearcher.searchComposite(searcher, List.of("name", "country"), List.of("ORR-ARMSTRONG", "Algeria")).get("row"));
+        assertNull(KeySearcher.searchComposite(searcher, List.of("country", "name"), List.of("Algeria", "Bauer")));
+        assertNull(KeySearcher.searchComposite(searcher, List.of("country", "name"), List.of("OR", "Bauer-Weiss")));
+        assertNull(KeySearcher.searchComposite(searcher, List.of("country", "name"), List.of("OR", "-")));
+    }
+
+    @Test
+    void searchesRanges() throws Exception {
+        String[][] factors = {
+                {"2020-01-01", "2021-01-01", "0.5"},
+                {"2021-01-01", "2022-01-01", "0.4"},
+                {"2021-06-01", "2021-07-01", "0.9"},
+                {"2022-01-01", "", "0.3"},
+                {"", "2020-01-01", "0.6"},
+                {"not a date", "2023-01-01", "0.1"},
+        };
+        var directory = new ByteBuffersDirectory();
+        try (var writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (var factor : factors) {
+                var doc = new Document();
+                doc.add(new TextField("from", factor[0], Field.Store.YES));
+                doc.add(new TextField("to", factor[1], Field.Store.YES));
+                doc.add(new TextField("factor", factor[2], Field.Store.YES));
+                writer.addDocument(doc);
+            }
+        }
+        var ranged = new IndexSearcher(DirectoryReader.open(directory));
+        var tree = KeySearcher.intervalTree(ranged, "from", "to");
+        assertEquals(5, tree.size());
+
+        var expected = new LinkedHashMap<String, String>();
+        expected.put("2019-03-01", "0.6");
+        expected.put("2020-01-01", "0.5");
+        expected.put("2020-12-31T23:59:59Z", "0.5");
+        expected.put("2021-01-01T00:00:00", "0.4");
+        // overlapping intervals resolve to the first in index order
+        expected.put("2021-06-15", "0.4");
+        expected.put("2022-01-01", "0.3");
+        expected.put("2099-01-01", "0.3");
+        for (var entry : expected.entrySet()) {
+            var value = KeySearcher.rangeValue(entry.getKey());
+            assertEquals(entry.getValue(), ranged.doc(tree.find(value)).get("factor"), entry.getKey());
+        }
+
+        assertEquals(1609459200000d, KeySearcher.rangeValue("1609459200000"));
+        assertThrows(IllegalArgumentException.class, () -> KeySearcher.rangeValue("not a date"));
+    }
+
+    @Test
+    void intervalTreeFindsLowestDocIdContainingValue() {
+        var random = new Random(42);
+        var size = 500;
+        var from = new double[size];
+        var to = new double[size];
+        var docIds = new int[size];
+        for (var i = 0; i < size; i++) {
+            from[i] = random.nextInt(1000);
+            to[i] = from[i] + random.nextInt(50);
+            docIds[i] = i;
+        }
+        var tree = new IntervalTree(from, to, docIds);
+
+        for (var value = -10d; value < 1100; value += 0.5) {
+            var expected = -1;
+            for (var i = 0; i < size; i++) {
+                if (from[i] <= value && value < to[i]) {
+                    expected = i;
+                    break;
+                }
+            }
+            assertEquals(expected, tree.find(value), Double.toString(value));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright Amazon.com Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in compliance
+ *  with the License. A copy of the License is located at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  or in the 'license' file accompanying this file. This file is distributed on an 'AS IS' BASIS, WITHOUT WARRANTIES
+ *  OR CONDITIONS OF ANY KIND, express or implied. See the License for the specific language governing permissions
+ *  and limitations under the License.
+ */
+package com.aws.sif.resources.users;
+
+import com.aws.sif.Authorizer;
+import com.aws.sif.lambdaInvoker.LambdaInvocationException;
+import com.aws.sif.lambdaInvoker.LambdaInvoker;
+import com.aws.sif.lambdaInvoker.LambdaResponse;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UsersClientTest {
+
+    private static final String GROUP_CONTEXT_ID = "/test";
+    private static final Authorizer AUTHORIZER = new Authorizer("someone@somewhere.com", GROUP_CONTEXT_ID, Set.of(GROUP_CONTEXT_ID));
+    private static final User USER = new User("someone@somewhere.com", "active", Map.of("/test", "contributor"), null, "/test", null, null, null, null);
+
+    @Mock
+    private LambdaInvoker<User> userInvoker;
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private UsersClient underTest;
+
+    @BeforeEach
+    public void initEach() {
+        var config = ConfigFactory.parseString(String.join("\n",
+                "calculator.accessManagement.functionName=accessManagement",
+                "calculator.users.cache.ttlInMillis=100",
+                "calculator.users.cache.maxEntries=2"));
+        underTest = new UsersClient(userInvoker, config, now::get);
+    }
+
+    @Test
+    void usersAreCachedUntilExpired() throws Exception {
+        when(userInvoker.invokeFunction(eq("accessManagement"), eq(GROUP_CONTEXT_ID), eq(AUTHORIZER), eq("GET"), eq("/users/someone%40somewhere.com"), any(), any(), any(), eq(User.class)))
+                .thenReturn(new LambdaResponse<>(200, USER));
+
+        assertEquals(USER, underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+        assertEquals(USER, underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+        verify(userInvoker, times(1)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+
+        now.addAndGet(100);
+        assertEquals(USER, underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+        verify(userInvoker, times(2)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+
+        underTest.invalidate("someone@somewhere.com");
+        assertEquals(USER, underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+        verify(userInvoker, times(3)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void leastRecentlyUsedUsersAreEvicted() throws Exception {
+        when(userInvoker.invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new LambdaResponse<>(200, USER));
+
+        underTest.getUser("someone@somewhere.com", "/a", AUTHORIZER);
+        underTest.getUser("someone@somewhere.com", "/b", AUTHORIZER);
+        underTest.getUser("someone@somewhere.com", "/a", AUTHORIZER);
+        // evicts /b, being the least recently used
+        underTest.getUser("someone@somewhere.com", "/c", AUTHORIZER);
+        verify(userInvoker, times(3)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+
+        underTest.getUser("someone@somewhere.com", "/a", AUTHORIZER);
+        verify(userInvoker, times(3)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+        underTest.getUser("someone@somewhere.com", "/b", AUTHORIZER);
+        verify(userInvoker, times(4)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void concurrentRequestsShareRetrieval() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(userInvoker.invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any())).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new LambdaResponse<>(200, USER);
+        });
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var first = executor.submit(() -> underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            var others = executor.invokeAll(List.of(
+                    () -> underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER),
+                    () -> underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER)), 50, TimeUnit.MILLISECONDS);
+            // still waiting on the single retrieval
+            assertTrue(others.stream().allMatch(f -> f.isCancelled()));
+            release.countDown();
+            assertEquals(USER, first.get(5, TimeUnit.SECONDS));
+            assertEquals(USER, underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userInvoker, times(1)).invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void failuresAreNotCached() throws Exception {
+        when(userInvoker.invokeFunction(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new CompletionException(new LambdaInvocationException("not found", 404)))
+                .thenReturn(new LambdaResponse<>(200, USER));
+
+        assertThrows(UserNotFoundException.class, () -> underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+        assertEquals(USER, underTest.getUser("someone@somewhere.com", GROUP_CONTEXT_ID, AUTHORIZER));
+    }
+}